@@ -0,0 +1,95 @@
+package mattmunz.todo;
+
+import static java.time.DayOfWeek.FRIDAY;
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.DayOfWeek.SATURDAY;
+import static java.time.DayOfWeek.SUNDAY;
+import static java.time.DayOfWeek.THURSDAY;
+import static java.time.DayOfWeek.TUESDAY;
+import static java.time.DayOfWeek.WEDNESDAY;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import mattmunz.property.PropertiedObject;
+import mattmunz.property.Property;
+import mattmunz.property.PropertyListBuilder;
+
+/**
+ * The days of the week on which a task recurs, as given by a rec: field. Either one of the 
+ * keywords daily, weekdays or weekends, or a run of two letter day abbreviations, e.g. MoWeFr.
+ */
+public class Recurrence implements PropertiedObject
+{
+  private static final String[] DAY_ABBREVIATIONS = { "Mo", "Tu", "We", "Th", "Fr", "Sa", "Su" };
+  
+  public static Recurrence forIdentifier(String identifier)
+  {
+    switch (identifier)
+    {
+      case "daily": return new Recurrence(identifier, EnumSet.allOf(DayOfWeek.class));
+      case "weekdays": 
+        return new Recurrence(identifier, EnumSet.of(MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY));
+      case "weekends": return new Recurrence(identifier, EnumSet.of(SATURDAY, SUNDAY));
+      default: return new Recurrence(identifier, parseDays(identifier));
+    }
+  }
+
+  private static Set<DayOfWeek> parseDays(String identifier)
+  {
+    if (identifier.isEmpty() || identifier.length() % 2 != 0) 
+    { 
+      throw new IllegalArgumentException("Invalid recurrence: " + identifier); 
+    }
+    
+    Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+    
+    for (int i = 0; i < identifier.length(); i += 2)
+    {
+      days.add(parseDay(identifier.substring(i, i + 2), identifier));
+    }
+    
+    return days;
+  }
+
+  private static DayOfWeek parseDay(String abbreviation, String identifier)
+  {
+    for (int i = 0; i < DAY_ABBREVIATIONS.length; i++)
+    {
+      if (DAY_ABBREVIATIONS[i].equals(abbreviation)) { return DayOfWeek.of(i + 1); }
+    }
+    
+    throw new IllegalArgumentException("Unknown day in recurrence " + identifier + ": " 
+                                       + abbreviation);
+  }
+  
+  private final String identifier;
+  private final Set<DayOfWeek> days;
+  
+  private Recurrence(String identifier, Set<DayOfWeek> days)
+  {
+    this.identifier = identifier;
+    this.days = days;
+  }
+
+  @Override
+  public String toString() { return getToStringText(); }
+
+  @Override
+  public int hashCode() { return getHashCode(); }
+
+  @Override
+  public boolean equals(Object other) { return isEqualTo(other); }
+
+  @Override
+  public List<Property> getProperties()
+  {
+    return new PropertyListBuilder().add("identifier", identifier).add("days", days).build();
+  }
+
+  public String getIdentifier() { return identifier; }
+
+  public boolean occursOn(DayOfWeek day) { return days.contains(day); }
+}
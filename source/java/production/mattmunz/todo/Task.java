@@ -1,13 +1,19 @@
 package mattmunz.todo;
 
+import static mattmunz.todo.TodoLineFieldType.DAY;
+import static mattmunz.todo.TodoLineFieldType.TIME_OF_DAY;
+
 import java.time.DayOfWeek;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import mattmunz.property.PropertiedObject;
 import mattmunz.property.Property;
 import mattmunz.property.PropertyListBuilder;
+import mattmunz.time.DayHelper;
 import mattmunz.time.TimeOfDay;
 
 /**
@@ -17,29 +23,91 @@ import mattmunz.time.TimeOfDay;
  * Context is preceding @, project has proceeding +.
  * 
  * Completed tasks start with lower case x followed by a space: x.
+ * A completed task may then have a completion date and a creation date, and any other task a 
+ * creation date, as yyyy-MM-dd. Dates aren't part of the message.
  * Each task line is preceded by a line number and a space.
+ * 
+ * A recurring task (rec:) has no day of its own. Each of its occurrences is a virtual task, 
+ * with a day field, which is never written to the file.
  */
 public class Task implements PropertiedObject
 {
+  private static final String DAY_FIELD_LABEL = " day:";
+  private static final String TIME_OF_DAY_FIELD_LABEL = " tod:";
+  private static final DayHelper dayHelper = new DayHelper();
+  private static final Pattern COLOR_CODE_PATTERN 
+    = Pattern.compile("^" + TaskLineParser.COLOR_CODE_REGEX);
+  private static final Pattern IDENTIFIER_PATTERN 
+    = Pattern.compile("^(" + TaskLineParser.COLOR_CODE_REGEX + ")?" 
+                      + TaskLineParser.IDENTIFIER_REGEX + " ");
+  
+  /**
+   * @param line A todo.txt line as it is in the file, without an identifier
+   * @return The line with the identifier where the parser expects it: at the start, or after the 
+   *         color code if there is one
+   */
+  public static String addIdentifier(String identifier, String line)
+  {
+    Matcher matcher = COLOR_CODE_PATTERN.matcher(line);
+    int start = matcher.find() ? matcher.end() : 0;
+    
+    return line.substring(0, start) + identifier + " " + line.substring(start);
+  }
+  
   private final Optional<String> colorCode;
   private final Optional<String> priority;
   private final Optional<DayOfWeek> day;
   private final Optional<TimeOfDay> timeOfDay;
+  private final Optional<Recurrence> recurrence;
   private final String identifier;
   private final String lineText;
   private final Set<String> projects;
   private final Set<String> contexts;
   private final boolean isCompleted;
   private final String message; 
+  private final int creationEpochDay;
+  private final int completionEpochDay;
+  
+  /**
+   * The fields, with their positions in the line text, if known. Otherwise they are parsed when 
+   * needed.
+   */
+  private final Optional<List<TodoLineField>> fields;
+  private final int hashCode;
+  private final int contentHashCode;
 
   /**
    * @param lineText A line of todo.txt text that will be parsed into this object.
    */
-  public Task(String lineText) { this(new TaskLineParser(lineText)); }
+  public Task(String lineText) { this(TaskParser.getInstance().createLineParser(lineText)); }
   
   public Task(String lineText, String identifier, boolean isCompleted, Optional<String> priority, 
        				Optional<String> colorCode, Optional<DayOfWeek> day, Optional<TimeOfDay> timeOfDay, 
-       				Set<String> projects, Set<String> contexts, String message)
+       				Optional<Recurrence> recurrence, Set<String> projects, Set<String> contexts, 
+       				String message)
+  {
+    this(lineText, identifier, isCompleted, priority, colorCode, day, timeOfDay, recurrence, 
+         projects, contexts, message, TodoDate.NONE, TodoDate.NONE);
+  }
+  
+  /**
+   * @param creationEpochDay See {@link TodoDate}
+   * @param completionEpochDay See {@link TodoDate}
+   */
+  public Task(String lineText, String identifier, boolean isCompleted, Optional<String> priority, 
+              Optional<String> colorCode, Optional<DayOfWeek> day, Optional<TimeOfDay> timeOfDay, 
+              Optional<Recurrence> recurrence, Set<String> projects, Set<String> contexts, 
+              String message, int creationEpochDay, int completionEpochDay)
+  {
+    this(lineText, identifier, isCompleted, priority, colorCode, day, timeOfDay, recurrence, 
+         projects, contexts, message, creationEpochDay, completionEpochDay, Optional.empty());
+  }
+  
+  private Task(String lineText, String identifier, boolean isCompleted, Optional<String> priority, 
+               Optional<String> colorCode, Optional<DayOfWeek> day, Optional<TimeOfDay> timeOfDay, 
+               Optional<Recurrence> recurrence, Set<String> projects, Set<String> contexts, 
+               String message, int creationEpochDay, int completionEpochDay, 
+               Optional<List<TodoLineField>> fields)
   {
     this.lineText = lineText;    
     this.identifier = identifier;  
@@ -48,33 +116,62 @@ public class Task implements PropertiedObject
     this.colorCode = colorCode; 
     this.day = day; 
     this.timeOfDay = timeOfDay; 
+    this.recurrence = recurrence; 
     this.projects = projects; 
     this.contexts = contexts; 
     this.message = message; 
+    this.creationEpochDay = creationEpochDay;
+    this.completionEpochDay = completionEpochDay;
+    this.fields = fields; 
+    
+    hashCode = getHashCode();
+    contentHashCode = computeContentHashCode();
   }
   
-  private Task(TaskLineParser parser)
+  Task(TaskLineParser parser)
   {
     this(parser.getLineText(), parser.getIdentifier(), parser.getIsCompleted(), 
          parser.getPriority(), parser.getColorCode(), parser.getDay(), 
-         parser.getTimeOfDay(), parser.getProjects(), parser.getContexts(), 
-         parser.getMessage()); 
+         parser.getTimeOfDay(), parser.getRecurrence(), parser.getProjects(), 
+         parser.getContexts(), parser.getMessage(), parser.getCreationEpochDay(), 
+         parser.getCompletionEpochDay(), Optional.of(parser.getFields())); 
   }
 
   @Override
   public String toString() { return getToStringText(); }
 
+  /**
+   * The hash code is computed once, at construction, from the same properties used by 
+   * {@link #equals(Object)}. Tasks are immutable, so it never needs to be recomputed.
+   */
   @Override
-  public int hashCode() { return getHashCode(); }
+  public int hashCode() { return hashCode; }
 
+  /**
+   * A specialized version of {@link #isEqualTo(Object)} which compares the cached hash codes 
+   * first and then the properties one by one, cheapest first.
+   */
   @Override
-  public boolean equals(Object other) { return isEqualTo(other); }
+  public boolean equals(Object other) 
+  { 
+    if (this == other) { return true; }
+    
+    if (!(other instanceof Task)) { return false; }
+    
+    Task otherTask = (Task) other;
+    
+    return hashCode == otherTask.hashCode && isCompleted == otherTask.isCompleted 
+           && lineText.equals(otherTask.lineText) && day.equals(otherTask.day) 
+           && timeOfDay.equals(otherTask.timeOfDay) && priority.equals(otherTask.priority) 
+           && contexts.equals(otherTask.contexts) && projects.equals(otherTask.projects);
+  }
   
   @Override
   public List<Property> getProperties()
   {
     return new PropertyListBuilder()
                 .add("lineText", lineText).add("day", day).add("timeOfDay", timeOfDay)
+                .add("recurrence", recurrence)
                 .add("contexts", contexts).add("projects", projects)
                 .add("priority", priority).add("isCompleted", isCompleted).build();
   }
@@ -88,15 +185,56 @@ public class Task implements PropertiedObject
    */
   public String getLineText() { return lineText; }
   
+  /**
+   * @return The line text as it is in the file, without the identifier added by 
+   *         {@link #addIdentifier(String, String)}
+   */
   public String getLineTextWithoutIdentifier() 
   {
-  	return lineText.replaceFirst("^\\d+ ", "");
+    return IDENTIFIER_PATTERN.matcher(lineText).replaceFirst("$1");
   }
   
   public Optional<DayOfWeek> getDay() { return day; }  
 
   public Optional<TimeOfDay> getTimeOfDay() { return timeOfDay; }
 
+  public Optional<Recurrence> getRecurrence() { return recurrence; }
+
+  /**
+   * @return A virtual task for the occurrence of this recurring task on the given day. Its line 
+   *         text has a day field added.
+   */
+  public Task getOccurrence(DayOfWeek occurrenceDay)
+  {
+    if (!recurrence.isPresent() || !recurrence.get().occursOn(occurrenceDay) || day.isPresent()) 
+    {
+      throw new IllegalArgumentException("Task doesn't recur on " + occurrenceDay + ": " + this);
+    }
+    
+    String occurrenceLineText 
+      = getLineTextWithSchedule(Optional.of(dayHelper.getIdentifier(occurrenceDay)), 
+                                Optional.empty());
+    
+    return new Task(occurrenceLineText, identifier, isCompleted, priority, colorCode, 
+                    Optional.of(occurrenceDay), timeOfDay, recurrence, projects, contexts, 
+                    message, creationEpochDay, completionEpochDay);
+  }
+
+  /**
+   * @return This task, with its day and time of day fields set to the given values. Fields 
+   *         which are missing are added at the end of the line.
+   */
+  public Task moveTo(DayOfWeek newDay, TimeOfDay newTimeOfDay)
+  {
+    String newLineText 
+      = getLineTextWithSchedule(Optional.of(dayHelper.getIdentifier(newDay)), 
+                                Optional.of(newTimeOfDay.getIdentifier()));
+    
+    return new Task(newLineText, identifier, isCompleted, priority, colorCode, 
+                    Optional.of(newDay), Optional.of(newTimeOfDay), recurrence, projects, 
+                    contexts, message, creationEpochDay, completionEpochDay);
+  }
+
   public Set<String> getContexts() { return contexts; }
 
   public Set<String> getProjects() { return projects; } 
@@ -105,8 +243,142 @@ public class Task implements PropertiedObject
 
   public boolean isCompleted() { return isCompleted; }
 
+  /**
+   * @return The creation date, as an epoch day, or {@link TodoDate#NONE}
+   */
+  public int getCreationEpochDay() { return creationEpochDay; }
+
+  /**
+   * @return The completion date, as an epoch day, or {@link TodoDate#NONE}
+   */
+  public int getCompletionEpochDay() { return completionEpochDay; }
+
+  /**
+   * @return A hash of the line text, ignoring the identifier. Two lines which differ only in 
+   *         their line number have the same content hash code. Computed once, at construction.
+   */
+  public int getContentHashCode() { return contentHashCode; }
+
+  /**
+   * @return true if this task and the other have the same line text, ignoring the identifier.
+   */
+  public boolean hasSameContent(Task other)
+  {
+    if (contentHashCode != other.contentHashCode || !colorCode.equals(other.colorCode)) 
+    { 
+      return false; 
+    }
+    
+    int contentStart = getContentStart();
+    int otherContentStart = other.getContentStart();
+    int contentLength = lineText.length() - contentStart;
+    
+    if (contentLength != other.lineText.length() - otherContentStart) { return false; }
+    
+    return lineText.regionMatches(contentStart, other.lineText, otherContentStart, contentLength);
+  }
+
   /**
    * @return The task line stripped of any special tokens.
    */
   public String getMessage() { return message; }
+
+  /**
+   * Equivalent to hashing {@link #getLineTextWithoutIdentifier()}, and the color code, without 
+   * creating the intermediate string.
+   */
+  private int computeContentHashCode()
+  {
+    int contentHashCode = colorCode.map(String::hashCode).orElse(0);
+    
+    for (int i = getContentStart(); i < lineText.length(); i++) 
+    { 
+      contentHashCode = 31 * contentHashCode + lineText.charAt(i); 
+    }
+    
+    return contentHashCode;
+  }
+
+  /**
+   * Splices new values into the spans of the existing day and time of day fields, in a single 
+   * copy of the line.
+   * 
+   * @param dayIdentifier If empty, the day field is left as it is
+   * @param timeOfDayIdentifier If empty, the time of day field is left as it is
+   */
+  private String getLineTextWithSchedule(Optional<String> dayIdentifier, 
+                                         Optional<String> timeOfDayIdentifier)
+  {
+    StringBuilder newLineText = new StringBuilder(lineText.length() + 16);
+    
+    int copiedLength = 0;
+    boolean hasDayField = false;
+    boolean hasTimeOfDayField = false;
+    
+    List<TodoLineField> lineFields 
+      = fields.orElseGet(() -> TaskParser.getInstance().createLineParser(lineText).getFields());
+    
+    for (TodoLineField field : lineFields)
+    {
+      Optional<String> newValue 
+        = field.getType() == DAY ? dayIdentifier 
+                                 : field.getType() == TIME_OF_DAY ? timeOfDayIdentifier 
+                                                                  : Optional.empty();
+      
+      hasDayField |= field.getType() == DAY;
+      hasTimeOfDayField |= field.getType() == TIME_OF_DAY;
+      
+      if (newValue.isPresent())
+      {
+        newLineText.append(lineText, copiedLength, field.getValueStart()).append(newValue.get());
+        copiedLength = field.getEnd();
+      }
+    }
+    
+    int bodyEnd = getBodyEnd();
+    
+    newLineText.append(lineText, copiedLength, bodyEnd);
+    
+    if (!hasDayField && dayIdentifier.isPresent()) 
+    { 
+      newLineText.append(DAY_FIELD_LABEL).append(dayIdentifier.get()); 
+    }
+    
+    if (!hasTimeOfDayField && timeOfDayIdentifier.isPresent()) 
+    { 
+      newLineText.append(TIME_OF_DAY_FIELD_LABEL).append(timeOfDayIdentifier.get()); 
+    }
+    
+    return newLineText.append(lineText, bodyEnd, lineText.length()).toString();
+  }
+
+  /**
+   * @return The index just past the last character of the task body, i.e. before any trailing 
+   *         color reset code and newline.
+   */
+  private int getBodyEnd()
+  {
+    int bodyEnd = lineText.endsWith("\n") ? lineText.length() - 1 : lineText.length();
+    
+    if (bodyEnd > 0 && lineText.charAt(bodyEnd - 1) == 'm')
+    {
+      int resetCodeStart = lineText.lastIndexOf("\u001B[", bodyEnd);
+      
+      if (resetCodeStart >= 0 
+          && lineText.substring(resetCodeStart + 2, bodyEnd - 1).matches("\\d+"))
+      {
+        return resetCodeStart;
+      }
+    }
+    
+    return bodyEnd;
+  }
+
+  /**
+   * @return The index of the first character after the color code and the identifier.
+   */
+  private int getContentStart()
+  {
+    return colorCode.map(String::length).orElse(0) + identifier.length();
+  }
 }
@@ -1,10 +1,10 @@
 // TODO Move to a new parser package
 package mattmunz.todo;
 
+import static java.util.logging.Level.FINE;
 import static java.util.logging.Logger.getLogger;
 import static java.util.regex.Pattern.compile;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toSet;
+import static mattmunz.todo.TaskLineParser.RegexGroup.BODY;
 import static mattmunz.todo.TaskLineParser.RegexGroup.COLOR_CODE;
 import static mattmunz.todo.TaskLineParser.RegexGroup.COMPLETED;
 import static mattmunz.todo.TaskLineParser.RegexGroup.IDENTIFIER;
@@ -12,22 +12,28 @@ import static mattmunz.todo.TaskLineParser.RegexGroup.PRIORITY;
 import static mattmunz.todo.TodoLineFieldType.CONTEXT;
 import static mattmunz.todo.TodoLineFieldType.DAY;
 import static mattmunz.todo.TodoLineFieldType.PROJECT;
+import static mattmunz.todo.TodoLineFieldType.RECURRENCE;
 import static mattmunz.todo.TodoLineFieldType.TIME_OF_DAY;
 
 import java.time.DayOfWeek;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import mattmunz.time.DayHelper;
 import mattmunz.time.TimeOfDay;
 
 /**
+ * Parses one line. The patterns are compiled once; the matchers, and the {@link DayHelper}, are 
+ * in a {@link Scratch} which {@link TaskParser} reuses for every line one thread parses.
+ * 
  * TODO This class is a little big. Extract out the generic regex group / regex code, 
  * leaving only the task-specifics here.
  */
@@ -36,7 +42,7 @@ class TaskLineParser
   enum RegexGroup 
   {
     COLOR_CODE("ColorCode"), IDENTIFIER("Identifier"), COMPLETED("Completed"), 
-    PRIORITY("Priority");
+    PRIORITY("Priority"), BODY("Body");
     
     private final String name;
     
@@ -45,21 +51,59 @@ class TaskLineParser
     private String getName() { return name; }
   }
 
+  static final String COLOR_CODE_REGEX = "\\u001B\\[\\d+;\\d+m";
+  
+  /**
+   * A line number, or a {@link mattmunz.todo.cli.TaskMerger} tag of a file and a line number, 
+   * e.g. team.txt:12.
+   */
+  static final String IDENTIFIER_REGEX = "(?:\\S+:)?\\d+";
+  
   private static final String FIELD_REGEX 
-    = "(?<FieldLabel>day:|tod:|\\+|\\@)(?<FieldValue>[\\p{Alpha}_]+)";
+    = "(?<FieldLabel>day:|tod:|rec:|\\+|\\@)(?<FieldValue>[\\p{IsAlphabetic}_]+)";
+
+  private static final Pattern FRONT_ITEMS_PATTERN = compile(getFrontItemsRegex());
+  private static final Pattern FIELD_PATTERN = compile(" " + FIELD_REGEX);
+  private static final Pattern FIELD_VALUE_PATTERN = compile(FIELD_REGEX);
 
   private static final Logger logger = getLogger(TaskLineParser.class.getName());
   
+  /**
+   * Matchers and helpers which can be reset for each line, rather than created again. Not 
+   * thread-safe: one per thread.
+   */
+  static class Scratch
+  {
+    private final Matcher frontItemsMatcher = FRONT_ITEMS_PATTERN.matcher("");
+    private final Matcher fieldMatcher = FIELD_PATTERN.matcher("");
+    private final Matcher fieldValueMatcher = FIELD_VALUE_PATTERN.matcher("");
+    private final DayHelper dayHelper = new DayHelper();
+  }
+  
   private final String lineText;
+  private final Scratch scratch;
   private final Matcher frontItemsMatcher;
-  private final Map<TodoLineFieldType, Set<TodoLineField>> fieldListPartitions;
-  private final DayHelper dayHelper = new DayHelper();
+  private final List<TodoLineField> fields;
+  private int completionEpochDay = TodoDate.NONE;
+  private int creationEpochDay = TodoDate.NONE;
+  
+  /**
+   * The index of the first character of the message, after the preamble and any dates.
+   */
+  private int messageStart;
+
+  TaskLineParser(String lineText) { this(lineText, new Scratch()); }
 
-  TaskLineParser(String lineText)
+  /**
+   * The parser uses the scratch until the task is built from it, so the scratch mustn't be used 
+   * for another line until then.
+   */
+  TaskLineParser(String lineText, Scratch scratch)
   {
     this.lineText = lineText;
+    this.scratch = scratch;
     
-    logger.fine("Parsing line: [" + lineText + "]");
+    if (logger.isLoggable(FINE)) { logger.fine("Parsing line: [" + lineText + "]"); }
     
     if (lineText.isEmpty()) 
     {
@@ -68,8 +112,44 @@ class TaskLineParser
     
     frontItemsMatcher = getFrontItemsMatcher(lineText);
     
-    fieldListPartitions 
-      = parseFieldValues(lineText).stream().collect(groupingBy(TodoLineField::getType, toSet()));
+    parseDates(frontItemsMatcher.start(BODY.getName()));
+    
+    fields = parseFields(lineText);
+  }
+
+  /**
+   * A completed task may have a completion date and then a creation date; any other task may 
+   * have a creation date. Each date is followed by a space, so a date alone is a message.
+   */
+  private void parseDates(int bodyStart)
+  {
+    messageStart = bodyStart;
+    
+    int firstDate = parseDate(messageStart);
+    
+    if (firstDate == TodoDate.NONE) { return; }
+    
+    messageStart += TodoDate.LENGTH + 1;
+    
+    if (!getIsCompleted()) 
+    { 
+      creationEpochDay = firstDate;
+      return;
+    }
+    
+    completionEpochDay = firstDate;
+    creationEpochDay = parseDate(messageStart);
+    
+    if (creationEpochDay != TodoDate.NONE) { messageStart += TodoDate.LENGTH + 1; }
+  }
+
+  private int parseDate(int start)
+  {
+    int end = start + TodoDate.LENGTH;
+    
+    if (end >= lineText.length() || lineText.charAt(end) != ' ') { return TodoDate.NONE; }
+    
+    return TodoDate.parse(lineText, start);
   }
 
   /**
@@ -77,23 +157,33 @@ class TaskLineParser
    */
   Set<TodoLineField> parseFieldValues(String lineText) 
   {
-    Matcher fieldMatcher = getMatcher(" " + FIELD_REGEX, lineText);
+    return new HashSet<TodoLineField>(parseFields(lineText));
+  }
+
+  /**
+   * @return All fields, in the order they appear, with their positions in the line.
+   */
+  private List<TodoLineField> parseFields(String lineText) 
+  {
+    Matcher fieldMatcher = scratch.fieldMatcher.reset(lineText);
     
-    Set<TodoLineField> values = new HashSet<TodoLineField>();
+    List<TodoLineField> fields = new ArrayList<TodoLineField>();
     
     while (fieldMatcher.find()) 
     { 
       String label = fieldMatcher.group("FieldLabel");
       String value = fieldMatcher.group("FieldValue");
       
-      values.add(new TodoLineField(label, value)); 
+      fields.add(new TodoLineField(label, value, fieldMatcher.start("FieldLabel"))); 
     }
     
-    return values;
+    return fields;
   }
 
   String getLineText() { return lineText; }
 
+  List<TodoLineField> getFields() { return fields; }
+
   String getIdentifier() { return getGroupText(IDENTIFIER); }
 
   boolean getIsCompleted() { return " x".equals(getGroupText(COMPLETED)); }
@@ -102,20 +192,32 @@ class TaskLineParser
 
   Optional<String> getColorCode() { return getOptionalGroupText(COLOR_CODE); }
 
-  Optional<DayOfWeek> getDay() { return getSingleField(DAY, "day", dayHelper::getDayOfWeek); }
+  Optional<DayOfWeek> getDay() 
+  { 
+    return getSingleField(DAY, "day", scratch.dayHelper::getDayOfWeek); 
+  }
 
   Optional<TimeOfDay> getTimeOfDay()
   {
     return getSingleField(TIME_OF_DAY, "tod", TimeOfDay::forIdentifier);
   }
 
+  Optional<Recurrence> getRecurrence()
+  {
+    return getSingleField(RECURRENCE, "rec", Recurrence::forIdentifier);
+  }
+
   Set<String> getProjects() { return getFieldValues(PROJECT); }
 
   Set<String> getContexts() { return getFieldValues(CONTEXT); }
 
+  int getCompletionEpochDay() { return completionEpochDay; }
+
+  int getCreationEpochDay() { return creationEpochDay; }
+
   String getMessage() 
   {
-    return lineText.replaceAll(getPreambleRegex(), "").replaceAll(FIELD_REGEX, "").trim(); 
+    return scratch.fieldValueMatcher.reset(lineText.substring(messageStart)).replaceAll("").trim(); 
   }
 
   private Optional<String> getOptionalGroupText(RegexGroup group)
@@ -130,16 +232,7 @@ class TaskLineParser
    */
   private Matcher getFrontItemsMatcher(String lineText)
   {
-    // TODO The color code patterns are similar and can be refactored together
-    String colorResetCodeGroup = "(\\u001B\\[\\d+m)";
-    
-    String firstBodyWord = "[\\S&&[^\\(X]]\\S*";
-    String body = firstBodyWord + ".*";
-
-    // TODO instead of this \\n?\\z business just trim the line before parsing it
-    String frontItemsRegex = getPreambleRegex() + body + colorResetCodeGroup + "?" + "\\n?\\z";
-    
-    Matcher frontItemsMatcher = getMatcher(frontItemsRegex, lineText);
+    Matcher frontItemsMatcher = scratch.frontItemsMatcher.reset(lineText);
 
     if (!frontItemsMatcher.matches()) 
     {
@@ -150,17 +243,28 @@ class TaskLineParser
     return frontItemsMatcher;
   }
 
-  // TODO Store this in state instead of recomputing it every time.
+  private static String getFrontItemsRegex()
+  {
+    // TODO The color code patterns are similar and can be refactored together
+    String colorResetCodeGroup = "(\\u001B\\[\\d+m)";
+    
+    String firstBodyWord = "[\\S&&[^\\(X]]\\S*";
+    String body = firstBodyWord + ".*";
+
+    // TODO instead of this \\n?\\z business just trim the line before parsing it
+    return getPreambleRegex() + createGroupExpression(BODY, body) + colorResetCodeGroup + "?" 
+           + "\\n?\\z";
+  }
+
   // TODO Document
-  // TODO Incorporate the timestamp as well
-  private String getPreambleRegex()
+  private static String getPreambleRegex()
   {
     String priorityMarkGroup 
       = "(\\(" + createGroupExpression(PRIORITY, "\\p{Upper}") + "\\))";
     String indexCompletedMarkAndPriority 
-      = createGroupExpression(IDENTIFIER, "\\d+") + createGroupExpression(COMPLETED, " x") 
-        + "?( " + priorityMarkGroup + ")?";
-    String colorCodeGroup = createGroupExpression(COLOR_CODE, "\\u001B\\[\\d+;\\d+m");
+      = createGroupExpression(IDENTIFIER, IDENTIFIER_REGEX) 
+        + createGroupExpression(COMPLETED, " x") + "?( " + priorityMarkGroup + ")?";
+    String colorCodeGroup = createGroupExpression(COLOR_CODE, COLOR_CODE_REGEX);
     
     return "^" + colorCodeGroup + "?" + indexCompletedMarkAndPriority + " {1}";
   }
@@ -175,54 +279,49 @@ class TaskLineParser
     return matcher.group(group.getName());
   }
 
-  private String createGroupExpression(RegexGroup group, String expression)
+  private static String createGroupExpression(RegexGroup group, String expression)
   {
     return "(?<" + group.getName() + ">" + expression + ")";
   }
 
+  /**
+   * A field may appear more than once with the same value, but not with different values.
+   */
   private <V> Optional<V> 
     getSingleField(TodoLineFieldType fieldType, String fieldName, Function<String, V> fieldValueParser)
   {
-    return getSingleField(fieldListPartitions, fieldType, fieldName, fieldValueParser, lineText);
-  }
-
-  private <V> Optional<V> 
-    getSingleField(Map<TodoLineFieldType, Set<TodoLineField>> fieldListPartitions,
-                   TodoLineFieldType fieldType, String fieldName, 
-                   Function<String, V> fieldValueParser, String lineText)
-  {
-    Set<TodoLineField> matchingFields = fieldListPartitions.get(fieldType);
+    String value = null;
     
-    if (matchingFields == null || matchingFields.isEmpty()) { return Optional.empty(); }
-      
-    if (matchingFields.size() > 1) 
+    for (TodoLineField field : fields)
     {
-      throw new IllegalArgumentException("Too many " + fieldName + "s found in line: " + lineText); 
-    }
+      if (field.getType() != fieldType) { continue; }
+      
+      if (value != null && !value.equals(field.getValue()))
+      {
+        String message = "Too many " + fieldName + "s found in line: " + lineText;
+        
+        throw new IllegalArgumentException(message);
+      }
       
-    return Optional.of(fieldValueParser.apply(matchingFields.iterator().next().getValue()));
+      value = field.getValue();
+    }
+    
+    return value == null ? Optional.empty() : Optional.of(fieldValueParser.apply(value));
   }
 
   private Set<String> getFieldValues(TodoLineFieldType fieldType)
   {
-    return getFieldValues(fieldListPartitions, fieldType);
-  }
-
-  private Set<String> 
-    getFieldValues(Map<TodoLineFieldType, Set<TodoLineField>> fieldListPartitions,
-                   TodoLineFieldType fieldType)
-  {
-    return Optional.ofNullable(fieldListPartitions.get(fieldType))
-                         .map(this::getValues).orElse(Collections.emptySet());
-  }
-
-  private Set<String> getValues(Set<TodoLineField> fields)
-  {
-    return fields.stream().map(TodoLineField::getValue).collect(toSet());
-  }
-
-  private Matcher getMatcher(String regex, String text)
-  {
-    return compile(regex).matcher(text);
+    Set<String> values = null;
+    
+    for (TodoLineField field : fields)
+    {
+      if (field.getType() != fieldType) { continue; }
+      
+      if (values == null) { values = new HashSet<String>(); }
+      
+      values.add(field.getValue());
+    }
+    
+    return values == null ? Collections.emptySet() : values;
   }
 }
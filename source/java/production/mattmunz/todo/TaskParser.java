@@ -0,0 +1,30 @@
+package mattmunz.todo;
+
+/**
+ * Parses todo.txt lines into tasks, from any number of threads at once. The patterns are compiled
+ * once, and each thread reuses its own matchers for every line it parses, so parsing a line
+ * allocates only what the task keeps. {@link Task#Task(String)} uses the shared instance.
+ */
+public class TaskParser
+{
+  private static final TaskParser instance = new TaskParser();
+  
+  public static TaskParser getInstance() { return instance; }
+  
+  private final ThreadLocal<TaskLineParser.Scratch> scratch
+    = ThreadLocal.withInitial(TaskLineParser.Scratch::new);
+  
+  /**
+   * @param lineText A line of todo.txt text, preceded by its line number and a space
+   */
+  public Task parse(String lineText) { return new Task(createLineParser(lineText)); }
+  
+  /**
+   * The parser must be used up, e.g. by building a task from it, before this thread parses
+   * another line.
+   */
+  TaskLineParser createLineParser(String lineText)
+  {
+    return new TaskLineParser(lineText, scratch.get());
+  }
+}
@@ -56,7 +56,7 @@ public class TaskTableRow
   
   public TaskTableRow(String taskLine) { this(new Task(taskLine)); }
   
-  TaskTableRow(Task task)
+  public TaskTableRow(Task task)
   {
     this(task.getColorCode(), task.getIdentifier(), task.getPriority().orElse(" "), 
          getDayTimeText(task), getContextsText(task), getProjectsText(task), 
@@ -0,0 +1,113 @@
+package mattmunz.todo;
+
+import java.time.LocalDate;
+
+/**
+ * Reads and writes todo.txt dates, yyyy-MM-dd, as epoch days: days since 1970-01-01, the same 
+ * numbers as {@link LocalDate#toEpochDay()}. Parsing is plain arithmetic on the 
+ * characters, with no regex or LocalDate, so that every task line can afford it.
+ */
+public class TodoDate
+{
+  /**
+   * Stands for no date. Less than every real date.
+   */
+  public static final int NONE = Integer.MIN_VALUE;
+  
+  /**
+   * The number of characters in a date.
+   */
+  public static final int LENGTH = 10;
+
+  /**
+   * @return The epoch day of the date at the start index, or {@link #NONE} if there isn't a 
+   *         valid date there
+   */
+  public static int parse(CharSequence text, int start)
+  {
+    if (start < 0 || text.length() - start < LENGTH 
+        || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') 
+    { 
+      return NONE; 
+    }
+    
+    int year = parseDigits(text, start, 4);
+    int month = parseDigits(text, start + 5, 2);
+    int day = parseDigits(text, start + 8, 2);
+    
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > getMonthLength(year, month)) 
+    { 
+      return NONE; 
+    }
+    
+    return toEpochDay(year, month, day);
+  }
+
+  /**
+   * @return The date as yyyy-MM-dd
+   */
+  public static String toText(int epochDay)
+  {
+    if (epochDay == NONE) { throw new IllegalArgumentException("No date"); }
+    
+    // Days from civil, in reverse, counting from 0000-03-01 so that leap days come last
+    int days = epochDay + 719468;
+    int era = (days >= 0 ? days : days - 146096) / 146097;
+    int dayOfEra = days - era * 146097;
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    
+    return String.format("%04d-%02d-%02d", year, month, day);
+  }
+
+  /**
+   * @return Today's epoch day, in the default time zone
+   */
+  public static int today() { return (int) LocalDate.now().toEpochDay(); }
+
+  static int toEpochDay(int year, int month, int day)
+  {
+    int marchYear = month <= 2 ? year - 1 : year;
+    int era = (marchYear >= 0 ? marchYear : marchYear - 399) / 400;
+    int yearOfEra = marchYear - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * @return The value of the digits, or -1 if any character isn't a digit
+   */
+  private static int parseDigits(CharSequence text, int start, int length)
+  {
+    int value = 0;
+    
+    for (int i = start; i < start + length; i++)
+    {
+      char character = text.charAt(i);
+      
+      if (character < '0' || character > '9') { return -1; }
+      
+      value = value * 10 + character - '0';
+    }
+    
+    return value;
+  }
+
+  private static int getMonthLength(int year, int month)
+  {
+    if (month == 2) 
+    { 
+      return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28; 
+    }
+    
+    return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+  }
+  
+  private TodoDate() {}
+}
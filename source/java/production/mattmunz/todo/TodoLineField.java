@@ -2,6 +2,7 @@ package mattmunz.todo;
 
 import static mattmunz.todo.TodoLineFieldType.DAY; 
 import static mattmunz.todo.TodoLineFieldType.TIME_OF_DAY;
+import static mattmunz.todo.TodoLineFieldType.RECURRENCE;
 import static mattmunz.todo.TodoLineFieldType.CONTEXT;
 import static mattmunz.todo.TodoLineFieldType.PROJECT;
 
@@ -11,25 +12,56 @@ import mattmunz.property.PropertiedObject;
 import mattmunz.property.Property;
 import mattmunz.property.PropertyListBuilder;
 
+/**
+ * A field, e.g. day:M, and where it appears in its line. The position is not part of the 
+ * field's identity, so fields are equal if they have the same type and value.
+ */
 class TodoLineField implements PropertiedObject
 {
   private final String value;
   private final TodoLineFieldType type;
+  private final int start;
+  private final int valueStart;
+  private final int end;
+  private final int hashCode;
 
-  TodoLineField(String label, String value)
+  /**
+   * @param start The index of the label in the line
+   */
+  TodoLineField(String label, String value, int start)
   {
     this.value = value;
+    this.start = start;
     type = getType(label);
+    valueStart = start + label.length();
+    end = valueStart + value.length();
+    hashCode = 31 * type.hashCode() + value.hashCode();
   }
 
+  TodoLineField(String label, String value) { this(label, value, 0); }
+
   @Override
   public String toString() { return getToStringText(); }
 
+  /**
+   * Computed once, at construction. Fields are hashed several times each while a line is 
+   * parsed.
+   */
   @Override
-  public int hashCode() { return getHashCode(); }
+  public int hashCode() { return hashCode; }
 
   @Override
-  public boolean equals(Object other) { return isEqualTo(other); }
+  public boolean equals(Object other) 
+  { 
+    if (this == other) { return true; }
+    
+    if (!(other instanceof TodoLineField)) { return false; }
+    
+    TodoLineField otherField = (TodoLineField) other;
+    
+    return hashCode == otherField.hashCode && type == otherField.type 
+           && value.equals(otherField.value);
+  }
 
   @Override
   public List<Property> getProperties()
@@ -40,6 +72,21 @@ class TodoLineField implements PropertiedObject
   TodoLineFieldType getType() { return type; }
 
   String getValue() { return value; }
+
+  /**
+   * @return The index of the label in the line
+   */
+  int getStart() { return start; }
+
+  /**
+   * @return The index of the value in the line
+   */
+  int getValueStart() { return valueStart; }
+
+  /**
+   * @return The index just past the end of the value in the line
+   */
+  int getEnd() { return end; }
   
   private TodoLineFieldType getType(String label)
   {
@@ -48,6 +95,7 @@ class TodoLineField implements PropertiedObject
     {
       case "day:": return DAY;
       case "tod:": return TIME_OF_DAY;
+      case "rec:": return RECURRENCE;
       case "+": return PROJECT;
       case "@": return CONTEXT;
       default: throw new IllegalArgumentException("Unknown field label: " + label);
@@ -1,3 +1,3 @@
 package mattmunz.todo;
 
-enum TodoLineFieldType { DAY, TIME_OF_DAY, PROJECT, CONTEXT }
\ No newline at end of file
+enum TodoLineFieldType { DAY, TIME_OF_DAY, RECURRENCE, PROJECT, CONTEXT }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package mattmunz.todo.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression used for a snapshot, identified by its file name extension.
+ */
+public enum ArchiveFormat 
+{
+  GZIP(".gz")
+  {
+    @Override
+    OutputStream compress(OutputStream output, int level) throws IOException
+    {
+      return new GZIPOutputStream(output) { { def.setLevel(level); } };
+    }
+
+    @Override
+    InputStream decompress(InputStream input) throws IOException 
+    { 
+      return new GZIPInputStream(input); 
+    }
+  },
+  
+  DEFLATE(".deflate")
+  {
+    @Override
+    OutputStream compress(OutputStream output, int level)
+    {
+      return new DeflaterOutputStream(output, new Deflater(level));
+    }
+
+    @Override
+    InputStream decompress(InputStream input) { return new InflaterInputStream(input); }
+  };
+  
+  public static ArchiveFormat forPath(Path snapshot)
+  {
+    String fileName = "" + snapshot.getFileName();
+    
+    for (ArchiveFormat format : values())
+    {
+      if (fileName.endsWith(format.getExtension())) { return format; }
+    }
+    
+    throw new IllegalArgumentException("Not a snapshot: " + snapshot);
+  }
+  
+  private final String extension;
+  
+  private ArchiveFormat(String extension) { this.extension = extension; }
+
+  public String getExtension() { return extension; }
+
+  /**
+   * @param level A {@link Deflater} compression level, 0-9, or -1 for the default.
+   */
+  abstract OutputStream compress(OutputStream output, int level) throws IOException;
+
+  abstract InputStream decompress(InputStream input) throws IOException;
+}
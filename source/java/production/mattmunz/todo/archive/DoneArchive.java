@@ -0,0 +1,237 @@
+package mattmunz.todo.archive;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newBufferedWriter;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.size;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import mattmunz.todo.TodoDate;
+
+/**
+ * A directory of completed tasks, split into one done file (segment) per month of completion, 
+ * e.g. done-2016-03.txt. Completed tasks without a completion date go into done-undated.txt.
+ * 
+ * An index file, done.index, records for each run of tasks completed on the same date the 
+ * segment, byte offset and byte length of the run, one run per line:
+ * 
+ *   2016-03-11 done-2016-03.txt 1024 87
+ *   
+ * Queries by completion date read the (small) index and then only the matching runs.
+ */
+public class DoneArchive
+{
+  private static final String INDEX_FILE_NAME = "done.index";
+  private static final String UNDATED_SEGMENT_NAME = "done-undated.txt";
+  private static final String COLOR_CODE_PREFIX = "\u001B[";
+  
+  /**
+   * @param line A todo.txt line, without a line number
+   * @return The completion date, if the line is a completed task with one
+   */
+  public static Optional<LocalDate> getCompletionDate(String line)
+  {
+    int start = line.startsWith(COLOR_CODE_PREFIX) ? line.indexOf('m') + 1 : 0;
+    
+    if (!line.startsWith("x ", start)) { return Optional.empty(); }
+    
+    int epochDay = TodoDate.parse(line, start + 2);
+    
+    return epochDay == TodoDate.NONE ? Optional.empty() 
+                                     : Optional.of(LocalDate.ofEpochDay(epochDay));
+  }
+  
+  /**
+   * A segment opened for appending, which tracks its length and the current run of tasks with 
+   * the same completion date.
+   */
+  private class SegmentWriter implements AutoCloseable
+  {
+    private final String name;
+    private final OutputStream output;
+    
+    private long length;
+    private Optional<LocalDate> runDate = Optional.empty();
+    private long runOffset;
+    
+    SegmentWriter(String name) throws IOException
+    {
+      this.name = name;
+      
+      Path segment = directory.resolve(name);
+      
+      length = exists(segment) ? size(segment) : 0;
+      output = new BufferedOutputStream(newOutputStream(segment, CREATE, APPEND));
+    }
+    
+    void append(String line, Optional<LocalDate> completionDate) throws IOException
+    {
+      if (!completionDate.equals(runDate))
+      {
+        endRun();
+        
+        runDate = completionDate;
+        runOffset = length;
+      }
+      
+      byte[] bytes = (line + "\n").getBytes(UTF_8);
+      
+      output.write(bytes);
+      length += bytes.length;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      endRun();
+      output.close();
+    }
+
+    private void endRun() throws IOException
+    {
+      if (runDate.isPresent() && length > runOffset)
+      {
+        indexWriter.write("" + runDate.get() + " " + name + " " + runOffset + " " 
+                          + (length - runOffset) + "\n");
+      }
+    }
+  }
+  
+  /**
+   * A run of lines in a segment, as recorded in the index.
+   */
+  private static class IndexEntry
+  {
+    private final LocalDate date;
+    private final String segmentName;
+    private final long offset;
+    private final int length;
+    
+    IndexEntry(String indexLine)
+    {
+      String[] parts = indexLine.split(" ");
+      
+      if (parts.length != 4) 
+      { 
+        throw new IllegalStateException("Invalid index line: [" + indexLine + "]."); 
+      }
+      
+      date = LocalDate.parse(parts[0]);
+      segmentName = parts[1];
+      offset = Long.parseLong(parts[2]);
+      length = Integer.parseInt(parts[3]);
+    }
+  }
+  
+  private final Path directory;
+  private final Map<String, SegmentWriter> segmentWriters = new TreeMap<String, SegmentWriter>();
+  private BufferedWriter indexWriter;
+
+  public DoneArchive(Path directory) { this.directory = directory; }
+
+  /**
+   * Appends a completed task to its segment. Call {@link #flush()} when done appending.
+   */
+  public void append(String line) throws IOException
+  {
+    if (indexWriter == null) 
+    { 
+      createDirectories(directory);
+      indexWriter = newBufferedWriter(directory.resolve(INDEX_FILE_NAME), UTF_8, CREATE, APPEND);
+    }
+    
+    Optional<LocalDate> completionDate = getCompletionDate(line);
+    String segmentName = completionDate.map(this::getSegmentName).orElse(UNDATED_SEGMENT_NAME);
+    
+    SegmentWriter writer = segmentWriters.get(segmentName);
+    
+    if (writer == null)
+    {
+      writer = new SegmentWriter(segmentName);
+      segmentWriters.put(segmentName, writer);
+    }
+    
+    writer.append(line, completionDate);
+  }
+
+  /**
+   * Closes the open segments and writes their index entries.
+   */
+  public void flush() throws IOException
+  {
+    for (SegmentWriter writer : segmentWriters.values()) { writer.close(); }
+    
+    segmentWriters.clear();
+    
+    if (indexWriter != null) 
+    { 
+      indexWriter.close(); 
+      indexWriter = null;
+    }
+  }
+
+  /**
+   * @return The tasks completed between the two dates, inclusive, in the order they were 
+   *         archived within each date.
+   */
+  public List<String> getTasksCompletedBetween(LocalDate from, LocalDate to) throws IOException
+  {
+    List<String> lines = new ArrayList<String>();
+    
+    Path indexFile = directory.resolve(INDEX_FILE_NAME);
+    
+    if (!exists(indexFile)) { return lines; }
+    
+    for (String indexLine : readAllLines(indexFile, UTF_8))
+    {
+      IndexEntry entry = new IndexEntry(indexLine);
+      
+      if (!entry.date.isBefore(from) && !entry.date.isAfter(to)) { lines.addAll(readRun(entry)); }
+    }
+    
+    return lines;
+  }
+
+  private List<String> readRun(IndexEntry entry) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(directory.resolve(entry.segmentName), READ))
+    {
+      ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+      
+      while (buffer.hasRemaining())
+      {
+        if (channel.read(buffer, entry.offset + buffer.position()) < 0) { break; }
+      }
+      
+      String run = new String(buffer.array(), 0, buffer.position(), UTF_8);
+      
+      return Arrays.asList(run.split("\n"));
+    }
+  }
+
+  private String getSegmentName(LocalDate completionDate)
+  {
+    return String.format("done-%04d-%02d.txt", completionDate.getYear(), 
+                         completionDate.getMonthValue());
+  }
+}
@@ -0,0 +1,60 @@
+package mattmunz.todo.archive;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import mattmunz.property.PropertiedObject;
+import mattmunz.property.Property;
+import mattmunz.property.PropertyListBuilder;
+
+/**
+ * Which snapshots to keep: at most a maximum number, none older than a maximum age.
+ */
+public class RetentionPolicy implements PropertiedObject
+{
+  private final int maximumCount;
+  private final Duration maximumAge;
+  
+  public RetentionPolicy(int maximumCount, Duration maximumAge)
+  {
+    if (maximumCount < 1) 
+    { 
+      throw new IllegalArgumentException("At least one snapshot must be kept: " + maximumCount); 
+    }
+    
+    this.maximumCount = maximumCount;
+    this.maximumAge = maximumAge;
+  }
+
+  @Override
+  public String toString() { return getToStringText(); }
+
+  @Override
+  public int hashCode() { return getHashCode(); }
+
+  @Override
+  public boolean equals(Object other) { return isEqualTo(other); }
+
+  @Override
+  public List<Property> getProperties()
+  {
+    return new PropertyListBuilder().add("maximumCount", maximumCount)
+                                    .add("maximumAge", maximumAge).build();
+  }
+  
+  /**
+   * @param snapshotTimes The times the snapshots were taken, newest first.
+   * @return The indexes of the snapshots that should be deleted.
+   */
+  List<Integer> getExpiredIndexes(List<Instant> snapshotTimes, Instant now)
+  {
+    Instant oldestAllowed = now.minus(maximumAge);
+    
+    return IntStream.range(0, snapshotTimes.size())
+                    .filter(i -> i >= maximumCount || snapshotTimes.get(i).isBefore(oldestAllowed))
+                    .boxed().collect(Collectors.toList());
+  }
+}
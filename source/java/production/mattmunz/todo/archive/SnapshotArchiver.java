@@ -0,0 +1,312 @@
+package mattmunz.todo.archive;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createLink;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Arrays.asList;
+import static java.util.logging.Logger.getLogger;
+import static java.util.stream.Collectors.toList;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes compressed snapshots of a file into an archive directory on a background thread, and 
+ * deletes the snapshots that the retention policy no longer keeps.
+ * 
+ * A snapshot is taken by hard linking the file into the archive directory, which is cheap, 
+ * before the file is replaced. The link is compressed into [file name].[time].[extension] and 
+ * deleted later. Where hard links aren't supported the file is copied instead. Snapshots taken 
+ * in the same millisecond are given the following free milliseconds, so each has its own name.
+ * 
+ * Links and partly compressed snapshots left behind when a JVM stopped before writing them are 
+ * found when an archiver is created for the directory: the links are compressed and the partial 
+ * snapshots deleted. Only those over a minute old are touched, so that another archiver's work 
+ * in progress is left alone.
+ * 
+ * Pending snapshots wait in a bounded queue. When the queue is full, the caller compresses the 
+ * snapshot itself, which keeps memory and disk use bounded if snapshots are taken faster than 
+ * they can be written.
+ * 
+ * The background thread is not a daemon, so pending snapshots are written before the JVM exits.
+ */
+public class SnapshotArchiver implements AutoCloseable
+{
+  private static final String STAGING_EXTENSION = ".staging";
+  private static final String PARTIAL_EXTENSION = ".partial";
+  private static final Duration LEFTOVER_AGE = Duration.ofMinutes(1);
+  private static final Logger logger = getLogger(SnapshotArchiver.class.getName());
+
+  /**
+   * Configured with system properties: nexttodo.archive.format (gzip or deflate), 
+   * nexttodo.archive.level (0-9), nexttodo.archive.maximumCount and 
+   * nexttodo.archive.maximumAgeDays.
+   */
+  public static SnapshotArchiver create(Path archiveDirectory) throws IOException
+  {
+    ArchiveFormat format 
+      = ArchiveFormat.valueOf(System.getProperty("nexttodo.archive.format", "gzip").toUpperCase());
+    int level = Integer.getInteger("nexttodo.archive.level", Deflater.DEFAULT_COMPRESSION);
+    int maximumCount = Integer.getInteger("nexttodo.archive.maximumCount", 1000);
+    Duration maximumAge 
+      = Duration.ofDays(Integer.getInteger("nexttodo.archive.maximumAgeDays", 365));
+    
+    return new SnapshotArchiver(archiveDirectory, format, level, 
+                                new RetentionPolicy(maximumCount, maximumAge), 16);
+  }
+  
+  /**
+   * Writes the decompressed contents of a snapshot to the output.
+   */
+  public static void restore(Path snapshot, OutputStream output) throws IOException
+  {
+    try (InputStream input = ArchiveFormat.forPath(snapshot).decompress(newInputStream(snapshot)))
+    {
+      transfer(input, output);
+    }
+  }
+  
+  private static void transfer(InputStream input, OutputStream output) throws IOException
+  {
+    byte[] buffer = new byte[8192];
+    
+    int count;
+    
+    while ((count = input.read(buffer)) != -1) { output.write(buffer, 0, count); }
+  }
+  
+  private final Path archiveDirectory;
+  private final ArchiveFormat format;
+  private final int level;
+  private final RetentionPolicy retentionPolicy;
+  private final ThreadPoolExecutor executor;
+  
+  private long lastSnapshotTime;
+
+  public SnapshotArchiver(Path archiveDirectory, ArchiveFormat format, int level, 
+                          RetentionPolicy retentionPolicy, int queueCapacity) throws IOException
+  {
+    this.archiveDirectory = archiveDirectory;
+    this.format = format;
+    this.level = level;
+    this.retentionPolicy = retentionPolicy;
+    
+    createDirectories(archiveDirectory);
+    
+    executor 
+      = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+                               new ArrayBlockingQueue<Runnable>(queueCapacity), 
+                               new ThreadPoolExecutor.CallerRunsPolicy());
+    
+    recoverLeftovers();
+  }
+
+  /**
+   * Takes a snapshot of the file as it is now, to be compressed in the background. The file may 
+   * be replaced (not modified in place) as soon as this returns.
+   */
+  public synchronized void takeSnapshot(Path file) throws IOException
+  {
+    long snapshotTime = Math.max(currentTimeMillis(), lastSnapshotTime + 1);
+    
+    while (!stage(file, getSnapshotName(file, snapshotTime))) { snapshotTime++; }
+    
+    lastSnapshotTime = snapshotTime;
+    
+    String snapshotName = getSnapshotName(file, snapshotTime);
+    Path stagedFile = archiveDirectory.resolve(snapshotName + STAGING_EXTENSION);
+    
+    executor.execute(() -> { compress(stagedFile, snapshotName, "" + file.getFileName()); });
+  }
+  
+  private String getSnapshotName(Path file, long snapshotTime)
+  {
+    return "" + file.getFileName() + "." + snapshotTime;
+  }
+  
+  /**
+   * @return false if the name is already taken, by a snapshot or by a staged file
+   */
+  private boolean stage(Path file, String snapshotName) throws IOException
+  {
+    Path stagedFile = archiveDirectory.resolve(snapshotName + STAGING_EXTENSION);
+    
+    if (exists(archiveDirectory.resolve(snapshotName + format.getExtension()))) { return false; }
+    
+    try { createLink(stagedFile, file); }
+    catch (FileAlreadyExistsException exception) { return false; }
+    catch (IOException | UnsupportedOperationException exception) 
+    { 
+      try { copy(file, stagedFile); }
+      catch (FileAlreadyExistsException copyException) { return false; }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * Compresses staged files, and deletes partial snapshots, left by an archiver which stopped.
+   */
+  private void recoverLeftovers() throws IOException
+  {
+    Instant oldestInProgress = Instant.now().minus(LEFTOVER_AGE);
+    List<Path> leftovers;
+    
+    try (Stream<Path> files = Files.list(archiveDirectory))
+    {
+      leftovers 
+        = files.filter(file -> getLeftoverName(file).map(this::getNamedTime)
+                                                    .filter(time -> time.isBefore(oldestInProgress))
+                                                    .isPresent())
+               .collect(toList());
+    }
+    
+    for (Path leftover : leftovers)
+    {
+      String snapshotName = getLeftoverName(leftover).get();
+      
+      if (("" + leftover.getFileName()).endsWith(PARTIAL_EXTENSION)) { deleteIfExists(leftover); }
+      else
+      {
+        String fileName = snapshotName.substring(0, snapshotName.lastIndexOf('.'));
+        
+        executor.execute(() -> { compress(leftover, snapshotName, fileName); });
+      }
+    }
+  }
+  
+  /**
+   * @return The snapshot name, [file name].[time], if the file is a staged file or a partial 
+   *         snapshot
+   */
+  private Optional<String> getLeftoverName(Path file)
+  {
+    String name = "" + file.getFileName();
+    
+    for (String extension : asList(STAGING_EXTENSION, PARTIAL_EXTENSION))
+    {
+      if (name.endsWith(extension))
+      {
+        String snapshotName = name.substring(0, name.length() - extension.length());
+        
+        if (snapshotName.matches(".+\\.\\d+")) { return Optional.of(snapshotName); }
+      }
+    }
+    
+    return Optional.empty();
+  }
+
+  /**
+   * Returns immediately. Pending snapshots are still written.
+   */
+  @Override
+  public void close() { executor.shutdown(); }
+
+  /**
+   * Waits for pending snapshots to be written.
+   */
+  public void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    executor.shutdown();
+    executor.awaitTermination(timeout, unit);
+  }
+
+  private void compress(Path stagedFile, String snapshotName, String fileName)
+  {
+    Path snapshot = archiveDirectory.resolve(snapshotName + format.getExtension());
+    Path partialSnapshot = archiveDirectory.resolve(snapshotName + PARTIAL_EXTENSION);
+    
+    try
+    {
+      try (InputStream input = newInputStream(stagedFile);
+           OutputStream output 
+             = format.compress(new BufferedOutputStream(newOutputStream(partialSnapshot)), level))
+      {
+        transfer(input, output);
+      }
+      
+      move(partialSnapshot, snapshot, ATOMIC_MOVE);
+      deleteIfExists(stagedFile);
+      
+      deleteExpiredSnapshots(fileName);
+    }
+    catch (IOException exception)
+    {
+      logger.log(Level.SEVERE, "Couldn't archive snapshot: " + stagedFile, exception);
+    }
+  }
+
+  private void deleteExpiredSnapshots(String fileName) throws IOException
+  {
+    List<Path> snapshots;
+    
+    try (Stream<Path> files = Files.list(archiveDirectory))
+    {
+      snapshots 
+        = files.filter(file -> isSnapshot(file, fileName))
+               .sorted(Comparator.comparing(this::getSnapshotTime).reversed()).collect(toList());
+    }
+    
+    List<Instant> snapshotTimes = snapshots.stream().map(this::getSnapshotTime).collect(toList());
+    
+    for (int index : retentionPolicy.getExpiredIndexes(snapshotTimes, Instant.now()))
+    {
+      deleteIfExists(snapshots.get(index));
+    }
+  }
+
+  private boolean isSnapshot(Path file, String fileName)
+  {
+    String name = "" + file.getFileName();
+    
+    return name.startsWith(fileName + ".") && name.endsWith(format.getExtension()) 
+           && name.length() > fileName.length() + 1 + format.getExtension().length()
+           && getTimeText(name, fileName).matches("\\d+");
+  }
+
+  private Instant getSnapshotTime(Path snapshot)
+  {
+    String name = "" + snapshot.getFileName();
+    
+    return getNamedTime(name.substring(0, name.length() - format.getExtension().length()));
+  }
+  
+  /**
+   * @param snapshotName [file name].[time]
+   */
+  private Instant getNamedTime(String snapshotName)
+  {
+    String timeText = snapshotName.substring(snapshotName.lastIndexOf('.') + 1);
+    
+    return Instant.ofEpochMilli(Long.parseLong(timeText));
+  }
+
+  private String getTimeText(String name, String fileName)
+  {
+    return name.substring(fileName.length() + 1, name.length() - format.getExtension().length());
+  }
+}
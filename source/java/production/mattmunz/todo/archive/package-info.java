@@ -0,0 +1,4 @@
+/**
+ * Compressed snapshots of todo.txt files, written in the background.
+ */
+package mattmunz.todo.archive;
@@ -0,0 +1,43 @@
+package mattmunz.todo.cli;
+
+import static java.nio.file.Files.newOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+
+import mattmunz.todo.archive.SnapshotArchiver;
+
+/**
+ * Writes the contents of an archived snapshot to a file, or to standard output.
+ * 
+ * Usage: ArchiveRestorer SNAPSHOT [OUTPUT_FILE]
+ */
+public class ArchiveRestorer
+{
+  public static void main(String[] arguments) throws IOException
+  {
+    if (arguments.length < 1 || arguments.length > 2)
+    {
+      throw new IllegalArgumentException("Usage: ArchiveRestorer SNAPSHOT [OUTPUT_FILE]");
+    }
+    
+    Path snapshot = FileSystems.getDefault().getPath(arguments[0]);
+    
+    if (arguments.length == 1) 
+    { 
+      SnapshotArchiver.restore(snapshot, System.out); 
+      System.out.flush();
+      return;
+    }
+    
+    Path outputFile = FileSystems.getDefault().getPath(arguments[1]);
+    
+    try (OutputStream output = new BufferedOutputStream(newOutputStream(outputFile)))
+    {
+      SnapshotArchiver.restore(snapshot, output);
+    }
+  }
+}
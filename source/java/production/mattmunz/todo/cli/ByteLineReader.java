@@ -0,0 +1,191 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Reads lines of bytes, one at a time, into a reused buffer, so that lines which only need to be 
+ * copied are never decoded into strings. Memory use depends on the longest line, not on the 
+ * number of lines.
+ * 
+ * Lines may end with \n, \r\n or \r. The terminator is kept so that it can be copied as is.
+ */
+class ByteLineReader
+{
+  private static final byte[] LINE_FEED = { '\n' };
+  private static final byte[] CARRIAGE_RETURN = { '\r' };
+  private static final byte[] CARRIAGE_RETURN_LINE_FEED = { '\r', '\n' };
+  private static final byte[] NO_TERMINATOR = {};
+  
+  private final InputStream input;
+  
+  private byte[] line = new byte[256];
+  private int length;
+  private byte[] terminator = NO_TERMINATOR;
+  
+  ByteLineReader(InputStream input) { this.input = new BufferedInputStream(input); }
+
+  /**
+   * @return false if there are no more lines
+   */
+  boolean next() throws IOException
+  {
+    length = 0;
+    
+    int nextByte;
+    
+    while ((nextByte = input.read()) != -1)
+    {
+      if (nextByte == '\n') 
+      { 
+        terminator = LINE_FEED;
+        return true; 
+      }
+      
+      if (nextByte == '\r')
+      {
+        input.mark(1);
+        
+        if (input.read() == '\n') { terminator = CARRIAGE_RETURN_LINE_FEED; }
+        else
+        {
+          input.reset();
+          terminator = CARRIAGE_RETURN;
+        }
+        
+        return true;
+      }
+      
+      append((byte) nextByte);
+    }
+    
+    terminator = NO_TERMINATOR;
+    
+    return length > 0;
+  }
+
+  String getText() { return new String(line, 0, length, UTF_8); }
+  
+  /**
+   * @return The length of the line in bytes, without its terminator
+   */
+  int getLength() { return length; }
+  
+  /**
+   * @return The number of bytes read for the line, including its terminator
+   */
+  int getByteCount() { return length + terminator.length; }
+  
+  /**
+   * @return A 64 bit FNV-1a hash of the line's bytes, without its terminator, computed without 
+   *         decoding it
+   */
+  long getFingerprint()
+  {
+    long fingerprint = 0xcbf29ce484222325L;
+    
+    for (int i = 0; i < length; i++)
+    {
+      fingerprint = (fingerprint ^ (line[i] & 0xFF)) * 0x100000001b3L;
+    }
+    
+    return fingerprint;
+  }
+  
+  /**
+   * @return true if the line, without its terminator, contains the bytes
+   */
+  boolean contains(byte[] bytes) { return contains(bytes, false); }
+  
+  /**
+   * @param lowerCaseBytes Bytes without ASCII upper case letters
+   * @return true if the line, without its terminator, contains the bytes, with its ASCII upper 
+   *         case letters taken as lower case
+   */
+  boolean containsIgnoringCase(byte[] lowerCaseBytes) { return contains(lowerCaseBytes, true); }
+  
+  /**
+   * @return true if every byte of the line is ASCII
+   */
+  boolean isAscii()
+  {
+    for (int i = 0; i < length; i++)
+    {
+      if (line[i] < 0) { return false; }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * @return true if the line is empty or contains only ASCII whitespace
+   */
+  boolean isBlank()
+  {
+    for (int i = 0; i < length; i++)
+    {
+      if ((line[i] & 0xFF) > ' ') { return false; }
+    }
+    
+    return true;
+  }
+
+  private boolean contains(byte[] bytes, boolean isIgnoringCase)
+  {
+    if (bytes.length == 0) { return true; }
+    
+    byte first = bytes[0];
+    int last = length - bytes.length;
+    
+    for (int i = 0; i <= last; i++)
+    {
+      if (getByte(i, isIgnoringCase) != first) { continue; }
+      
+      int j = 1;
+      
+      while (j < bytes.length && getByte(i + j, isIgnoringCase) == bytes[j]) { j++; }
+      
+      if (j == bytes.length) { return true; }
+    }
+    
+    return false;
+  }
+  
+  private byte getByte(int index, boolean isIgnoringCase)
+  {
+    byte lineByte = line[index];
+    
+    return isIgnoringCase && lineByte >= 'A' && lineByte <= 'Z' ? (byte) (lineByte + 'a' - 'A') 
+                                                                 : lineByte;
+  }
+
+  /**
+   * Writes the line, and its terminator, exactly as read.
+   */
+  void copyTo(OutputStream output) throws IOException
+  {
+    output.write(line, 0, length);
+    output.write(terminator);
+  }
+
+  /**
+   * Writes the given text in place of the line, followed by the line's original terminator.
+   */
+  void replaceTo(String text, OutputStream output) throws IOException
+  {
+    output.write(text.getBytes(UTF_8));
+    output.write(terminator);
+  }
+
+  private void append(byte nextByte)
+  {
+    if (length == line.length) { line = Arrays.copyOf(line, length * 2); }
+    
+    line[length++] = nextByte;
+  }
+}
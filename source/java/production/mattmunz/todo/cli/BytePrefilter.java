@@ -0,0 +1,67 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A quick test on a line's raw bytes which rejects lines that can't match a {@link TaskSelector}
+ * and search words, so that only the other lines are decoded and parsed. Lines which pass still
+ * need the exact check.
+ * 
+ * A line passes if it contains every needle: the term itself for @context, +project and (P)
+ * terms, "day:" or "tod:" for day and time of day terms, since those values can be written more
+ * than one way, and each word. Other terms, e.g. x and dates, add no needle.
+ * 
+ * Words match ignoring case, as the exact check does. Case is only folded for ASCII letters, so 
+ * words which aren't ASCII add no needle, and lines which aren't ASCII pass the words.
+ */
+class BytePrefilter
+{
+  private final List<byte[]> needles = new ArrayList<byte[]>();
+  private final List<byte[]> wordNeedles = new ArrayList<byte[]>();
+  
+  BytePrefilter(List<String> terms, List<String> words)
+  {
+    for (String term : terms)
+    {
+      if (term.startsWith("@") || term.startsWith("+") || term.matches("\\(\\p{Upper}\\)"))
+      {
+        addNeedle(term);
+      }
+      else if (term.startsWith("day:") || term.startsWith("tod:"))
+      {
+        addNeedle(term.substring(0, 4));
+      }
+    }
+    
+    for (String word : words)
+    {
+      String lowerCaseWord = word.toLowerCase();
+      
+      if (isAscii(lowerCaseWord)) { wordNeedles.add(lowerCaseWord.getBytes(UTF_8)); }
+    }
+  }
+  
+  boolean test(ByteLineReader lineReader)
+  {
+    for (byte[] needle : needles)
+    {
+      if (!lineReader.contains(needle)) { return false; }
+    }
+    
+    if (wordNeedles.isEmpty() || !lineReader.isAscii()) { return true; }
+    
+    for (byte[] wordNeedle : wordNeedles)
+    {
+      if (!lineReader.containsIgnoringCase(wordNeedle)) { return false; }
+    }
+    
+    return true;
+  }
+  
+  private void addNeedle(String needle) { needles.add(needle.getBytes(UTF_8)); }
+  
+  private boolean isAscii(String text) { return text.chars().allMatch(c -> c < 0x80); }
+}
@@ -0,0 +1,189 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.TextStyle.NARROW;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Locale;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.store.ColumnarTaskStore;
+import mattmunz.todo.store.TaskRowView;
+
+/**
+ * Writes rows of a {@link ColumnarTaskStore} as the same padded table as 
+ * {@link ListDisplayFilter}, without creating objects per row. Contexts and projects are 
+ * listed in sorted order.
+ */
+class ColumnarTableWriter
+{
+  private static final byte[] COLOR_RESET_TOKEN = "\u001B[0m".getBytes(UTF_8);
+  private static final byte[] LIST_SEPARATOR = ", ".getBytes(UTF_8);
+  private static final int COLUMN_COUNT = 6;
+  
+  private final ColumnarTaskStore store;
+  private final List<String> headerCells;
+  
+  /**
+   * Day and time of day cells, and their widths as {@link ListDisplayFilter} counts them, indexed 
+   * by day value and time of day value (see {@link TaskRowView}).
+   */
+  private final byte[][][] dayTimeCells;
+  private final int[][] dayTimeWidths;
+  
+  ColumnarTableWriter(ColumnarTaskStore store, List<String> headerCells)
+  {
+    if (headerCells.size() != COLUMN_COUNT) 
+    { 
+      throw new IllegalArgumentException("Wrong number of header cells: " + headerCells); 
+    }
+    
+    this.store = store;
+    this.headerCells = headerCells;
+    
+    String[][] dayTimeTexts = createDayTimeTexts();
+    
+    dayTimeCells = new byte[dayTimeTexts.length][][];
+    dayTimeWidths = new int[dayTimeTexts.length][];
+    
+    for (int dayValue = 0; dayValue < dayTimeTexts.length; dayValue++)
+    {
+      dayTimeCells[dayValue] = new byte[dayTimeTexts[dayValue].length][];
+      dayTimeWidths[dayValue] = new int[dayTimeTexts[dayValue].length];
+      
+      for (int timeOfDayValue = 0; timeOfDayValue < dayTimeTexts[dayValue].length; 
+           timeOfDayValue++)
+      {
+        String text = dayTimeTexts[dayValue][timeOfDayValue];
+        
+        dayTimeCells[dayValue][timeOfDayValue] = text.getBytes(UTF_8);
+        dayTimeWidths[dayValue][timeOfDayValue] = text.length();
+      }
+    }
+  }
+
+  /**
+   * @param rows The rows to write, in order
+   */
+  void write(int[] rows, OutputStream output) throws IOException
+  {
+    int[] widths = getWidths(rows);
+    
+    for (int column = 0; column < COLUMN_COUNT; column++)
+    {
+      String cell = headerCells.get(column);
+      
+      writeCell(cell.getBytes(UTF_8), cell.length(), widths, column, output);
+    }
+    
+    output.write(COLOR_RESET_TOKEN);
+    output.write('\n');
+    
+    TaskRowView view = store.getView();
+    
+    for (int row : rows) { writeRow(view.moveTo(row), widths, output); }
+    
+    output.flush();
+  }
+
+  private void writeRow(TaskRowView view, int[] widths, OutputStream output) throws IOException
+  {
+    view.writeColorCode(output);
+    
+    view.writeIdentifier(output);
+    writeSeparator(view.getIdentifierWidth(), widths, 0, output);
+    
+    output.write(view.getPriority() == 0 ? ' ' : view.getPriority());
+    writeSeparator(1, widths, 1, output);
+    
+    writeCell(dayTimeCells[view.getDayValue()][view.getTimeOfDayValue()], 
+              dayTimeWidths[view.getDayValue()][view.getTimeOfDayValue()], widths, 2, output);
+    
+    view.writeContexts(LIST_SEPARATOR, output);
+    writeSeparator(view.getContextsWidth(LIST_SEPARATOR.length), widths, 3, output);
+    
+    view.writeProjects(LIST_SEPARATOR, output);
+    writeSeparator(view.getProjectsWidth(LIST_SEPARATOR.length), widths, 4, output);
+    
+    view.writeMessage(output);
+    writeSeparator(view.getMessageWidth(), widths, 5, output);
+    
+    output.write(COLOR_RESET_TOKEN);
+    output.write('\n');
+  }
+
+  private int[] getWidths(int[] rows)
+  {
+    int[] widths = new int[COLUMN_COUNT];
+    
+    for (int column = 0; column < COLUMN_COUNT; column++) 
+    { 
+      widths[column] = headerCells.get(column).length(); 
+    }
+    
+    TaskRowView view = store.getView();
+    
+    for (int row : rows)
+    {
+      view.moveTo(row);
+      
+      widths[0] = Math.max(widths[0], view.getIdentifierWidth());
+      widths[1] = Math.max(widths[1], 1);
+      widths[2] = Math.max(widths[2], 
+                           dayTimeWidths[view.getDayValue()][view.getTimeOfDayValue()]);
+      widths[3] = Math.max(widths[3], view.getContextsWidth(LIST_SEPARATOR.length));
+      widths[4] = Math.max(widths[4], view.getProjectsWidth(LIST_SEPARATOR.length));
+      widths[5] = Math.max(widths[5], view.getMessageWidth());
+    }
+    
+    return widths;
+  }
+
+  private void writeCell(byte[] cell, int cellWidth, int[] widths, int column, OutputStream output) 
+    throws IOException
+  {
+    output.write(cell);
+    writeSeparator(cellWidth, widths, column, output);
+  }
+
+  /**
+   * Writes the padding after a cell, and the space between it and the next cell.
+   */
+  private void writeSeparator(int cellWidth, int[] widths, int column, OutputStream output) 
+    throws IOException
+  {
+    for (int i = cellWidth; i < widths[column]; i++) { output.write(' '); }
+    
+    if (column < COLUMN_COUNT - 1) { output.write(' '); }
+  }
+
+  private String[][] createDayTimeTexts()
+  {
+    TimeOfDay[] timesOfDay = TimeOfDay.values();
+    
+    String[][] cells = new String[DayOfWeek.values().length + 1][timesOfDay.length + 1];
+    
+    for (int timeOfDayValue = 0; timeOfDayValue <= timesOfDay.length; timeOfDayValue++)
+    {
+      cells[0][timeOfDayValue] = " ";
+    }
+    
+    for (DayOfWeek day : DayOfWeek.values())
+    {
+      String dayText = day.getDisplayName(NARROW, Locale.getDefault());
+      
+      cells[day.getValue()][0] = dayText;
+      
+      for (TimeOfDay timeOfDay : timesOfDay)
+      {
+        cells[day.getValue()][timeOfDay.ordinal() + 1] 
+          = dayText + ":" + timeOfDay.getIdentifier();
+      }
+    }
+    
+    return cells;
+  }
+}
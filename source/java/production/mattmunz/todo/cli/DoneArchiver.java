@@ -0,0 +1,143 @@
+package mattmunz.todo.cli;
+
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import mattmunz.todo.Task;
+import mattmunz.todo.archive.DoneArchive;
+import mattmunz.todo.archive.SnapshotArchiver;
+
+/**
+ * Moves completed tasks out of a todo.txt file into a {@link DoneArchive}, and queries the 
+ * archive by completion date.
+ * 
+ * Usage: 
+ *   DoneArchiver archive TODO_FILE
+ *   DoneArchiver query TODO_FILE FROM_DATE TO_DATE
+ *   
+ * The archive is the done directory next to the todo file. Dates are yyyy-MM-dd, inclusive.
+ */
+public class DoneArchiver
+{
+  private static final String USAGE 
+    = "Usage: DoneArchiver archive TODO_FILE | DoneArchiver query TODO_FILE FROM_DATE TO_DATE";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    if (arguments.length < 2) { throw new IllegalArgumentException(USAGE); }
+    
+    DoneArchiver archiver = new DoneArchiver(FileSystems.getDefault().getPath(arguments[1]));
+    
+    if (arguments[0].equals("archive") && arguments.length == 2) { archiver.archive(); }
+    else if (arguments[0].equals("query") && arguments.length == 4)
+    {
+      archiver.query(LocalDate.parse(arguments[2]), LocalDate.parse(arguments[3]));
+    }
+    else { throw new IllegalArgumentException(USAGE); }
+  }
+  
+  private final Path todoTxtFile;
+  private final DoneArchive doneArchive;
+  
+  private DoneArchiver(Path todoTxtFile)
+  {
+    if (!exists(todoTxtFile)) 
+    {
+      throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile); 
+    }
+    
+    this.todoTxtFile = todoTxtFile.toAbsolutePath();
+    
+    doneArchive = new DoneArchive(this.todoTxtFile.getParent().resolve("done"));
+  }
+
+  /**
+   * Streams the todo file, copying completed tasks into a staging file and all other lines into 
+   * a new todo file, as raw bytes. Only once every line has been read, and the new todo file has 
+   * replaced the original, are the staged tasks appended to the done archive, so that a line 
+   * which can't be parsed leaves both the todo file and the archive unchanged.
+   */
+  private void archive() throws IOException
+  {
+    Path directory = todoTxtFile.getParent();
+    Path newTodoTxtFile = createTempFile(directory, "" + todoTxtFile.getFileName(), ".new");
+    Path doneLinesFile = createTempFile(directory, "" + todoTxtFile.getFileName(), ".done");
+    
+    int archivedCount = 0;
+    
+    try
+    {
+      try (InputStream input = newInputStream(todoTxtFile);
+           OutputStream output = new BufferedOutputStream(newOutputStream(newTodoTxtFile));
+           OutputStream doneOutput = new BufferedOutputStream(newOutputStream(doneLinesFile)))
+      {
+        ByteLineReader lineReader = new ByteLineReader(input);
+        
+        while (lineReader.next())
+        {
+          if (lineReader.isBlank() || !isCompleted(lineReader.getText())) 
+          { 
+            lineReader.copyTo(output); 
+            continue;
+          }
+          
+          lineReader.copyTo(doneOutput);
+          archivedCount++;
+        }
+      }
+      
+      try (SnapshotArchiver archiver = SnapshotArchiver.create(directory.resolve("archive")))
+      {
+        archiver.takeSnapshot(todoTxtFile);
+        
+        move(newTodoTxtFile, todoTxtFile, REPLACE_EXISTING, ATOMIC_MOVE);
+      }
+      
+      try (InputStream doneInput = newInputStream(doneLinesFile))
+      {
+        ByteLineReader doneLineReader = new ByteLineReader(doneInput);
+        
+        while (doneLineReader.next()) { doneArchive.append(doneLineReader.getText()); }
+      }
+      finally { doneArchive.flush(); }
+    }
+    finally 
+    { 
+      deleteIfExists(newTodoTxtFile);
+      deleteIfExists(doneLinesFile);
+    }
+    
+    System.out.println("" + archivedCount + " completed task(s) were archived.");
+  }
+
+  /**
+   * Only lines that may be completed, i.e. start with x, after any color code, are parsed.
+   */
+  private boolean isCompleted(String line)
+  {
+    int start = line.startsWith("\u001B[") ? line.indexOf('m') + 1 : 0;
+    
+    if (!line.startsWith("x ", start)) { return false; }
+    
+    return new Task(Task.addIdentifier("1", line)).isCompleted();
+  }
+
+  private void query(LocalDate from, LocalDate to) throws IOException
+  {
+    doneArchive.getTasksCompletedBetween(from, to).forEach(System.out::println);
+  }
+}
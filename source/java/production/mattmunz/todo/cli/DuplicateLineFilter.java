@@ -0,0 +1,42 @@
+package mattmunz.todo.cli;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import mattmunz.todo.Task;
+
+/**
+ * Accepts only the first task seen with any given line text. Line numbers are ignored, so two
+ * identical lines at different positions in the file are duplicates.
+ * 
+ * Uses the hash code cached by each task, so no text is copied or rehashed.
+ */
+class DuplicateLineFilter implements Predicate<Task>
+{
+  /**
+   * Wraps a task so that only its content is used for hashing and equality.
+   */
+  private static class TaskContent
+  {
+    private final Task task;
+    
+    TaskContent(Task task) { this.task = task; }
+    
+    @Override
+    public int hashCode() { return task.getContentHashCode(); }
+    
+    @Override
+    public boolean equals(Object other)
+    {
+      return other instanceof TaskContent && task.hasSameContent(((TaskContent) other).task);
+    }
+  }
+  
+  static final String FLAG = "-u";
+  
+  private final Set<TaskContent> seenContents = new HashSet<TaskContent>();
+
+  @Override
+  public boolean test(Task task) { return seenContents.add(new TaskContent(task)); }
+}
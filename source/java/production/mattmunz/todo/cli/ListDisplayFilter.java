@@ -1,28 +1,72 @@
 package mattmunz.todo.cli;
 
 import static java.util.Arrays.asList; 
+import static java.util.Collections.emptyList;
 import static java.util.stream.Stream.concat;
 import static java.util.stream.Collectors.toList;
 import static com.google.common.base.Strings.repeat;
+import static mattmunz.time.DayHelper.today;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import mattmunz.lang.SystemHelper;
+import mattmunz.todo.Task;
 import mattmunz.todo.TaskTableRow;
+import mattmunz.todo.store.ColumnarTaskStore;
 
+/**
+ * Displays todo.txt lines read from standard input as a table. The -u flag removes duplicate 
+ * lines, ignoring line numbers. The -r flag replaces recurring tasks with their occurrences in 
+ * the coming week. The -c flag keeps the tasks in an off-heap {@link ColumnarTaskStore}, for 
+ * very large lists.
+ * 
+ * Any other arguments are {@link TaskSelector} query terms, e.g. @Home or day:M, or words which 
+ * must occur in the task's message, ignoring case as in {@link TaskSearcher}. Only tasks 
+ * matching all of them are displayed. They are applied to the lines as read, before -r. Lines 
+ * are first checked with a {@link BytePrefilter}, so only those which might match are parsed.
+ */
 public class ListDisplayFilter
 {
   private static final String COLOR_RESET_TOKEN = "\u001B[0m";
   
   public static void main(String[] arguments) 
   { 
-    new ListDisplayFilter().filterSystemInput();
+    List<String> flags = asList(arguments);
+    List<String> terms = new ArrayList<String>();
+    List<String> words = new ArrayList<String>();
+    
+    for (String argument : arguments)
+    {
+      if (argument.startsWith("-")) { continue; }
+      
+      (TaskSelector.isSelectorTerm(argument) ? terms : words).add(argument);
+    }
+    
+    new ListDisplayFilter(new TaskSelector(terms), words)
+      .filterSystemInput(flags.contains(DuplicateLineFilter.FLAG), 
+                         flags.contains(RecurrenceExpander.FLAG), 
+                         flags.contains(Sorter.COLUMNAR_FLAG));
   }
 
+  private final TaskSelector selector;
+  private final List<String> words;
+  
+  ListDisplayFilter(TaskSelector selector, List<String> words) 
+  { 
+    this.selector = selector;
+    this.words = words.stream().map(String::toLowerCase).collect(toList());
+  }
+  
+  public ListDisplayFilter() { this(new TaskSelector(), emptyList()); }
+
   public String addPadding(String cell, int minimumWidth)
   {
     return cell + getPadding(cell, minimumWidth);
@@ -34,22 +78,87 @@ public class ListDisplayFilter
     return cellWidth >= minimumWidth ? "" : repeat(" ", minimumWidth - cellWidth);
   }
 
-  private void filterSystemInput()
+  private void filterSystemInput(boolean removeDuplicates, boolean expandRecurrences, 
+                                 boolean isColumnar)
   {
-    TaskTableRow headerRow 
-      = new TaskTableRow(Optional.empty(), "#", "P", "D/T", "Contexts", "Projects", 
-                         "Message");
+    Stream<Task> tasks = selector.isEmpty() && words.isEmpty() 
+                           ? new SystemHelper().readLinesFromSystemIn(1000000).map(Task::new)
+                           : readMatchingTasks(System.in).stream();
+    
+    if (removeDuplicates) { tasks = tasks.filter(new DuplicateLineFilter()); }
+    
+    if (expandRecurrences) { tasks = new RecurrenceExpander(today()).expand(tasks); }
+    
+    if (isColumnar) 
+    { 
+      writeColumnar(tasks);
+      return;
+    }
     
-    Stream<TaskTableRow> taskRows 
-      = new SystemHelper().readLinesFromSystemIn(1000000).map(TaskTableRow::new);
+    Stream<TaskTableRow> taskRows = tasks.map(TaskTableRow::new);
   
-    List<TaskTableRow> rows = concat(asList(headerRow).stream(), taskRows).collect(toList());
+    List<TaskTableRow> rows = concat(asList(getHeaderRow()).stream(), taskRows).collect(toList());
     
+    getRowTexts(rows).forEach(System.out::println);
+  }
+
+  /**
+   * Lines the prefilter rejects are never decoded.
+   */
+  List<Task> readMatchingTasks(InputStream input)
+  {
+    BytePrefilter prefilter = new BytePrefilter(selector.getTerms(), words);
+    ByteLineReader lineReader = new ByteLineReader(input);
+    List<Task> tasks = new ArrayList<Task>();
+    
+    try
+    {
+      while (lineReader.next())
+      {
+        if (lineReader.isBlank() || !prefilter.test(lineReader)) { continue; }
+        
+        Task task = new Task(lineReader.getText());
+        String message = task.getMessage().toLowerCase();
+        
+        if ((selector.isEmpty() || selector.test(task)) 
+            && words.stream().allMatch(message::contains))
+        {
+          tasks.add(task);
+        }
+      }
+    }
+    catch (IOException exception) { throw new UncheckedIOException(exception); }
+    
+    return tasks;
+  }
+
+  private void writeColumnar(Stream<Task> tasks)
+  {
+    ColumnarTaskStore store = new ColumnarTaskStore();
+    
+    tasks.forEach(store::add);
+    
+    int[] rows = IntStream.range(0, store.size()).toArray();
+    
+    try { new ColumnarTableWriter(store, getHeaderRow().getCells()).write(rows, System.out); }
+    catch (IOException exception) { throw new UncheckedIOException(exception); }
+  }
+
+  TaskTableRow getHeaderRow()
+  {
+    return new TaskTableRow(Optional.empty(), "#", "P", "D/T", "Contexts", "Projects", "Message");
+  }
+
+  /**
+   * @return The rows as lines of text, with each column padded to the width of its widest cell.
+   */
+  List<String> getRowTexts(List<TaskTableRow> rows)
+  {
     List<Integer> minimumWidths = asList(0, 0, 0, 0, 0, 0);
     rows.stream().forEach(row -> { updateMinimumWidths(minimumWidths, row); });
     
-    rows.stream().map(row -> { return addPadding(minimumWidths, row); })
-                 .forEach(this::printRow);
+    return rows.stream().map(row -> { return addPadding(minimumWidths, row); })
+                        .map(this::getRowText).collect(toList());
   }
 
   // TODO This is inefficient (in iteration)
@@ -100,10 +209,9 @@ public class ListDisplayFilter
     }
   }
 
-  private void printRow(TaskTableRow row)
+  private String getRowText(TaskTableRow row)
   {
-    System.out.println(row.getColorCode().orElse("") 
-                       + row.getCells().stream().collect(Collectors.joining(" ")) 
-                       + COLOR_RESET_TOKEN);
+    return row.getColorCode().orElse("") + row.getCells().stream().collect(Collectors.joining(" ")) 
+           + COLOR_RESET_TOKEN;
   }
 }
@@ -0,0 +1,194 @@
+package mattmunz.todo.cli;
+
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mattmunz.todo.Task;
+import mattmunz.todo.TaskTableRow;
+
+/**
+ * A live version of {@link ListDisplayFilter}: displays a todo.txt file as a table, and updates 
+ * the display whenever the file changes.
+ * 
+ * Usage: ListWatcher TODO_FILE
+ * 
+ * The file's directory is registered with a {@link WatchService}, so no CPU is used while the 
+ * file is unchanged. Bursts of change events, e.g. from an editor's save, are coalesced into a 
+ * single refresh. On each refresh only lines whose text is new are parsed, and only the rows of 
+ * the display whose text changed are redrawn. A change in a column's width changes the text of 
+ * every row, so those are redrawn as well. If the file can't be read or parsed, e.g. while it's 
+ * being replaced or half-edited, the error is shown below the table and watching goes on.
+ */
+public class ListWatcher
+{
+  private static final long DEBOUNCE_MILLIS = 50;
+  private static final String CLEAR_SCREEN = "\u001B[2J\u001B[H";
+  private static final String CLEAR_LINE = "\u001B[2K";
+  
+  public static void main(String[] arguments) throws IOException, InterruptedException
+  {
+    if (arguments.length != 1) 
+    { 
+      throw new IllegalArgumentException("Usage: ListWatcher TODO_FILE"); 
+    }
+    
+    new ListWatcher(FileSystems.getDefault().getPath(arguments[0]).toAbsolutePath(), System.out)
+      .watch();
+  }
+
+  private final Path todoTxtFile;
+  private final PrintStream output;
+  private final ListDisplayFilter filter = new ListDisplayFilter();
+  
+  /**
+   * Rows keyed by line text, without the identifier cell, which depends on the line's position.
+   */
+  private Map<String, TaskTableRow> rowCache = new HashMap<String, TaskTableRow>();
+  private List<String> displayedRowTexts = Collections.emptyList();
+
+  ListWatcher(Path todoTxtFile, PrintStream output)
+  {
+    this.todoTxtFile = todoTxtFile;
+    this.output = output;
+  }
+
+  private void watch() throws IOException, InterruptedException
+  {
+    try (WatchService watchService = FileSystems.getDefault().newWatchService())
+    {
+      todoTxtFile.getParent().register(watchService, ENTRY_MODIFY, ENTRY_CREATE);
+      
+      refresh();
+      
+      while (true)
+      {
+        boolean isChanged = pollEvents(watchService.take());
+        
+        WatchKey key;
+        
+        while ((key = watchService.poll(DEBOUNCE_MILLIS, MILLISECONDS)) != null) 
+        { 
+          isChanged |= pollEvents(key); 
+        }
+        
+        if (isChanged) { refresh(); }
+      }
+    }
+  }
+
+  /**
+   * @return true if any of the key's events are for the todo file
+   */
+  private boolean pollEvents(WatchKey key)
+  {
+    boolean isChanged = false;
+    
+    for (WatchEvent<?> event : key.pollEvents())
+    {
+      isChanged |= todoTxtFile.getFileName().equals(event.context());
+    }
+    
+    key.reset();
+    
+    return isChanged;
+  }
+
+  /**
+   * Shows the file's current tasks, or, if that fails, the reason below the last display.
+   */
+  void refresh()
+  {
+    try { display(); }
+    catch (IOException | IllegalArgumentException exception)
+    {
+      if (displayedRowTexts.isEmpty()) { output.print(CLEAR_SCREEN); }
+      
+      output.print(getCursorPosition(displayedRowTexts.size()) + CLEAR_LINE 
+                   + "Couldn't refresh " + todoTxtFile + ": " + exception);
+      output.flush();
+    }
+  }
+
+  private void display() throws IOException
+  {
+    List<TaskTableRow> rows = new ArrayList<TaskTableRow>();
+    Map<String, TaskTableRow> newRowCache = new HashMap<String, TaskTableRow>();
+    
+    rows.add(filter.getHeaderRow());
+    
+    int lineNumber = 1;
+    
+    for (String line : readAllLines(todoTxtFile))
+    {
+      if (!line.trim().isEmpty()) 
+      { 
+        TaskTableRow row = rowCache.get(line);
+        
+        if (row == null)
+        {
+          row = new TaskTableRow(new Task(Task.addIdentifier("" + lineNumber, line)));
+        }
+        
+        newRowCache.put(line, row);
+        rows.add(withIdentifier(row, lineNumber)); 
+      }
+      
+      lineNumber++;
+    }
+    
+    rowCache = newRowCache;
+    
+    redraw(filter.getRowTexts(rows));
+  }
+
+  private TaskTableRow withIdentifier(TaskTableRow row, int lineNumber)
+  {
+    List<String> cells = new ArrayList<String>(row.getCells());
+    
+    cells.set(0, "" + lineNumber);
+    
+    return new TaskTableRow(row.getColorCode(), cells);
+  }
+
+  private void redraw(List<String> rowTexts)
+  {
+    if (displayedRowTexts.isEmpty()) { output.print(CLEAR_SCREEN); }
+    
+    for (int i = 0; i < rowTexts.size(); i++)
+    {
+      String rowText = rowTexts.get(i);
+      
+      if (i >= displayedRowTexts.size() || !rowText.equals(displayedRowTexts.get(i)))
+      {
+        output.print(getCursorPosition(i) + CLEAR_LINE + rowText);
+      }
+    }
+    
+    for (int i = rowTexts.size(); i < displayedRowTexts.size(); i++)
+    {
+      output.print(getCursorPosition(i) + CLEAR_LINE);
+    }
+    
+    output.print(getCursorPosition(rowTexts.size()) + CLEAR_LINE);
+    output.flush();
+    
+    displayedRowTexts = rowTexts;
+  }
+
+  private String getCursorPosition(int rowIndex) { return "\u001B[" + (rowIndex + 1) + ";1H"; }
+}
@@ -0,0 +1,29 @@
+package mattmunz.todo.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives each distinct name a small, dense int id, so that per-name counts can be kept in arrays. 
+ * Safe to share between threads; ids are stable once given.
+ */
+class NameInterner
+{
+  private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+  private final List<String> names = new ArrayList<String>();
+
+  int getId(String name) { return ids.computeIfAbsent(name, this::addName); }
+
+  synchronized String getName(int id) { return names.get(id); }
+
+  synchronized int size() { return names.size(); }
+
+  private synchronized int addName(String name)
+  {
+    names.add(name);
+    
+    return names.size() - 1;
+  }
+}
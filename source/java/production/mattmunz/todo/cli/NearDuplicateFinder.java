@@ -0,0 +1,302 @@
+package mattmunz.todo.cli;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import mattmunz.lang.SystemHelper;
+import mattmunz.todo.Task;
+
+/**
+ * Finds clusters of near-identical tasks, e.g. the same task with a different priority, context
+ * or a typo. Reads todo.txt lines from standard input and prints each cluster as a block of its
+ * lines, with their line numbers.
+ * 
+ * Usage: NearDuplicateFinder [-x] [THRESHOLD]
+ * 
+ * Tasks are compared by {@link Task#getMessage()}, which leaves out the priority and fields,
+ * normalized to lower case letters and digits. Each message is reduced to a MinHash signature
+ * over its character trigrams, and signatures are split into bands: tasks which agree on a whole
+ * band become candidate pairs, so only tasks which are likely similar are ever compared. A
+ * candidate pair joins a cluster when its estimated similarity (the fraction of equal signature
+ * values) is at least the threshold, 0.7 by default. With -x the exact Jaccard similarity of the
+ * trigram sets is used instead.
+ */
+public class NearDuplicateFinder
+{
+  static final String EXACT_FLAG = "-x";
+  
+  private static final double DEFAULT_THRESHOLD = 0.7;
+  private static final int SHINGLE_LENGTH = 3;
+  private static final int BAND_COUNT = 20;
+  private static final int ROWS_PER_BAND = 5;
+  private static final int SIGNATURE_LENGTH = BAND_COUNT * ROWS_PER_BAND;
+  private static final int INDEX_BITS = 24;
+  private static final long SEED = 0x5EED;
+  
+  public static void main(String[] arguments)
+  {
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    
+    boolean isExact = argumentList.remove(EXACT_FLAG);
+    double threshold
+      = argumentList.isEmpty() ? DEFAULT_THRESHOLD : Double.parseDouble(argumentList.get(0));
+    
+    NearDuplicateFinder finder = new NearDuplicateFinder(threshold, isExact);
+    
+    new SystemHelper().readLinesFromSystemIn(1000000).map(Task::new).forEach(finder::add);
+    
+    for (List<Task> cluster : finder.getClusters())
+    {
+      cluster.stream().map(Task::getLineText).forEach(System.out::println);
+      System.out.println();
+    }
+  }
+  
+  private final double threshold;
+  private final boolean isExact;
+  private final long[] hashMultipliers = new long[SIGNATURE_LENGTH];
+  private final long[] hashOffsets = new long[SIGNATURE_LENGTH];
+  private final List<Task> tasks = new ArrayList<Task>();
+  private int[] signatures = new int[SIGNATURE_LENGTH * 64];
+  
+  public NearDuplicateFinder(double threshold, boolean isExact)
+  {
+    if (threshold <= 0 || threshold > 1)
+    {
+      throw new IllegalArgumentException("Threshold must be in (0, 1]: " + threshold);
+    }
+    
+    this.threshold = threshold;
+    this.isExact = isExact;
+    
+    SplittableRandom random = new SplittableRandom(SEED);
+    
+    for (int i = 0; i < SIGNATURE_LENGTH; i++)
+    {
+      hashMultipliers[i] = random.nextLong() | 1;
+      hashOffsets[i] = random.nextLong();
+    }
+  }
+  
+  public void add(Task task)
+  {
+    if (tasks.size() == 1 << INDEX_BITS)
+    {
+      throw new IllegalStateException("Too many tasks: " + tasks.size());
+    }
+    
+    int offset = tasks.size() * SIGNATURE_LENGTH;
+    
+    if (offset == signatures.length)
+    {
+      signatures = Arrays.copyOf(signatures, signatures.length * 2);
+    }
+    
+    Arrays.fill(signatures, offset, offset + SIGNATURE_LENGTH, Integer.MAX_VALUE);
+    
+    for (int shingle : getShingles(task))
+    {
+      for (int i = 0; i < SIGNATURE_LENGTH; i++)
+      {
+        int hash = (int) ((hashMultipliers[i] * shingle + hashOffsets[i]) >>> 32);
+        
+        if (hash < signatures[offset + i]) { signatures[offset + i] = hash; }
+      }
+    }
+    
+    tasks.add(task);
+  }
+  
+  /**
+   * A cluster's root is its first task, so clusters come out ordered by their first task.
+   * 
+   * @return Clusters of two or more tasks, each in the order added
+   */
+  public List<List<Task>> getClusters()
+  {
+    int[] parents = new int[tasks.size()];
+    
+    for (int i = 0; i < parents.length; i++) { parents[i] = i; }
+    
+    for (int band = 0; band < BAND_COUNT; band++) { joinCandidates(band, parents); }
+    
+    Map<Integer, List<Task>> clusters = new LinkedHashMap<Integer, List<Task>>();
+    
+    for (int i = 0; i < parents.length; i++)
+    {
+      int root = getRoot(parents, i);
+      
+      clusters.computeIfAbsent(root, key -> new ArrayList<Task>()).add(tasks.get(i));
+    }
+    
+    List<List<Task>> result = new ArrayList<List<Task>>();
+    
+    for (List<Task> cluster : clusters.values())
+    {
+      if (cluster.size() > 1) { result.add(cluster); }
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Sorts the tasks by a hash of their values in the band, packed above the task index, so that
+   * tasks sharing a band form runs. Within a run each task is compared with the first, and then
+   * with its predecessor, which keeps a bucket of n identical messages at n comparisons.
+   */
+  private void joinCandidates(int band, int[] parents)
+  {
+    long[] keys = new long[tasks.size()];
+    
+    for (int i = 0; i < keys.length; i++) { keys[i] = getBandHash(i, band) << INDEX_BITS | i; }
+    
+    Arrays.sort(keys);
+    
+    int runStart = 0;
+    
+    for (int k = 1; k < keys.length; k++)
+    {
+      if (keys[k] >>> INDEX_BITS != keys[runStart] >>> INDEX_BITS)
+      {
+        runStart = k;
+        continue;
+      }
+      
+      int index = getIndex(keys[k]);
+      
+      join(getIndex(keys[runStart]), index, parents);
+      join(getIndex(keys[k - 1]), index, parents);
+    }
+  }
+  
+  private int getIndex(long key) { return (int) (key & ((1 << INDEX_BITS) - 1)); }
+  
+  private long getBandHash(int index, int band)
+  {
+    int offset = index * SIGNATURE_LENGTH + band * ROWS_PER_BAND;
+    long hash = band;
+    
+    for (int row = 0; row < ROWS_PER_BAND; row++)
+    {
+      hash = (hash ^ signatures[offset + row]) * 0x9E3779B97F4A7C15L;
+    }
+    
+    return hash >>> INDEX_BITS;
+  }
+  
+  private void join(int left, int right, int[] parents)
+  {
+    int leftRoot = getRoot(parents, left);
+    int rightRoot = getRoot(parents, right);
+    
+    if (leftRoot == rightRoot || !isSimilar(left, right)) { return; }
+    
+    parents[Math.max(leftRoot, rightRoot)] = Math.min(leftRoot, rightRoot);
+  }
+  
+  private int getRoot(int[] parents, int index)
+  {
+    while (parents[index] != index)
+    {
+      parents[index] = parents[parents[index]];
+      index = parents[index];
+    }
+    
+    return index;
+  }
+  
+  private boolean isSimilar(int left, int right)
+  {
+    if (isExact) { return getJaccardSimilarity(left, right) >= threshold; }
+    
+    int leftOffset = left * SIGNATURE_LENGTH;
+    int rightOffset = right * SIGNATURE_LENGTH;
+    int equalCount = 0;
+    
+    for (int i = 0; i < SIGNATURE_LENGTH; i++)
+    {
+      if (signatures[leftOffset + i] == signatures[rightOffset + i]) { equalCount++; }
+    }
+    
+    return equalCount >= threshold * SIGNATURE_LENGTH;
+  }
+  
+  private double getJaccardSimilarity(int left, int right)
+  {
+    int[] leftShingles = getShingles(tasks.get(left));
+    int[] rightShingles = getShingles(tasks.get(right));
+    
+    int i = 0;
+    int j = 0;
+    int sharedCount = 0;
+    
+    while (i < leftShingles.length && j < rightShingles.length)
+    {
+      if (leftShingles[i] < rightShingles[j]) { i++; }
+      else if (leftShingles[i] > rightShingles[j]) { j++; }
+      else
+      {
+        sharedCount++;
+        i++;
+        j++;
+      }
+    }
+    
+    return (double) sharedCount / (leftShingles.length + rightShingles.length - sharedCount);
+  }
+  
+  /**
+   * @return The distinct hashes of the normalized message's trigrams, sorted. A message shorter
+   *         than a trigram is a single shingle.
+   */
+  private int[] getShingles(Task task)
+  {
+    String text = normalize(task.getMessage());
+    
+    if (text.length() <= SHINGLE_LENGTH) { return new int[] { text.hashCode() }; }
+    
+    int[] shingles = new int[text.length() - SHINGLE_LENGTH + 1];
+    
+    for (int start = 0; start < shingles.length; start++)
+    {
+      int hash = 0;
+      
+      for (int i = start; i < start + SHINGLE_LENGTH; i++) { hash = 31 * hash + text.charAt(i); }
+      
+      shingles[start] = hash;
+    }
+    
+    return Arrays.stream(shingles).sorted().distinct().toArray();
+  }
+  
+  /**
+   * Drops color codes and punctuation, which the message may still carry, and case.
+   */
+  private String normalize(String message)
+  {
+    StringBuilder text = new StringBuilder(message.length());
+    
+    for (int i = 0; i < message.length(); i++)
+    {
+      char character = message.charAt(i);
+      
+      if (character == '\u001B')
+      {
+        while (i < message.length() && message.charAt(i) != 'm') { i++; }
+      }
+      else if (Character.isLetterOrDigit(character))
+      {
+        text.append(Character.toLowerCase(character));
+      }
+      else if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') { text.append(' '); }
+    }
+    
+    return text.toString().trim();
+  }
+}
@@ -0,0 +1,55 @@
+package mattmunz.todo.cli;
+
+import static java.util.Collections.emptyList;
+import static mattmunz.time.DayHelper.today;
+
+import java.time.DayOfWeek;
+import java.util.Optional;
+
+import mattmunz.cli.commandline.CommandLine;
+import mattmunz.cli.commandline.Parameter;
+import mattmunz.cli.commandline.Parser;
+import mattmunz.lang.SystemHelper;
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+
+/**
+ * The next command: prints the next tasks to do, starting from a day and time of day. Reads 
+ * todo.txt lines from standard input.
+ * 
+ * Usage: next COUNT [DAY [TIME_OF_DAY]]
+ * 
+ * The day defaults to today. Without a time of day, the listing starts at the beginning of 
+ * the day; with one, the day's tasks for earlier times of day are left out. Tasks without a day 
+ * come first, as in {@link Sorter}.
+ */
+public class NextTaskFinder
+{
+  public static void main(String[] arguments) { new NextTaskFinder(arguments).run(); }
+
+  private final int count;
+  private final DayOfWeek day;
+  private final Optional<TimeOfDay> timeOfDay;
+  
+  private NextTaskFinder(String[] arguments)
+  {
+    CommandLine commandLine = new Parser(emptyList(), 1, 3).parse(arguments);
+    
+    count = commandLine.getParameter(0, Integer.class).get().getValue();
+    
+    if (count < 1) { throw new IllegalArgumentException("Count must be positive: " + count); }
+    
+    day = commandLine.getParameter(1, DayOfWeek.class).map(Parameter::getValue).orElse(today());
+    timeOfDay = commandLine.getParameter(2, TimeOfDay.class).map(Parameter::getValue);
+  }
+
+  private void run()
+  {
+    ScheduleIndex index = new ScheduleIndex();
+    
+    new SystemHelper().readLinesFromSystemIn(1000000).map(Task::new).forEach(index::add);
+    
+    index.getNextTasks(count, day, timeOfDay).stream().map(Task::getLineText)
+         .forEach(System.out::println);
+  }
+}
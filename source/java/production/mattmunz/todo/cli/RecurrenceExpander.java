@@ -0,0 +1,62 @@
+package mattmunz.todo.cli;
+
+import java.time.DayOfWeek;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import mattmunz.todo.Recurrence;
+import mattmunz.todo.Task;
+
+/**
+ * Replaces each recurring task with its occurrences within a window of days. The occurrences are 
+ * produced lazily, as the stream is consumed, so that the todo.txt file only ever needs one line 
+ * per recurring task.
+ * 
+ * Days are days of the week, so the window is at most a week long. 
+ */
+class RecurrenceExpander
+{
+  static final String FLAG = "-r";
+  
+  private final DayOfWeek startDay;
+  private final int dayCount;
+  
+  /**
+   * @param dayCount The number of days in the window, starting with startDay. Between 1 and 7.
+   */
+  RecurrenceExpander(DayOfWeek startDay, int dayCount)
+  {
+    if (dayCount < 1 || dayCount > DayOfWeek.values().length)
+    {
+      throw new IllegalArgumentException("Invalid day count: " + dayCount);
+    }
+    
+    this.startDay = startDay;
+    this.dayCount = dayCount;
+  }
+  
+  /**
+   * A window of one week, starting with startDay.
+   */
+  RecurrenceExpander(DayOfWeek startDay) { this(startDay, DayOfWeek.values().length); }
+
+  Stream<Task> expand(Stream<Task> tasks) { return tasks.flatMap(this::getOccurrences); }
+
+  /**
+   * @return The task itself if it isn't recurring, is already an occurrence (has a day), or is 
+   *         completed. A completed recurring task is kept as a record of being done, and has no 
+   *         more occurrences.
+   */
+  Stream<Task> getOccurrences(Task task)
+  {
+    if (!task.getRecurrence().isPresent() || task.getDay().isPresent() || task.isCompleted()) 
+    { 
+      return Stream.of(task); 
+    }
+    
+    Recurrence recurrence = task.getRecurrence().get();
+    
+    return IntStream.range(0, dayCount).mapToObj(startDay::plus).filter(recurrence::occursOn)
+                    .map(task::getOccurrence);
+  }
+}
@@ -0,0 +1,162 @@
+package mattmunz.todo.cli;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import com.google.common.collect.Ordering;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+
+/**
+ * An index of incomplete tasks by day of week and time of day, for answering "what should I do 
+ * next?" without sorting the whole list.
+ * 
+ * Tasks are kept in a 7 x (time of day + 1) grid of buckets. The extra column holds tasks that 
+ * have a day but no time of day, which come first in their day, as in {@link Sorter}. Each 
+ * bucket keeps its tasks ordered by context, project and priority. Tasks without a day are kept 
+ * in a separate bucket, ordered by time of day and then as the others, which is visited before 
+ * the scheduled ones, as {@link Sorter} puts them first.
+ * 
+ * Finding a task's bucket is a constant time array lookup, both for adding and (via a map from 
+ * task to bucket) for removing. Within the bucket, insertion and removal are logarithmic in the 
+ * size of that bucket only.
+ */
+public class ScheduleIndex
+{
+  private static final int DAY_COUNT = DayOfWeek.values().length;
+  private static final int TIME_SLOT_COUNT = TimeOfDay.values().length + 1;
+  
+  private final List<List<NavigableSet<Task>>> dayBuckets;
+  private final NavigableSet<Task> unscheduledBucket;
+  private final Map<Task, NavigableSet<Task>> taskBuckets = new HashMap<Task, NavigableSet<Task>>();
+
+  public ScheduleIndex()
+  {
+    Sorter sorter = new Sorter();
+    Ordering<Task> lineTextOrdering = Ordering.natural().onResultOf(Task::getLineText);
+    Ordering<Task> bucketOrdering = sorter.getSlotOrdering().compound(lineTextOrdering);
+    
+    dayBuckets = new ArrayList<List<NavigableSet<Task>>>(DAY_COUNT);
+    
+    for (int day = 0; day < DAY_COUNT; day++)
+    {
+      List<NavigableSet<Task>> timeSlotBuckets = new ArrayList<NavigableSet<Task>>(TIME_SLOT_COUNT);
+      
+      for (int slot = 0; slot < TIME_SLOT_COUNT; slot++) 
+      { 
+        timeSlotBuckets.add(new TreeSet<Task>(bucketOrdering)); 
+      }
+      
+      dayBuckets.add(timeSlotBuckets);
+    }
+    
+    unscheduledBucket = new TreeSet<Task>(sorter.getOrdering().compound(lineTextOrdering));
+  }
+  
+  /**
+   * Completed tasks are not indexed.
+   * 
+   * @return true if the task was added
+   */
+  public boolean add(Task task)
+  {
+    if (task.isCompleted() || taskBuckets.containsKey(task)) { return false; }
+    
+    NavigableSet<Task> bucket = getBucket(task);
+    
+    bucket.add(task);
+    taskBuckets.put(task, bucket);
+    
+    return true;
+  }
+
+  /**
+   * @return true if the task was in this index
+   */
+  public boolean remove(Task task)
+  {
+    NavigableSet<Task> bucket = taskBuckets.remove(task);
+    
+    if (bucket == null) { return false; }
+    
+    bucket.remove(task);
+    
+    return true;
+  }
+  
+  /**
+   * Replaces a task with a new version of itself, e.g. one with a new day and time of day.
+   */
+  public void move(Task oldTask, Task newTask)
+  {
+    remove(oldTask);
+    add(newTask);
+  }
+
+  public int size() { return taskBuckets.size(); }
+  
+  /**
+   * Walks the unscheduled tasks, then the buckets for the given day and the six days after it. 
+   * On the given day, the tasks without a time of day come first, and time of day slots earlier 
+   * than the given one are skipped.
+   * 
+   * @param timeOfDay If empty, starts at the beginning of the day, before the first time of day.
+   * @return At most count tasks, in the order they should be done: for the start of a day, the 
+   *         order {@link Sorter#getOrdering()} gives them when sorting for that day.
+   */
+  public List<Task> getNextTasks(int count, DayOfWeek day, Optional<TimeOfDay> timeOfDay)
+  {
+    List<Task> nextTasks = new ArrayList<Task>(count);
+    
+    addTasks(nextTasks, unscheduledBucket, count);
+    
+    int startSlot = getSlot(timeOfDay);
+    
+    for (int i = 0; i < DAY_COUNT && nextTasks.size() < count; i++)
+    {
+      List<NavigableSet<Task>> timeSlotBuckets 
+        = dayBuckets.get((day.getValue() - 1 + i) % DAY_COUNT);
+      
+      for (int slot = 0; slot < TIME_SLOT_COUNT; slot++)
+      {
+        if (i == 0 && slot > 0 && slot < startSlot) { continue; }
+        
+        addTasks(nextTasks, timeSlotBuckets.get(slot), count);
+      }
+    }
+    
+    return nextTasks;
+  }
+
+  private void addTasks(List<Task> tasks, NavigableSet<Task> bucket, int count)
+  {
+    Iterator<Task> bucketIterator = bucket.iterator();
+    
+    while (tasks.size() < count && bucketIterator.hasNext()) { tasks.add(bucketIterator.next()); }
+  }
+
+  private NavigableSet<Task> getBucket(Task task)
+  {
+    Optional<DayOfWeek> day = task.getDay();
+    
+    if (!day.isPresent()) { return unscheduledBucket; }
+    
+    return dayBuckets.get(day.get().getValue() - 1).get(getSlot(task.getTimeOfDay()));
+  }
+
+  /**
+   * @return 0 for no time of day, otherwise the time of day's ordinal plus one.
+   */
+  private int getSlot(Optional<TimeOfDay> timeOfDay)
+  {
+    return timeOfDay.map(presentTimeOfDay -> presentTimeOfDay.ordinal() + 1).orElse(0);
+  }
+}
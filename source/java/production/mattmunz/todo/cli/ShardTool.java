@@ -0,0 +1,89 @@
+package mattmunz.todo.cli;
+
+import static java.util.Arrays.asList;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import mattmunz.time.DayHelper;
+import mattmunz.todo.shard.Shard;
+import mattmunz.todo.shard.ShardedTodoList;
+
+/**
+ * Converts between a single todo.txt file and a {@link ShardedTodoList}, lists shards, and 
+ * repairs the manifest.
+ * 
+ * Usage: ShardTool split TODO_FILE SHARD_DIRECTORY
+ *        ShardTool join SHARD_DIRECTORY TODO_FILE
+ *        ShardTool list SHARD_DIRECTORY [DAY | unscheduled]...
+ *        ShardTool repair SHARD_DIRECTORY
+ * 
+ * list prints the numbered lines of the given shards, or of all of them, for e.g.
+ * {@link Sorter} or {@link ListDisplayFilter}. Only those shards are read.
+ * 
+ * repair recounts the shards' lines into the manifest, when a move was stopped part way.
+ */
+public class ShardTool
+{
+  private static final String UNSCHEDULED = "unscheduled";
+  private static final String USAGE
+    = "Usage: ShardTool (split TODO_FILE SHARD_DIRECTORY | join SHARD_DIRECTORY TODO_FILE "
+      + "| list SHARD_DIRECTORY [DAY | " + UNSCHEDULED + "]... | repair SHARD_DIRECTORY)";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    if (arguments.length < 2) { throw new IllegalArgumentException(USAGE); }
+    
+    String command = arguments[0];
+    List<String> paths = asList(arguments).subList(1, arguments.length);
+    
+    if (command.equals("list"))
+    {
+      ShardedTodoList.open(getPath(paths.get(0)))
+                     .readNumberedLines(getShards(paths.subList(1, paths.size())))
+                     .forEach(System.out::println);
+      return;
+    }
+    
+    if (command.equals("repair") && paths.size() == 1)
+    {
+      ShardedTodoList.repair(getPath(paths.get(0)));
+      return;
+    }
+    
+    if (paths.size() != 2) { throw new IllegalArgumentException(USAGE); }
+    
+    if (command.equals("split"))
+    {
+      ShardedTodoList.split(getPath(paths.get(0)), getPath(paths.get(1)));
+    }
+    else if (command.equals("join"))
+    {
+      ShardedTodoList.open(getPath(paths.get(0))).join(getPath(paths.get(1)));
+    }
+    else { throw new IllegalArgumentException(USAGE); }
+  }
+  
+  private static Path getPath(String path) { return FileSystems.getDefault().getPath(path); }
+  
+  private static Set<Shard> getShards(List<String> names)
+  {
+    if (names.isEmpty()) { return EnumSet.allOf(Shard.class); }
+    
+    DayHelper dayHelper = new DayHelper();
+    Set<Shard> shards = EnumSet.noneOf(Shard.class);
+    
+    for (String name : names)
+    {
+      shards.add(name.equals(UNSCHEDULED) 
+                   ? Shard.UNSCHEDULED : Shard.forDay(Optional.of(dayHelper.getDayOfWeek(name))));
+    }
+    
+    return shards;
+  }
+}
@@ -1,12 +1,16 @@
 package mattmunz.todo.cli;
 
+import static java.util.Arrays.asList;
 import static mattmunz.time.DayHelper.today;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.DayOfWeek;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -14,20 +18,45 @@ import java.util.stream.Stream;
 
 import mattmunz.lang.SystemHelper;
 import mattmunz.todo.Task;
+import mattmunz.todo.store.ColumnarTaskStore;
+import mattmunz.todo.store.TaskRowView;
 
 import com.google.common.collect.Ordering;
 
 /** 
  * A replacement for the unix sort command suitable for use with todo.txt and the todo 
  * system. 
+ * 
+ * As with sort, the -u flag removes duplicate lines. Line numbers are ignored when comparing.
+ * The -r flag replaces recurring tasks with their occurrences in the coming week. The -c flag 
+ * keeps the tasks in an off-heap {@link ColumnarTaskStore} while sorting, for very large lists.
+ * The -a flag breaks ties by creation date, oldest first, with undated tasks first as for other 
+ * empty fields.
  */
 public class Sorter
 {
-  public static void main(String[] arguments) throws IOException { new Sorter().run(); }
+  static final String COLUMNAR_FLAG = "-c";
+  static final String AGE_FLAG = "-a";
+  
+  public static void main(String[] arguments) throws IOException 
+  { 
+    List<String> flags = asList(arguments);
+    
+    new Sorter(today(), flags.contains(AGE_FLAG))
+      .run(flags.contains(DuplicateLineFilter.FLAG), flags.contains(RecurrenceExpander.FLAG), 
+           flags.contains(COLUMNAR_FLAG)); 
+  }
 
   private final DayOfWeek sortDay;
+  private final boolean breakTiesByAge;
   
-  public Sorter(DayOfWeek sortDay) { this.sortDay = sortDay; }
+  public Sorter(DayOfWeek sortDay, boolean breakTiesByAge) 
+  { 
+    this.sortDay = sortDay; 
+    this.breakTiesByAge = breakTiesByAge;
+  }
+  
+  public Sorter(DayOfWeek sortDay) { this(sortDay, false); }
 
   Sorter() { this(today()); }
 
@@ -36,29 +65,75 @@ public class Sorter
    * 2) Sort the lines using a comparator which gives the desired ordering
    * 3) Print out all sorted lines to Sys.out
    */
-  private void run() throws IOException
+  private void run(boolean removeDuplicates, boolean expandRecurrences, boolean isColumnar) 
+    throws IOException
   {
-    sort(new SystemHelper().readLinesFromSystemIn(1000000).map(Task::new))
-      .map(Task::getLineText).forEach(System.out::println);
+    Stream<Task> tasks = new SystemHelper().readLinesFromSystemIn(1000000).map(Task::new);
+    
+    if (removeDuplicates) { tasks = tasks.filter(new DuplicateLineFilter()); }
+    
+    if (expandRecurrences) { tasks = new RecurrenceExpander(sortDay).expand(tasks); }
+    
+    if (!isColumnar) 
+    { 
+      sort(tasks).map(Task::getLineText).forEach(System.out::println);
+      return;
+    }
+    
+    ColumnarTaskStore store = new ColumnarTaskStore();
+    
+    tasks.forEach(store::add);
+    
+    OutputStream output = new BufferedOutputStream(System.out);
+    TaskRowView view = store.getView();
+    
+    for (int row : sort(store)) 
+    { 
+      view.moveTo(row).writeLineText(output); 
+      output.write('\n');
+    }
+    
+    output.flush();
   }
 
-  public Stream<Task> sort(Stream<Task> tasks)
+  /**
+   * @return The store's row indexes, in sorted order.
+   */
+  public int[] sort(ColumnarTaskStore store)
   {
-    /*
-     * Sort order: DayHelper, tod, context, project, priority. Empty fields are given highest order.
-     */
+    return store.getSortedRows(dayValue -> getDayNumber(DayOfWeek.of(dayValue)), breakTiesByAge);
+  }
 
+  public Stream<Task> sort(Stream<Task> tasks) { return tasks.sorted(getOrdering()); }
+
+  /**
+   * Sort order: DayHelper, tod, context, project, priority, and creation date if breaking ties 
+   * by age. Empty fields are given highest order.
+   */
+  public Ordering<Task> getOrdering()
+  {
     Ordering<Task> dayOrdering = getOptionalOrdering(this::getDayNumber);
     
-    Ordering<Task> taskOrdering 
-      = getOrdering(Task::isCompleted)
-          .compound(dayOrdering)
-          .compound(getOptionalOrdering(Task::getTimeOfDay))
-          .compound(getSetOrdering(Task::getContexts))
-          .compound(getSetOrdering(Task::getProjects))
-          .compound(getOptionalOrdering(Task::getPriority));
+    Ordering<Task> ordering = getOrdering(Task::isCompleted)
+                                .compound(dayOrdering)
+                                .compound(getOptionalOrdering(Task::getTimeOfDay))
+                                .compound(getSlotOrdering());
+    
+    if (!breakTiesByAge) { return ordering; }
     
-    return tasks.sorted(taskOrdering);
+    return ordering.compound((Task left, Task right) 
+                               -> Integer.compare(left.getCreationEpochDay(), 
+                                                  right.getCreationEpochDay()));
+  }
+
+  /**
+   * @return The ordering used among tasks with the same day and time of day: context, project, 
+   *         priority.
+   */
+  Ordering<Task> getSlotOrdering()
+  {
+    return getSetOrdering(Task::getContexts).compound(getSetOrdering(Task::getProjects))
+                                            .compound(getOptionalOrdering(Task::getPriority));
   }
   
   private Optional<Integer> getDayNumber(Task task)
@@ -0,0 +1,166 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.lines;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.comparing;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+import mattmunz.todo.cli.TaskStatistics.Counts;
+
+/**
+ * Prints task counts and completion ratios per context, project, day, time slot and priority, 
+ * for a weekly load report.
+ * 
+ * Usage: StatisticsReporter [--csv] TODO_FILE
+ * 
+ * The file is read and parsed once, in parallel; see {@link TaskStatistics}. With --csv the 
+ * report is CSV with a header row, otherwise aligned text.
+ */
+public class StatisticsReporter
+{
+  private static final String CSV_FLAG = "--csv";
+  private static final String CSV_HEADER = "category,name,tasks,completed,completion";
+  private static final String USAGE = "Usage: StatisticsReporter [--csv] TODO_FILE";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    
+    boolean isCsv = argumentList.remove(CSV_FLAG);
+    
+    if (argumentList.size() != 1) { throw new IllegalArgumentException(USAGE); }
+    
+    Path todoTxtFile = FileSystems.getDefault().getPath(argumentList.get(0));
+    
+    if (!exists(todoTxtFile)) 
+    {
+      throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile); 
+    }
+    
+    new StatisticsReporter(isCsv, System.out).report(getStatistics(todoTxtFile));
+  }
+
+  /**
+   * Each worker thread collects into its own {@link TaskStatistics}; the interners are shared so 
+   * the merged arrays line up.
+   */
+  static TaskStatistics getStatistics(Path todoTxtFile) throws IOException
+  {
+    NameInterner contextNames = new NameInterner();
+    NameInterner projectNames = new NameInterner();
+    
+    try (Stream<String> lines = lines(todoTxtFile, UTF_8))
+    {
+      return lines.parallel().filter(line -> !line.trim().isEmpty())
+                  .map(line -> new Task(Task.addIdentifier("1", line)))
+                  .collect(() -> new TaskStatistics(contextNames, projectNames), 
+                           TaskStatistics::add, TaskStatistics::merge);
+    }
+  }
+
+  private final boolean isCsv;
+  private final PrintStream output;
+  
+  StatisticsReporter(boolean isCsv, PrintStream output)
+  {
+    this.isCsv = isCsv;
+    this.output = output;
+  }
+
+  void report(TaskStatistics statistics)
+  {
+    if (isCsv) { output.println(CSV_HEADER); }
+    
+    printRow("total", "all", statistics.getTotals(), 0);
+    
+    printNames("context", statistics.getContexts(), statistics.getContextNames());
+    printNames("project", statistics.getProjects(), statistics.getProjectNames());
+    
+    Counts days = statistics.getDays();
+    Counts slots = statistics.getSlots();
+    
+    for (int day = 0; day < TaskStatistics.DAY_COUNT; day++)
+    {
+      printRow("day", getDayName(day), days, day);
+    }
+    
+    for (int day = 0; day < TaskStatistics.DAY_COUNT; day++)
+    {
+      for (int timeOfDay = 0; timeOfDay < TaskStatistics.SLOTS_PER_DAY; timeOfDay++)
+      {
+        printRow("slot", getDayName(day) + " " + getTimeOfDayName(timeOfDay), slots, 
+                 day * TaskStatistics.SLOTS_PER_DAY + timeOfDay);
+      }
+    }
+    
+    Counts priorities = statistics.getPriorities();
+    
+    for (int priority = 0; priority < TaskStatistics.PRIORITY_COUNT; priority++)
+    {
+      printRow("priority", getPriorityName(priority), priorities, priority);
+    }
+  }
+
+  /**
+   * Names are printed in alphabetical order, not id order, which depends on thread timing.
+   */
+  private void printNames(String category, Counts counts, NameInterner names)
+  {
+    IntStream.range(0, names.size()).boxed().sorted(comparing(names::getName))
+             .forEach(id -> printRow(category, names.getName(id), counts, id));
+  }
+
+  private String getPriorityName(int priority)
+  {
+    return priority == TaskStatistics.PRIORITY_COUNT - 1 ? "none" : "" + (char) ('A' + priority);
+  }
+
+  private String getDayName(int day)
+  {
+    return day == TaskStatistics.DAY_COUNT - 1 ? "unscheduled" : "" + DayOfWeek.values()[day];
+  }
+
+  private String getTimeOfDayName(int timeOfDay)
+  {
+    return timeOfDay == TaskStatistics.SLOTS_PER_DAY - 1 ? "any" 
+                                                          : "" + TimeOfDay.values()[timeOfDay];
+  }
+
+  /**
+   * Rows without tasks are left out, except the total.
+   */
+  private void printRow(String category, String name, Counts counts, int index)
+  {
+    int taskCount = counts.getTaskCount(index);
+    int completedCount = counts.getCompletedCount(index);
+    
+    if (taskCount == 0 && !category.equals("total")) { return; }
+    
+    double completion = taskCount == 0 ? 0 : (double) completedCount / taskCount;
+    
+    if (isCsv)
+    {
+      output.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f", category, name, taskCount, 
+                                   completedCount, completion));
+    }
+    else
+    {
+      output.println(String.format(Locale.ROOT, "%-9s %-24s %9d %9d %6.1f%%", category, name, 
+                                   taskCount, completedCount, completion * 100));
+    }
+  }
+}
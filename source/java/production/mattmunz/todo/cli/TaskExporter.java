@@ -0,0 +1,358 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newInputStream;
+import static java.util.Arrays.asList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+
+/**
+ * Exports tasks for other programs, as newline-delimited JSON objects or as CSV with a header
+ * row.
+ * 
+ * Usage: TaskExporter [--csv] [TODO_FILE]
+ * 
+ * Without a file, numbered lines are read from standard input, as for {@link Sorter}. Each task
+ * is written with its identifier, completion, priority, day, time of day, contexts, projects,
+ * message and color code. Days and times of day are written as their enum names; missing values
+ * are null in JSON and empty in CSV. In CSV, contexts and projects are separated by spaces.
+ * 
+ * Lines are read and written one at a time, and output is encoded and escaped straight into one
+ * reused buffer, so memory doesn't depend on the number of tasks.
+ */
+public class TaskExporter
+{
+  private static final String CSV_FLAG = "--csv";
+  private static final String USAGE = "Usage: TaskExporter [--csv] [TODO_FILE]";
+  private static final String CSV_HEADER
+    = "identifier,completed,priority,day,timeOfDay,contexts,projects,message,colorCode";
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(UTF_8);
+  private static final byte[][] DAY_NAMES = getNames(DayOfWeek.values());
+  private static final byte[][] TIME_OF_DAY_NAMES = getNames(TimeOfDay.values());
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    
+    boolean isCsv = argumentList.remove(CSV_FLAG);
+    
+    if (argumentList.size() > 1) { throw new IllegalArgumentException(USAGE); }
+    
+    TaskExporter exporter = new TaskExporter(isCsv, System.out);
+    
+    if (argumentList.isEmpty())
+    {
+      exporter.export(System.in, false);
+      return;
+    }
+    
+    Path todoTxtFile = FileSystems.getDefault().getPath(argumentList.get(0));
+    
+    if (!exists(todoTxtFile))
+    {
+      throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile);
+    }
+    
+    try (InputStream input = newInputStream(todoTxtFile)) { exporter.export(input, true); }
+  }
+  
+  private static byte[][] getNames(Enum<?>[] values)
+  {
+    byte[][] names = new byte[values.length][];
+    
+    for (Enum<?> value : values) { names[value.ordinal()] = value.name().getBytes(UTF_8); }
+    
+    return names;
+  }
+  
+  private final boolean isCsv;
+  private final OutputStream output;
+  private final byte[] buffer = new byte[64 * 1024];
+  private int position;
+  
+  public TaskExporter(boolean isCsv, OutputStream output)
+  {
+    this.isCsv = isCsv;
+    this.output = output;
+  }
+  
+  /**
+   * Writes the CSV header, if CSV, then every task in the input, then flushes. Blank lines are
+   * skipped.
+   * 
+   * @param isNumbering true if the lines aren't numbered yet, e.g. they're read from a todo file
+   */
+  public void export(InputStream input, boolean isNumbering) throws IOException
+  {
+    if (isCsv)
+    {
+      writeAscii(CSV_HEADER);
+      writeByte('\n');
+    }
+    
+    ByteLineReader lineReader = new ByteLineReader(input);
+    
+    int lineNumber = 0;
+    
+    while (lineReader.next())
+    {
+      lineNumber++;
+      
+      if (lineReader.isBlank()) { continue; }
+      
+      String line = lineReader.getText();
+      
+      write(new Task(isNumbering ? Task.addIdentifier("" + lineNumber, line) : line));
+    }
+    
+    flush();
+  }
+  
+  public void write(Task task) throws IOException
+  {
+    if (isCsv) { writeCsv(task); }
+    else { writeJson(task); }
+    
+    writeByte('\n');
+  }
+  
+  public void flush() throws IOException
+  {
+    output.write(buffer, 0, position);
+    output.flush();
+    
+    position = 0;
+  }
+  
+  private void writeJson(Task task) throws IOException
+  {
+    writeAscii("{\"identifier\":");
+    writeJsonString(task.getIdentifier());
+    writeAscii(",\"completed\":");
+    writeAscii(task.isCompleted() ? "true" : "false");
+    writeAscii(",\"priority\":");
+    writeJsonString(task.getPriority());
+    writeAscii(",\"day\":");
+    writeJsonName(task.getDay().map(day -> DAY_NAMES[day.ordinal()]));
+    writeAscii(",\"timeOfDay\":");
+    writeJsonName(task.getTimeOfDay().map(timeOfDay -> TIME_OF_DAY_NAMES[timeOfDay.ordinal()]));
+    writeAscii(",\"contexts\":");
+    writeJsonArray(task.getContexts());
+    writeAscii(",\"projects\":");
+    writeJsonArray(task.getProjects());
+    writeAscii(",\"message\":");
+    writeJsonString(task.getMessage());
+    writeAscii(",\"colorCode\":");
+    writeJsonString(task.getColorCode());
+    writeByte('}');
+  }
+  
+  private void writeCsv(Task task) throws IOException
+  {
+    writeCsvField(task.getIdentifier());
+    writeByte(',');
+    writeAscii(task.isCompleted() ? "true" : "false");
+    writeByte(',');
+    writeCsvField(task.getPriority().orElse(""));
+    writeByte(',');
+    
+    if (task.getDay().isPresent()) { writeBytes(DAY_NAMES[task.getDay().get().ordinal()]); }
+    
+    writeByte(',');
+    
+    if (task.getTimeOfDay().isPresent())
+    {
+      writeBytes(TIME_OF_DAY_NAMES[task.getTimeOfDay().get().ordinal()]);
+    }
+    
+    writeByte(',');
+    writeCsvList(task.getContexts());
+    writeByte(',');
+    writeCsvList(task.getProjects());
+    writeByte(',');
+    writeCsvField(task.getMessage());
+    writeByte(',');
+    writeCsvField(task.getColorCode().orElse(""));
+  }
+  
+  private void writeJsonName(Optional<byte[]> name) throws IOException
+  {
+    if (!name.isPresent())
+    {
+      writeAscii("null");
+      return;
+    }
+    
+    writeByte('"');
+    writeBytes(name.get());
+    writeByte('"');
+  }
+  
+  private void writeJsonArray(Set<String> values) throws IOException
+  {
+    writeByte('[');
+    
+    boolean isFirst = true;
+    
+    for (String value : values)
+    {
+      if (!isFirst) { writeByte(','); }
+      
+      writeJsonString(value);
+      
+      isFirst = false;
+    }
+    
+    writeByte(']');
+  }
+  
+  private void writeJsonString(Optional<String> text) throws IOException
+  {
+    if (text.isPresent()) { writeJsonString(text.get()); }
+    else { writeAscii("null"); }
+  }
+  
+  private void writeJsonString(String text) throws IOException
+  {
+    writeByte('"');
+    
+    for (int i = 0; i < text.length(); i++)
+    {
+      char character = text.charAt(i);
+      
+      if (character == '"' || character == '\\')
+      {
+        writeByte('\\');
+        writeByte(character);
+      }
+      else if (character == '\n') { writeAscii("\\n"); }
+      else if (character == '\r') { writeAscii("\\r"); }
+      else if (character == '\t') { writeAscii("\\t"); }
+      else if (character < 0x20)
+      {
+        writeAscii("\\u00");
+        writeByte(HEX_DIGITS[character >> 4]);
+        writeByte(HEX_DIGITS[character & 0xF]);
+      }
+      else { i = writeUtf8(text, i); }
+    }
+    
+    writeByte('"');
+  }
+  
+  /**
+   * Fields with a comma, quote or line break are quoted, with quotes doubled.
+   */
+  private void writeCsvField(String text) throws IOException
+  {
+    boolean isQuoted = false;
+    
+    for (int i = 0; i < text.length() && !isQuoted; i++)
+    {
+      char character = text.charAt(i);
+      
+      isQuoted = character == ',' || character == '"' || character == '\n' || character == '\r';
+    }
+    
+    if (isQuoted) { writeByte('"'); }
+    
+    for (int i = 0; i < text.length(); i++)
+    {
+      if (text.charAt(i) == '"') { writeByte('"'); }
+      
+      i = writeUtf8(text, i);
+    }
+    
+    if (isQuoted) { writeByte('"'); }
+  }
+  
+  /**
+   * Context and project names are letters and underscores only, so need no quoting.
+   */
+  private void writeCsvList(Set<String> values) throws IOException
+  {
+    boolean isFirst = true;
+    
+    for (String value : values)
+    {
+      if (!isFirst) { writeByte(' '); }
+      
+      for (int i = 0; i < value.length(); i++) { i = writeUtf8(value, i); }
+      
+      isFirst = false;
+    }
+  }
+  
+  /**
+   * Encodes the character at the index, or the surrogate pair starting there.
+   * 
+   * @return The index of the last character written
+   */
+  private int writeUtf8(String text, int index) throws IOException
+  {
+    char character = text.charAt(index);
+    
+    if (character < 0x80) { writeByte(character); }
+    else if (character < 0x800)
+    {
+      writeByte(0xC0 | character >> 6);
+      writeByte(0x80 | character & 0x3F);
+    }
+    else if (Character.isHighSurrogate(character) && index + 1 < text.length()
+             && Character.isLowSurrogate(text.charAt(index + 1)))
+    {
+      int codePoint = Character.toCodePoint(character, text.charAt(++index));
+      
+      writeByte(0xF0 | codePoint >> 18);
+      writeByte(0x80 | codePoint >> 12 & 0x3F);
+      writeByte(0x80 | codePoint >> 6 & 0x3F);
+      writeByte(0x80 | codePoint & 0x3F);
+    }
+    else if (Character.isSurrogate(character)) { writeByte('?'); }
+    else
+    {
+      writeByte(0xE0 | character >> 12);
+      writeByte(0x80 | character >> 6 & 0x3F);
+      writeByte(0x80 | character & 0x3F);
+    }
+    
+    return index;
+  }
+  
+  /**
+   * For text known to be ASCII, e.g. keys.
+   */
+  private void writeAscii(String text) throws IOException
+  {
+    for (int i = 0; i < text.length(); i++) { writeByte(text.charAt(i)); }
+  }
+  
+  private void writeBytes(byte[] bytes) throws IOException
+  {
+    for (byte nextByte : bytes) { writeByte(nextByte); }
+  }
+  
+  private void writeByte(int nextByte) throws IOException
+  {
+    if (position == buffer.length)
+    {
+      output.write(buffer, 0, position);
+      position = 0;
+    }
+    
+    buffer[position++] = (byte) nextByte;
+  }
+}
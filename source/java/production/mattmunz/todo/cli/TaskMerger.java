@@ -0,0 +1,205 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newBufferedReader;
+import static java.util.Arrays.asList;
+import static mattmunz.time.DayHelper.today;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import mattmunz.time.DayHelper;
+import mattmunz.todo.Task;
+
+import com.google.common.collect.Ordering;
+
+/**
+ * Merges todo files which are each already sorted by {@link Sorter} into one sorted list,
+ * without sorting again.
+ * 
+ * Usage: TaskMerger [-a] [-d DAY] TODO_FILE...
+ * 
+ * Each output line starts with its file and line number, e.g. "team.txt:12 Pay rent day:F", in
+ * place of the usual line number, and after any color code. The parser reads that tag as the 
+ * task's identifier, so the output can go on to e.g. {@link ListDisplayFilter}. Given as 
+ * {@link TaskMover}'s TODO_FILE, the tag moves the task in its own file. A tag can't contain 
+ * whitespace, so neither can the files' paths. -a is as for {@link Sorter}, and must match how 
+ * the files were sorted.
+ * 
+ * Sorter orders the days of the week starting from the day it sorts on, so files sorted on 
+ * another day are in a different order. -d gives the day they were sorted on, e.g. -d M; it 
+ * defaults to today.
+ * 
+ * The files are read one task at a time, and the next task comes from a heap holding each file's
+ * current task, so memory depends on the number of files, not their length. Equal tasks come out
+ * in the order their files were given.
+ */
+public class TaskMerger
+{
+  private static final String USAGE = "Usage: TaskMerger [-a] [-d DAY] TODO_FILE...";
+  private static final String SORT_DAY_FLAG = "-d";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    
+    boolean breakTiesByAge = argumentList.remove(Sorter.AGE_FLAG);
+    DayOfWeek sortDay = today();
+    int sortDayIndex = argumentList.indexOf(SORT_DAY_FLAG);
+    
+    if (sortDayIndex >= 0)
+    {
+      if (sortDayIndex + 1 == argumentList.size()) { throw new IllegalArgumentException(USAGE); }
+      
+      sortDay = new DayHelper().getDayOfWeek(argumentList.remove(sortDayIndex + 1));
+      argumentList.remove(sortDayIndex);
+    }
+    
+    if (argumentList.isEmpty()) { throw new IllegalArgumentException(USAGE); }
+    
+    List<Path> todoTxtFiles = new ArrayList<Path>();
+    
+    for (String argument : argumentList)
+    {
+      Path todoTxtFile = FileSystems.getDefault().getPath(argument);
+      
+      if (!exists(todoTxtFile))
+      {
+        throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile);
+      }
+      
+      todoTxtFiles.add(todoTxtFile);
+    }
+    
+    try (Writer output = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8)))
+    {
+      new TaskMerger(new Sorter(sortDay, breakTiesByAge).getOrdering())
+        .merge(todoTxtFiles, output);
+    }
+  }
+  
+  private final Ordering<Task> ordering;
+  
+  public TaskMerger(Ordering<Task> ordering) { this.ordering = ordering; }
+  
+  /**
+   * Writes the files' tasks, tagged with where they came from, in order, one per line.
+   * 
+   * @throws IllegalArgumentException If a file's path contains whitespace
+   * @throws IllegalStateException If a file isn't in order
+   */
+  public void merge(List<Path> todoTxtFiles, Writer output) throws IOException
+  {
+    for (Path todoTxtFile : todoTxtFiles)
+    {
+      if (("" + todoTxtFile).matches(".*\\s.*"))
+      {
+        throw new IllegalArgumentException("Can't tag lines of a file whose path has whitespace: "
+                                           + todoTxtFile);
+      }
+    }
+    
+    PriorityQueue<Source> heap
+      = new PriorityQueue<Source>(Math.max(1, todoTxtFiles.size()), this::compare);
+    List<Source> sources = new ArrayList<Source>();
+    
+    try
+    {
+      for (Path todoTxtFile : todoTxtFiles)
+      {
+        Source source = new Source(todoTxtFile, sources.size());
+        
+        sources.add(source);
+        
+        if (source.next()) { heap.add(source); }
+      }
+      
+      while (!heap.isEmpty())
+      {
+        Source source = heap.poll();
+        
+        output.write(Task.addIdentifier(getTag(source.todoTxtFile, source.lineNumber), 
+                                        source.task.getLineTextWithoutIdentifier()));
+        output.write('\n');
+        
+        if (source.next()) { heap.add(source); }
+      }
+    }
+    finally
+    {
+      for (Source source : sources) { source.reader.close(); }
+    }
+  }
+  
+  /**
+   * @return file:line, e.g. todo.txt:12
+   */
+  static String getTag(Path todoTxtFile, int lineNumber) { return todoTxtFile + ":" + lineNumber; }
+  
+  private int compare(Source left, Source right)
+  {
+    int result = ordering.compare(left.task, right.task);
+    
+    return result != 0 ? result : Integer.compare(left.index, right.index);
+  }
+  
+  /**
+   * A file being merged, and its current task.
+   */
+  private class Source
+  {
+    private final Path todoTxtFile;
+    private final int index;
+    private final BufferedReader reader;
+    private int lineNumber;
+    private Task task;
+    
+    private Source(Path todoTxtFile, int index) throws IOException
+    {
+      this.todoTxtFile = todoTxtFile;
+      this.index = index;
+      
+      reader = newBufferedReader(todoTxtFile, UTF_8);
+    }
+    
+    /**
+     * Reads the next task, skipping blank lines.
+     *
+     * @return false at the end of the file
+     */
+    private boolean next() throws IOException
+    {
+      for (String line = reader.readLine(); line != null; line = reader.readLine())
+      {
+        lineNumber++;
+        
+        if (line.trim().isEmpty()) { continue; }
+        
+        Task previousTask = task;
+        
+        task = new Task(Task.addIdentifier("" + lineNumber, line));
+        
+        if (previousTask != null && ordering.compare(previousTask, task) > 0)
+        {
+          throw new IllegalStateException(getTag(todoTxtFile, lineNumber) + " is out of order; "
+                                          + "sort the file with Sorter before merging, or give "
+                                          + "the day it was sorted on with -d");
+        }
+        
+        return true;
+      }
+      
+      return false;
+    }
+  }
+}
@@ -1,59 +1,124 @@
 package mattmunz.todo.cli;
 
 import static java.lang.System.out;
-import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;  
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
-import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
 import static java.nio.file.Files.readAllLines;
-import static java.nio.file.Files.write;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.lang.System.lineSeparator;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.time.DayOfWeek;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Range;
 
 import mattmunz.cli.commandline.CommandLine;
 import mattmunz.cli.commandline.Parameter;
 import mattmunz.cli.commandline.Parser;
-import mattmunz.time.DayHelper;
 import mattmunz.time.TimeOfDay;
 import mattmunz.todo.Task;
+import mattmunz.todo.archive.SnapshotArchiver;
+import mattmunz.todo.shard.Shard;
+import mattmunz.todo.shard.ShardedTodoList;
 
+/**
+ * Moves tasks, by line number or by query, to a new day and time of day.
+ * 
+ * Usage: TaskMover [-s] [-n] TODO_FILE DAY TIME_OF_DAY (LINE_NUMBER | QUERY_TERM)...
+ * 
+ * Query terms are described in {@link TaskSelector}, e.g. "@Home day:M" moves every @Home task 
+ * on Monday. A task is moved if its line number is given or it matches all of the terms.
+ * 
+ * With -s the file is assumed to be sorted by {@link Sorter}, and is kept sorted: each moved 
+ * task is taken out and re-inserted at its new position rather than re-sorting the whole file.
+ * 
+ * With -n nothing is written; only the number of matching tasks is printed.
+ * 
+ * TODO_FILE may also be a {@link TaskMerger} tag, e.g. team.txt:12, to move that line of that 
+ * file.
+ * 
+ * TODO_FILE may also be the directory of a {@link ShardedTodoList}. Then only the shards holding 
+ * the given lines, or the day: term's shard, are read, and a task moved to another day goes from 
+ * one shard to the other without the rest of the list being rewritten. The shards which change 
+ * are snapshotted, with the manifest, like a single file. -s isn't supported.
+ */
 public class TaskMover
 {
+  private static final String KEEP_SORTED_FLAG = "-s";
+  private static final String DRY_RUN_FLAG = "-n";
+  private static final Pattern TAG_PATTERN = Pattern.compile("(.+):(\\d+)");
+  
   public static void main(String[] arguments) throws IOException
   {
     new TaskMover(arguments).moveTasks();
   }
 
+  private final boolean keepSorted;
+  private final boolean isDryRun;
   private final DayOfWeek day;
   private final TimeOfDay timeOfDay;
   private final Set<Integer> lineNumbers;
+  private final TaskSelector selector;
+  private final BytePrefilter prefilter;
+  private final Set<Integer> movedLineNumbers = new TreeSet<Integer>();
   private final Path todoTxtFile;
+  private final boolean isSharded;
   private final Path archiveDirectory;
+  private int repositionedLineCount;
 
   private TaskMover(String[] arguments) throws IOException
   {
-    CommandLine commandLine = new Parser(emptyList(), 3, 50).parse(arguments);
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    
+    keepSorted = argumentList.remove(KEEP_SORTED_FLAG);
+    isDryRun = argumentList.remove(DRY_RUN_FLAG);
+    
+    expandTag(argumentList);
+    
+    selector = new TaskSelector(TaskSelector.removeTerms(argumentList, 3));
+    prefilter = new BytePrefilter(selector.getTerms(), emptyList());
     
-    todoTxtFile = commandLine.getParameter(0, Path.class).get().getValue();
+    CommandLine commandLine 
+      = new Parser(emptyList(), 3, 50).parse(argumentList.toArray(new String[0]));
+    
+    todoTxtFile = commandLine.getParameter(0, Path.class).get().getValue().toAbsolutePath();
     
     if (!exists(todoTxtFile)) 
     {
       throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile); 
     }
     
-    archiveDirectory = todoTxtFile.getParent().resolve("archive");
+    isSharded = ShardedTodoList.isSharded(todoTxtFile);
     
-    createDirectories(archiveDirectory);
+    if (isSharded && keepSorted) 
+    { 
+      throw new IllegalArgumentException(KEEP_SORTED_FLAG + " isn't supported for shards"); 
+    }
+    
+    archiveDirectory = todoTxtFile.getParent().resolve("archive");
     
     day = commandLine.getParameter(1, DayOfWeek.class).get().getValue();
     timeOfDay = commandLine.getParameter(2, TimeOfDay.class).get().getValue();
@@ -61,39 +126,205 @@ public class TaskMover
       = commandLine.getParameters(Range.greaterThan(2), Integer.class).stream()
                    .map(Parameter::getValue).collect(toSet());
 
-    if (lineNumbers.isEmpty()) 
+    if (lineNumbers.isEmpty() && selector.isEmpty()) 
     { 
-      throw new IllegalArgumentException("No line numbers given"); 
+      throw new IllegalArgumentException("No line numbers or query terms given"); 
     }
     
-    if (lineNumbers.contains(new Integer(0)))
+    if (lineNumbers.contains(0))
     {
       throw new IllegalArgumentException("Task id 0 not allowed: " + lineNumbers);
     }
   }
 
   /**
-   * 1) Read in all lines to memory, closing file
-   * 2) Map those lines, preserving most but modifying only selected lines to the chosen day/times (see mvd design)
-   * 3) Write all lines back to the original file (Overwrite)
-   * 4) And write all lines into a backup file
-   * 
-   * TODO Unit test this! 
+   * Replaces a tag given as the todo file with its file, and adds its line number to the line 
+   * numbers.
+   */
+  private static void expandTag(List<String> arguments)
+  {
+    if (arguments.isEmpty()) { return; }
+    
+    Matcher matcher = TAG_PATTERN.matcher(arguments.get(0));
+    
+    if (!matcher.matches() || exists(FileSystems.getDefault().getPath(arguments.get(0)))) 
+    { 
+      return; 
+    }
+    
+    arguments.set(0, matcher.group(1));
+    arguments.add(matcher.group(2));
+  }
+
+  /**
+   * 1) Stream the lines into a new file next to the original, modifying only selected lines to 
+   *    the chosen day/times (see mvd design)
+   * 2) Snapshot the original file, to be archived in the background
+   * 3) Replace the original file with the new one
    */
   private void moveTasks() throws IOException
   {
-    List<String> newLines = moveMatchingLines(readAllLines(todoTxtFile));
+    if (isSharded) 
+    { 
+      moveShardedTasks(); 
+      return;
+    }
+    
+    if (isDryRun) 
+    { 
+      moveMatchingLines(OutputStream.nullOutputStream());
+      printMatchCount();
+      return; 
+    }
+    
+    Path newTodoTxtFile 
+      = createTempFile(todoTxtFile.getParent(), "" + todoTxtFile.getFileName(), ".new");
+    
+    try
+    {
+      try (OutputStream output = new BufferedOutputStream(newOutputStream(newTodoTxtFile)))
+      {
+        moveMatchingLines(output);
+      }
+      
+      printMatchCount();
+      
+      try (SnapshotArchiver archiver = SnapshotArchiver.create(archiveDirectory))
+      {
+        archiver.takeSnapshot(todoTxtFile);
+        
+        move(newTodoTxtFile, todoTxtFile, REPLACE_EXISTING, ATOMIC_MOVE);
+      }
+    }
+    finally { deleteIfExists(newTodoTxtFile); }
     
-    write(todoTxtFile, newLines);
+    printMovedLines();
     
-    String archiveFileName 
-      = "" + todoTxtFile.getFileName() + "." + currentTimeMillis() + ".old";
+    if (keepSorted) { out.println("" + repositionedLineCount + " line(s) changed position."); }
+  }
 
-    // TODO Perhaps it would be better to archive the original file here...
-    write(archiveDirectory.resolve(archiveFileName), newLines);
+  private void moveShardedTasks() throws IOException
+  {
+    ShardedTodoList list = ShardedTodoList.open(todoTxtFile);
+    Set<Shard> shards = getShardsToSearch(list);
+    
+    if (isDryRun)
+    {
+      list.readNumberedLines(shards).stream().map(Task::new).forEach(this::getNewTask);
+      printMatchCount();
+      return;
+    }
+    
+    try (SnapshotArchiver archiver = SnapshotArchiver.create(archiveDirectory))
+    {
+      list.moveTasks(shards, task -> 
+      {
+        Task newTask = getNewTask(task);
+        
+        validateLine(newTask.getLineTextWithoutIdentifier());
+        
+        return newTask;
+      }, archiver);
+    }
     
-    out.println("" + lineNumbers.size() + " task(s) were moved to " + day + " " + timeOfDay 
-                + ": " + lineNumbers + ".");
+    printMatchCount();
+    printMovedLines();
+  }
+
+  /**
+   * @return The shards of the given lines, and every shard a task matching the query could be in
+   */
+  private Set<Shard> getShardsToSearch(ShardedTodoList list)
+  {
+    if (!selector.isEmpty() && !selector.getDay().isPresent()) 
+    { 
+      return EnumSet.allOf(Shard.class); 
+    }
+    
+    Set<Shard> shards = EnumSet.noneOf(Shard.class);
+    
+    if (selector.getDay().isPresent()) { shards.add(Shard.forDay(selector.getDay())); }
+    
+    for (int lineNumber : lineNumbers) { shards.add(list.getShard(lineNumber)); }
+    
+    return shards;
+  }
+
+  private void printMovedLines()
+  {
+    out.println("" + movedLineNumbers.size() + " task(s) were moved to " + day + " " + timeOfDay 
+                + ": " + movedLineNumbers + ".");
+  }
+
+  private void printMatchCount()
+  {
+    out.println("" + movedLineNumbers.size() + " task(s) match" 
+                + (selector.isEmpty() ? "" : " " + selector) + ".");
+  }
+
+  /**
+   * Keeping the file sorted needs all of the tasks in memory. Otherwise, lines are streamed one 
+   * at a time.
+   */
+  private void moveMatchingLines(OutputStream output) throws IOException
+  {
+    if (!keepSorted) 
+    { 
+      streamMatchingLines(output); 
+      return;
+    }
+    
+    for (String line : moveMatchingLines(readAllLines(todoTxtFile)))
+    {
+      output.write((line + lineSeparator()).getBytes(UTF_8));
+    }
+  }
+
+  /**
+   * Only selected lines are decoded and parsed. All others are copied through as raw bytes. 
+   * Without query terms, that means only the lines whose numbers were given are parsed; with 
+   * them, only the lines which pass the {@link BytePrefilter}.
+   */
+  private void streamMatchingLines(OutputStream output) throws IOException
+  {
+    try (InputStream input = newInputStream(todoTxtFile))
+    {
+      ByteLineReader lineReader = new ByteLineReader(input);
+      
+      int lineNumber = 0;
+      
+      while (lineReader.next())
+      {
+        lineNumber++;
+        
+        if (lineReader.isBlank()) 
+        { 
+          throw new IllegalStateException("Line " + lineNumber + " is empty!"); 
+        }
+        
+        if (!lineNumbers.contains(lineNumber) 
+            && (selector.isEmpty() || !prefilter.test(lineReader))) 
+        { 
+          lineReader.copyTo(output); 
+          continue;
+        }
+        
+        Task task = new Task(Task.addIdentifier("" + lineNumber, lineReader.getText()));
+        Task newTask = getNewTask(task);
+        
+        if (newTask == task) 
+        { 
+          lineReader.copyTo(output); 
+          continue;
+        }
+        
+        String newLine = newTask.getLineTextWithoutIdentifier();
+        
+        validateLine(newLine);
+        
+        lineReader.replaceTo(newLine, output);
+      }
+    }
   }
 
   private List<String> moveMatchingLines(List<String> lines)
@@ -104,14 +335,18 @@ public class TaskMover
 
 		for (String line : lines) 
 		{
-			if (!line.trim().isEmpty()) { numberedLines.add("" + i + " "  + line); }
+			if (!line.trim().isEmpty()) { numberedLines.add(Task.addIdentifier("" + i, line)); }
 			
 			i++;
 		}
     
+    List<Task> newTasks 
+      = numberedLines.stream().map(Task::new).map(this::getNewTask).collect(toList());
+    
+    if (keepSorted) { newTasks = getSortedTasks(newTasks); }
+    
     List<String> newLines 
-      = numberedLines.stream().map(Task::new).map(this::getNewTask)
-                              .map(Task::getLineTextWithoutIdentifier).collect(toList());
+      = newTasks.stream().map(Task::getLineTextWithoutIdentifier).collect(toList());
 
     if (lines.size() != newLines.size())
     {
@@ -124,19 +359,88 @@ public class TaskMover
     return newLines;
   }
 
-  private void validateLines(List<String> newLines)
+  /**
+   * Takes each moved task out of the list and re-inserts it at the position given by a binary 
+   * search under the {@link Sorter} ordering. The remaining tasks are assumed to be sorted 
+   * already. 
+   * 
+   * Equal tasks keep their relative order, i.e. a moved task goes after any tasks equal to it.
+   */
+  private List<Task> getSortedTasks(List<Task> tasks)
+  {
+    Ordering<Task> ordering = new Sorter().getOrdering();
+    
+    List<Task> sortedTasks = new ArrayList<Task>(tasks.size());
+    List<Task> movedTasks = new ArrayList<Task>();
+    
+    for (Task task : tasks) { (isMoved(task) ? movedTasks : sortedTasks).add(task); }
+    
+    for (Task movedTask : movedTasks)
+    {
+      sortedTasks.add(getInsertionIndex(sortedTasks, movedTask, ordering), movedTask);
+    }
+    
+    repositionedLineCount = countRepositionedTasks(tasks, sortedTasks);
+    
+    return sortedTasks;
+  }
+
+  /**
+   * @return The index after the last task that is less than or equal to the given task.
+   */
+  private int getInsertionIndex(List<Task> sortedTasks, Task task, Ordering<Task> ordering)
+  {
+    int low = 0;
+    int high = sortedTasks.size();
+    
+    while (low < high)
+    {
+      int middle = (low + high) >>> 1;
+      
+      if (ordering.compare(sortedTasks.get(middle), task) <= 0) { low = middle + 1; }
+      else { high = middle; }
+    }
+    
+    return low;
+  }
+
+  private int countRepositionedTasks(List<Task> originalTasks, List<Task> newTasks)
   {
-    for (String line : newLines)
+    int count = 0;
+    
+    for (int i = 0; i < originalTasks.size(); i++)
     {
-      if (line.contains("\n"))
-    	  {
-    		  throw new IllegalStateException("Line contains newline!: [" + line + "].");
-    	  }
-    	
-    	  if (line.trim().isEmpty())
-    	  {
-    	    throw new IllegalStateException("Line is empty!: [" + line + "].");
-    	  }
+      if (originalTasks.get(i) != newTasks.get(i)) { count++; }
+    }
+    
+    return count;
+  }
+
+  /**
+   * Valid once the task's line has been through {@link #getNewTask(Task)}.
+   */
+  private boolean isMoved(Task task)
+  {
+    return movedLineNumbers.contains(Integer.valueOf(task.getIdentifier()));
+  }
+
+  private boolean isSelected(Task task)
+  {
+    return lineNumbers.contains(Integer.valueOf(task.getIdentifier())) || selector.test(task);
+  }
+
+  private void validateLines(List<String> newLines) { newLines.forEach(this::validateLine); }
+
+  private void validateLine(String line)
+  {
+    if (line.contains("\n"))
+    {
+      throw new IllegalStateException("Line contains newline!: [" + line + "].");
+    }
+    
+    if (line.trim().isEmpty())
+    {
+      throw new IllegalStateException("Line is empty!: [" + line + "].");
     }
   }
   
@@ -145,21 +449,10 @@ public class TaskMover
    */
   private Task getNewTask(Task task)
   {
-    if (!lineNumbers.contains(new Integer(task.getIdentifier()))) { return task; }
+    if (!isSelected(task)) { return task; }
     
-    String dayFieldRegex = " day:[\\p{Alpha}_]+";
-    String todFieldRegex = " tod:[\\p{Alpha}_]+";
-
-    DayHelper dayHelper = new DayHelper();
+    movedLineNumbers.add(Integer.valueOf(task.getIdentifier()));
     
-		String newLineText 
-			= task.getLineText().replaceAll(dayFieldRegex, " day:" + dayHelper.getIdentifier(day))
-			                    .replaceAll(todFieldRegex, " tod:" + timeOfDay.getIdentifier());
-
-		
-		return new Task(newLineText, task.getIdentifier(), task.isCompleted(), 
-    								  task.getPriority(), task.getColorCode(), Optional.of(day), 
-    								  Optional.of(timeOfDay), task.getProjects(), task.getContexts(), 
-    								  task.getMessage());
+    return task.moveTo(day, timeOfDay);
   }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package mattmunz.todo.cli;
+
+import static java.nio.file.Files.exists;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import mattmunz.todo.Task;
+
+/**
+ * Searches a todo file's task text, using a {@link TrigramIndex} kept next to it.
+ * 
+ * Usage: TaskSearcher TODO_FILE TERM...
+ * 
+ * Terms which are {@link TaskSelector} query terms, e.g. @Home or day:M, filter the tasks as in 
+ * {@link TaskMover}. All other terms are words, or quoted phrases, which must occur in the task's 
+ * message, ignoring case. A task is printed, with its line number, if it matches all of the 
+ * terms. Matches are printed in {@link Sorter} order.
+ * 
+ * Only the lines the index points to are read and parsed.
+ */
+public class TaskSearcher
+{
+  private static final String USAGE = "Usage: TaskSearcher TODO_FILE TERM...";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    if (arguments.length < 2) { throw new IllegalArgumentException(USAGE); }
+    
+    Path todoTxtFile = FileSystems.getDefault().getPath(arguments[0]);
+    
+    if (!exists(todoTxtFile)) 
+    {
+      throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile); 
+    }
+    
+    List<String> terms = new ArrayList<String>();
+    List<String> words = new ArrayList<String>();
+    
+    for (int i = 1; i < arguments.length; i++)
+    {
+      (TaskSelector.isSelectorTerm(arguments[i]) ? terms : words).add(arguments[i]);
+    }
+    
+    new TaskSearcher(todoTxtFile, words, new TaskSelector(terms)).search()
+      .forEach(task -> System.out.println(task.getLineText()));
+  }
+
+  private final Path todoTxtFile;
+  private final List<String> words;
+  private final TaskSelector selector;
+  
+  TaskSearcher(Path todoTxtFile, List<String> words, TaskSelector selector)
+  {
+    this.todoTxtFile = todoTxtFile;
+    this.words = words.stream().map(String::toLowerCase).collect(toList());
+    this.selector = selector;
+  }
+
+  List<Task> search() throws IOException
+  {
+    TrigramIndex index = TrigramIndex.open(todoTxtFile);
+    
+    List<Task> tasks = new ArrayList<Task>();
+    
+    try (FileChannel channel = FileChannel.open(todoTxtFile, READ))
+    {
+      for (int lineIndex : index.getLines(getKeys()))
+      {
+        String line = index.readLine(channel, lineIndex);
+        
+        if (line.trim().isEmpty()) { continue; }
+        
+        Task task = new Task(Task.addIdentifier("" + (lineIndex + 1), line));
+        
+        if (isMatch(task)) { tasks.add(task); }
+      }
+    }
+    
+    tasks.sort(new Sorter().getOrdering());
+    
+    return tasks;
+  }
+
+  /**
+   * Words and the context and project terms narrow the search through the index. The other 
+   * selector terms are only checked on the parsed tasks.
+   */
+  private int[] getKeys()
+  {
+    IntStream wordKeys 
+      = words.stream().flatMapToInt(word -> IntStream.of(TrigramIndex.getWordKeys(word)));
+    IntStream fieldKeys 
+      = selector.getTerms().stream().filter(term -> term.startsWith("@") || term.startsWith("+"))
+                .mapToInt(term -> TrigramIndex.getFieldKey(term.substring(0, 1), 
+                                                           term.substring(1)));
+    
+    return IntStream.concat(wordKeys, fieldKeys).distinct().toArray();
+  }
+
+  private boolean isMatch(Task task)
+  {
+    String message = task.getMessage().toLowerCase();
+    
+    for (String word : words)
+    {
+      if (!message.contains(word)) { return false; }
+    }
+    
+    return selector.isEmpty() || selector.test(task);
+  }
+}
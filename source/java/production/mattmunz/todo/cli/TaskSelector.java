@@ -0,0 +1,201 @@
+package mattmunz.todo.cli;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import mattmunz.time.DayHelper;
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+import mattmunz.todo.TodoDate;
+
+/**
+ * Selects tasks matching all of a list of query terms:
+ * 
+ *   - @Context    tasks with the context
+ *   - +Project    tasks with the project
+ *   - day:D       tasks on day D, e.g. day:M
+ *   - tod:T       tasks at time of day T, e.g. tod:A
+ *   - (P)         tasks with priority P, e.g. (A)
+ *   - x           completed tasks
+ *   - !x          incomplete tasks
+ *   - created<D   tasks created before date D, e.g. created<2016-03-01
+ *   - created>=D  tasks created on or after date D
+ *   - done<D      tasks completed before date D
+ *   - done>=D     tasks completed on or after date D, e.g. done>=-7 for the last week
+ * 
+ * Dates are yyyy-MM-dd, or -N for N days before today. Tasks without the date never match a 
+ * date term. Date terms compare the tasks' epoch day ints, see {@link TodoDate}.
+ * 
+ * An empty list of terms selects nothing.
+ */
+class TaskSelector implements Predicate<Task>
+{
+  /**
+   * @return true if the argument is a query term rather than e.g. a line number
+   */
+  static boolean isTerm(String argument) { return !argument.matches("\\d+"); }
+  
+  /**
+   * @return true if the argument is one of the terms above, rather than e.g. a search word
+   */
+  static boolean isSelectorTerm(String argument)
+  {
+    return argument.equals("x") || argument.equals("!x") || argument.startsWith("@") 
+           || argument.startsWith("+") || argument.startsWith("day:") 
+           || argument.startsWith("tod:") || argument.matches("\\(\\p{Upper}\\)")
+           || argument.startsWith("created<") || argument.startsWith("created>=") 
+           || argument.startsWith("done<") || argument.startsWith("done>=");
+  }
+  
+  private final List<String> terms;
+  private final Predicate<Task> predicate;
+  
+  TaskSelector(List<String> terms)
+  {
+    this.terms = terms;
+    
+    DayHelper dayHelper = new DayHelper();
+    
+    predicate = terms.stream().map(term -> createPredicate(term, dayHelper))
+                     .reduce(Predicate::and).orElse(task -> false);
+  }
+
+  TaskSelector() { this(Collections.emptyList()); }
+
+  @Override
+  public boolean test(Task task) { return predicate.test(task); }
+
+  boolean isEmpty() { return terms.isEmpty(); }
+  
+  List<String> getTerms() { return terms; }
+  
+  /**
+   * @return The day of a day: term, which every selected task must be on, if there is one
+   */
+  Optional<DayOfWeek> getDay()
+  {
+    return terms.stream().filter(term -> term.startsWith("day:")).findFirst()
+                .map(term -> new DayHelper().getDayOfWeek(getValue(term, 4)));
+  }
+
+  @Override
+  public String toString() { return terms.toString(); }
+
+  private Predicate<Task> createPredicate(String term, DayHelper dayHelper)
+  {
+    if (term.equals("x")) { return Task::isCompleted; }
+    
+    if (term.equals("!x")) { return task -> !task.isCompleted(); }
+    
+    if (term.startsWith("@")) 
+    { 
+      String context = getValue(term, 1);
+      return task -> task.getContexts().contains(context); 
+    }
+    
+    if (term.startsWith("+")) 
+    { 
+      String project = getValue(term, 1);
+      return task -> task.getProjects().contains(project); 
+    }
+    
+    if (term.startsWith("day:")) 
+    { 
+      Optional<DayOfWeek> day = Optional.of(dayHelper.getDayOfWeek(getValue(term, 4)));
+      return task -> task.getDay().equals(day); 
+    }
+    
+    if (term.startsWith("tod:")) 
+    { 
+      Optional<TimeOfDay> timeOfDay = Optional.of(TimeOfDay.forIdentifier(getValue(term, 4)));
+      return task -> task.getTimeOfDay().equals(timeOfDay); 
+    }
+    
+    if (term.matches("\\(\\p{Upper}\\)")) 
+    { 
+      Optional<String> priority = Optional.of(term.substring(1, 2));
+      return task -> task.getPriority().equals(priority); 
+    }
+    
+    if (term.startsWith("created<")) 
+    { 
+      return createDatePredicate(Task::getCreationEpochDay, getDate(term, 8), false); 
+    }
+    
+    if (term.startsWith("created>=")) 
+    { 
+      return createDatePredicate(Task::getCreationEpochDay, getDate(term, 9), true); 
+    }
+    
+    if (term.startsWith("done<")) 
+    { 
+      return createDatePredicate(Task::getCompletionEpochDay, getDate(term, 5), false); 
+    }
+    
+    if (term.startsWith("done>=")) 
+    { 
+      return createDatePredicate(Task::getCompletionEpochDay, getDate(term, 6), true); 
+    }
+    
+    throw new IllegalArgumentException("Unknown query term: " + term);
+  }
+
+  private Predicate<Task> createDatePredicate(ToIntFunction<Task> epochDay, int bound, 
+                                              boolean isOnOrAfter)
+  {
+    return task -> 
+    {
+      int day = epochDay.applyAsInt(task);
+      
+      return day != TodoDate.NONE && (isOnOrAfter ? day >= bound : day < bound);
+    };
+  }
+
+  private int getDate(String term, int labelLength)
+  {
+    String value = getValue(term, labelLength);
+    
+    if (value.matches("-\\d+")) { return TodoDate.today() - Integer.parseInt(value.substring(1)); }
+    
+    int epochDay = TodoDate.parse(value, 0);
+    
+    if (epochDay == TodoDate.NONE || value.length() != TodoDate.LENGTH) 
+    { 
+      throw new IllegalArgumentException("Invalid date in query term: " + term); 
+    }
+    
+    return epochDay;
+  }
+
+  private String getValue(String term, int labelLength)
+  {
+    if (term.length() <= labelLength) 
+    { 
+      throw new IllegalArgumentException("Query term has no value: " + term); 
+    }
+    
+    return term.substring(labelLength);
+  }
+  
+  /**
+   * Splits the arguments into terms and others, e.g. line numbers.
+   * 
+   * @return The terms
+   */
+  static List<String> removeTerms(List<String> arguments, int firstIndex)
+  {
+    List<String> terms = new ArrayList<String>();
+    
+    for (int i = arguments.size() - 1; i >= firstIndex; i--)
+    {
+      if (isTerm(arguments.get(i))) { terms.add(0, arguments.remove(i)); }
+    }
+    
+    return terms;
+  }
+}
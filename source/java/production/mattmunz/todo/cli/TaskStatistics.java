@@ -0,0 +1,153 @@
+package mattmunz.todo.cli;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+
+/**
+ * Task and completed task counts per context, project, day, time slot and priority. 
+ * 
+ * Counts are kept in int arrays: contexts and projects by their {@link NameInterner} id, days by 
+ * {@link DayOfWeek} ordinal, then unscheduled; time slots by day index and {@link TimeOfDay} 
+ * ordinal, then no time of day; priorities A to Z, the only ones the parser accepts, then none. 
+ * One instance accumulates per thread, and instances are combined with 
+ * {@link #merge(TaskStatistics)}, so a parallel stream can collect into them.
+ */
+class TaskStatistics
+{
+  static final int DAY_COUNT = DayOfWeek.values().length + 1;
+  static final int SLOTS_PER_DAY = TimeOfDay.values().length + 1;
+  static final int PRIORITY_COUNT = 'Z' - 'A' + 2;
+  
+  private final NameInterner contextNames;
+  private final NameInterner projectNames;
+  private final Counts totals = new Counts(1);
+  private final Counts contexts = new Counts(16);
+  private final Counts projects = new Counts(16);
+  private final Counts days = new Counts(DAY_COUNT);
+  private final Counts slots = new Counts(DAY_COUNT * SLOTS_PER_DAY);
+  private final Counts priorities = new Counts(PRIORITY_COUNT);
+
+  TaskStatistics(NameInterner contextNames, NameInterner projectNames)
+  {
+    this.contextNames = contextNames;
+    this.projectNames = projectNames;
+  }
+
+  void add(Task task)
+  {
+    boolean isCompleted = task.isCompleted();
+    
+    totals.add(0, isCompleted);
+    
+    for (String context : task.getContexts()) 
+    { 
+      contexts.add(contextNames.getId(context), isCompleted); 
+    }
+    
+    for (String project : task.getProjects()) 
+    { 
+      projects.add(projectNames.getId(project), isCompleted); 
+    }
+    
+    int day = task.getDay().map(DayOfWeek::ordinal).orElse(DAY_COUNT - 1);
+    int timeOfDay = task.getTimeOfDay().map(TimeOfDay::ordinal).orElse(SLOTS_PER_DAY - 1);
+    
+    days.add(day, isCompleted);
+    slots.add(day * SLOTS_PER_DAY + timeOfDay, isCompleted);
+    
+    int priority 
+      = task.getPriority().map(letter -> letter.charAt(0) - 'A').orElse(PRIORITY_COUNT - 1);
+    
+    priorities.add(priority, isCompleted);
+  }
+
+  /**
+   * Adds the other's counts to these. Both must share the same interners.
+   */
+  TaskStatistics merge(TaskStatistics other)
+  {
+    if (other.contextNames != contextNames || other.projectNames != projectNames)
+    {
+      throw new IllegalArgumentException("Statistics use different interners");
+    }
+    
+    totals.merge(other.totals);
+    contexts.merge(other.contexts);
+    projects.merge(other.projects);
+    days.merge(other.days);
+    slots.merge(other.slots);
+    priorities.merge(other.priorities);
+    
+    return this;
+  }
+
+  NameInterner getContextNames() { return contextNames; }
+
+  NameInterner getProjectNames() { return projectNames; }
+
+  Counts getTotals() { return totals; }
+
+  Counts getContexts() { return contexts; }
+
+  Counts getProjects() { return projects; }
+
+  Counts getDays() { return days; }
+
+  Counts getSlots() { return slots; }
+
+  Counts getPriorities() { return priorities; }
+
+  static class Counts
+  {
+    private int[] taskCounts;
+    private int[] completedCounts;
+
+    private Counts(int size)
+    {
+      taskCounts = new int[size];
+      completedCounts = new int[size];
+    }
+
+    int size() { return taskCounts.length; }
+    
+    int getTaskCount(int index) { return index < taskCounts.length ? taskCounts[index] : 0; }
+
+    int getCompletedCount(int index) 
+    { 
+      return index < completedCounts.length ? completedCounts[index] : 0; 
+    }
+
+    private void add(int index, boolean isCompleted)
+    {
+      ensureSize(index + 1);
+      
+      taskCounts[index]++;
+      
+      if (isCompleted) { completedCounts[index]++; }
+    }
+
+    private void merge(Counts other)
+    {
+      ensureSize(other.size());
+      
+      for (int i = 0; i < other.size(); i++)
+      {
+        taskCounts[i] += other.taskCounts[i];
+        completedCounts[i] += other.completedCounts[i];
+      }
+    }
+
+    private void ensureSize(int size)
+    {
+      if (size <= taskCounts.length) { return; }
+      
+      int newSize = Math.max(size, taskCounts.length * 2);
+      
+      taskCounts = Arrays.copyOf(taskCounts, newSize);
+      completedCounts = Arrays.copyOf(completedCounts, newSize);
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.write;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mattmunz.todo.archive.SnapshotArchiver;
+import mattmunz.todo.sync.Hunk;
+import mattmunz.todo.sync.SyncPacket;
+import mattmunz.todo.sync.SyncPacket.Kind;
+import mattmunz.todo.sync.ThreeWayMerge;
+import mattmunz.todo.sync.ThreeWayMerge.Conflict;
+
+/**
+ * Keeps two copies of a todo file, e.g. on a laptop and a server, in step through a directory
+ * both can reach, sending only changed lines.
+ * 
+ * Usage: TodoSync (send | receive) TODO_FILE DROP_DIRECTORY
+ * 
+ * One copy sends its changes since the last sync, as a {@link SyncPacket}. The other receives
+ * them, merges them with its own changes, see {@link ThreeWayMerge}, and sends the result back,
+ * which the first then receives. Each copy keeps the last synced version, and an id for its
+ * packets, in TODO_FILE.sync. Before the first sync that version is empty, so the first sync
+ * sends the whole file; lines both copies already have in the same place merge cleanly.
+ * 
+ * Conflicting lines are reported, and each copy keeps its own lines for them; the next sync
+ * sends the first copy's lines to the other. The todo file is snapshotted, as by
+ * {@link TaskMover}, before it's replaced.
+ * 
+ * If both copies send before either receives, the requests cross. The copy with the lower id 
+ * answers the other's request and withdraws its own, since its reply carries both sets of 
+ * changes; the other copy leaves the request for it and waits for the reply. A packet which 
+ * wasn't sent from our last synced version can't be applied, so it is reported and dropped.
+ */
+public class TodoSync
+{
+  private static final String USAGE = "Usage: TodoSync (send | receive) TODO_FILE DROP_DIRECTORY";
+  private static final String PACKET_FILE_NAME_REGEX = "\\p{XDigit}+\\.(request|reply)";
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    if (arguments.length != 3) { throw new IllegalArgumentException(USAGE); }
+    
+    Path todoTxtFile = FileSystems.getDefault().getPath(arguments[1]);
+    Path dropDirectory = FileSystems.getDefault().getPath(arguments[2]);
+    
+    if (!exists(todoTxtFile))
+    {
+      throw new IllegalArgumentException("ToDo File doesn't extist: " + todoTxtFile);
+    }
+    
+    if (!isDirectory(dropDirectory))
+    {
+      throw new IllegalArgumentException("Not a directory: " + dropDirectory);
+    }
+    
+    TodoSync sync = new TodoSync(todoTxtFile, dropDirectory);
+    
+    if (arguments[0].equals("send")) { sync.send(); }
+    else if (arguments[0].equals("receive")) { sync.receive(); }
+    else { throw new IllegalArgumentException(USAGE); }
+  }
+  
+  private final Path todoTxtFile;
+  private final Path dropDirectory;
+  private final Path stateDirectory;
+  private final String id;
+  
+  private TodoSync(Path todoTxtFile, Path dropDirectory) throws IOException
+  {
+    this.todoTxtFile = todoTxtFile;
+    this.dropDirectory = dropDirectory;
+    
+    stateDirectory = todoTxtFile.resolveSibling(todoTxtFile.getFileName() + ".sync");
+    id = getId();
+  }
+  
+  private String getId() throws IOException
+  {
+    Path idFile = stateDirectory.resolve("id");
+    
+    if (exists(idFile)) { return readAllLines(idFile, UTF_8).get(0); }
+    
+    String newId = Long.toHexString(new SecureRandom().nextLong());
+    
+    createDirectories(stateDirectory);
+    replace(idFile, asList(newId));
+    
+    return newId;
+  }
+  
+  private void send() throws IOException
+  {
+    List<String> base = readBase();
+    List<String> lines = readAllLines(todoTxtFile, UTF_8);
+    
+    SyncPacket packet = new SyncPacket(id, Kind.REQUEST, base, lines);
+    
+    writePacket(packet);
+    printSent(packet);
+  }
+  
+  /**
+   * Receives a request, merges it and sends the reply, or receives a reply.
+   */
+  private void receive() throws IOException
+  {
+    List<Path> packetFiles = getIncomingPacketFiles();
+    
+    if (packetFiles.isEmpty())
+    {
+      System.out.println("Nothing to receive in " + dropDirectory + ".");
+      return;
+    }
+    
+    for (Path packetFile : packetFiles)
+    {
+      SyncPacket packet = SyncPacket.read(packetFile);
+      
+      if (packet.getKind() == Kind.REQUEST && exists(getPacketFile(Kind.REQUEST)))
+      {
+        if (id.compareTo(packet.getSenderId()) > 0)
+        {
+          System.out.println("Our request crossed " + packet.getSenderId() + "'s. Waiting for "
+                             + packet.getSenderId() + " to reply to both.");
+          continue;
+        }
+        
+        deleteIfExists(getPacketFile(Kind.REQUEST));
+        System.out.println("Our request crossed " + packet.getSenderId() + "'s. Withdrew ours; "
+                           + "the reply carries both.");
+      }
+      
+      List<String> base = readBase();
+      
+      if (!packet.isBasedOn(base))
+      {
+        System.out.println("Dropped " + packetFile.getFileName() + " from "
+                           + packet.getSenderId() + ": it wasn't sent from our last synced "
+                           + "version.");
+        deleteIfExists(packetFile);
+        continue;
+      }
+      
+      List<String> theirs = packet.getResult(base);
+      List<String> ours = readAllLines(todoTxtFile, UTF_8);
+      ThreeWayMerge merge = new ThreeWayMerge(base, ours, theirs);
+      
+      if (!merge.getLines().equals(ours)) { replaceTodoTxtFile(merge.getLines()); }
+      
+      System.out.println("Received " + getLineCount(packet.getHunks()) + " changed line(s) from "
+                         + packet.getSenderId() + ".");
+      
+      for (Conflict conflict : merge.getConflicts()) { System.out.println(conflict); }
+      
+      if (packet.getKind() == Kind.REQUEST)
+      {
+        SyncPacket reply = new SyncPacket(id, Kind.REPLY, base, merge.getLines());
+        
+        writePacket(reply);
+        printSent(reply);
+        writeBase(merge.getLines());
+      }
+      else { writeBase(theirs); }
+      
+      deleteIfExists(packetFile);
+    }
+  }
+  
+  /**
+   * Packets are named SENDER.KIND; ours are skipped, as are packets still being written, whose 
+   * names start with a dot.
+   */
+  private List<Path> getIncomingPacketFiles() throws IOException
+  {
+    try (Stream<Path> files = list(dropDirectory))
+    {
+      return files.filter(file -> file.getFileName().toString().matches(PACKET_FILE_NAME_REGEX))
+                  .filter(file -> !file.getFileName().toString().startsWith(id + "."))
+                  .sorted().collect(toList());
+    }
+  }
+  
+  private Path getPacketFile(Kind kind)
+  {
+    return dropDirectory.resolve(id + "." + kind.toString().toLowerCase());
+  }
+  
+  private void writePacket(SyncPacket packet) throws IOException
+  {
+    Path packetFile = getPacketFile(packet.getKind());
+    Path newPacketFile = createTempFile(dropDirectory, "." + id, ".new");
+    
+    try
+    {
+      packet.write(newPacketFile);
+      move(newPacketFile, packetFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+    finally { deleteIfExists(newPacketFile); }
+  }
+  
+  private void printSent(SyncPacket packet)
+  {
+    System.out.println("Sent " + getLineCount(packet.getHunks()) + " changed line(s) in "
+                       + packet.getHunks().size() + " hunk(s) as " + id + ".");
+  }
+  
+  private int getLineCount(List<Hunk> hunks)
+  {
+    return hunks.stream().mapToInt(hunk -> hunk.getLines().size()).sum();
+  }
+  
+  private List<String> readBase() throws IOException
+  {
+    Path baseFile = stateDirectory.resolve("base");
+    
+    return exists(baseFile) ? readAllLines(baseFile, UTF_8) : new ArrayList<String>();
+  }
+  
+  private void writeBase(List<String> lines) throws IOException
+  {
+    replace(stateDirectory.resolve("base"), lines);
+  }
+  
+  private void replaceTodoTxtFile(List<String> lines) throws IOException
+  {
+    try (SnapshotArchiver archiver
+           = SnapshotArchiver.create(todoTxtFile.toAbsolutePath().getParent().resolve("archive")))
+    {
+      archiver.takeSnapshot(todoTxtFile);
+      
+      replace(todoTxtFile, lines);
+    }
+  }
+  
+  /**
+   * Writes a new file next to the old one, then replaces it.
+   */
+  private void replace(Path file, List<String> lines) throws IOException
+  {
+    Path newFile = createTempFile(file.toAbsolutePath().getParent(), "" + file.getFileName(),
+                                  ".new");
+    
+    try
+    {
+      write(newFile, lines, UTF_8);
+      move(newFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+    finally { deleteIfExists(newFile); }
+  }
+}
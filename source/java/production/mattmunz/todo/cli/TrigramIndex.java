@@ -0,0 +1,497 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.size;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import mattmunz.todo.Task;
+
+/**
+ * An index from the trigrams of each task's lower cased {@link Task#getMessage() message}, and
+ * from its contexts and projects, to the lines that contain them. Also records where each line
+ * starts in the todo file, so matching lines can be read without scanning the file.
+ * 
+ * The index is kept in a binary file next to the todo file, named after it with a .trigrams
+ * extension. It records the todo file's size and modification time; when either has changed,
+ * {@link #update()} re-reads the file's raw lines and only parses those whose length and 64 bit
+ * fingerprint don't match an indexed line's. Unchanged lines keep their postings, renumbered if
+ * they moved. The old lines' bytes are gone by then, so a changed line is only mistaken for an
+ * unchanged one if both its length and its fingerprint collide.
+ * 
+ * File format, all big endian: magic, version, todo file size and modification time, line
+ * count; per line its byte offset, length and fingerprint; key count; per key the key, its 
+ * posting count and its line indexes as variable length deltas.
+ */
+class TrigramIndex
+{
+  private static final int MAGIC = 0x54524947;
+  private static final int VERSION = 2;
+  private static final int[] NO_LINES = {};
+  
+  static Path getIndexFile(Path todoTxtFile)
+  {
+    return todoTxtFile.resolveSibling(todoTxtFile.getFileName() + ".trigrams");
+  }
+  
+  /**
+   * @return The index for the file, brought up to date and saved if it wasn't
+   */
+  static TrigramIndex open(Path todoTxtFile) throws IOException
+  {
+    TrigramIndex index = new TrigramIndex(todoTxtFile);
+    
+    if (exists(index.indexFile)) { index.load(); }
+    
+    if (!index.isCurrent())
+    {
+      index.update();
+      index.save();
+    }
+    
+    return index;
+  }
+  
+  /**
+   * @return The keys for a search word, i.e. its trigrams. One or two letter words have none.
+   */
+  static int[] getWordKeys(String word)
+  {
+    String text = word.toLowerCase();
+    
+    if (text.length() < 3) { return new int[0]; }
+    
+    int[] keys = new int[text.length() - 2];
+    
+    for (int i = 0; i < keys.length; i++) { keys[i] = getTrigramKey(text, i); }
+    
+    return keys;
+  }
+  
+  /**
+   * Fields are kept apart from trigrams by a leading 0 character.
+   */
+  static int getFieldKey(String label, String value) { return ("\0" + label + value).hashCode(); }
+  
+  private static int getTrigramKey(String text, int start)
+  {
+    return (text.charAt(start) * 31 + text.charAt(start + 1)) * 31 + text.charAt(start + 2);
+  }
+  
+  private final Path todoTxtFile;
+  private final Path indexFile;
+  
+  private long fileSize = -1;
+  private long modifiedTime = -1;
+  private long[] lineOffsets = new long[0];
+  private int[] lineLengths = new int[0];
+  private long[] lineFingerprints = new long[0];
+  private Map<Integer, int[]> postings = new HashMap<Integer, int[]>();
+  private int parsedLineCount;
+  
+  private TrigramIndex(Path todoTxtFile)
+  {
+    this.todoTxtFile = todoTxtFile.toAbsolutePath();
+    
+    indexFile = getIndexFile(this.todoTxtFile);
+  }
+  
+  int getLineCount() { return lineOffsets.length; }
+  
+  /**
+   * @return The number of lines parsed by the last {@link #update()}
+   */
+  int getParsedLineCount() { return parsedLineCount; }
+  
+  boolean isCurrent() throws IOException
+  {
+    return fileSize == size(todoTxtFile)
+           && modifiedTime == getLastModifiedTime(todoTxtFile).toMillis();
+  }
+  
+  /**
+   * @return The indexes, in order, of the lines which have all of the keys. These may include
+   *         lines which don't match, as keys are hashes, but never leave out one that does.
+   */
+  int[] getLines(int[] keys)
+  {
+    int[] lines = null;
+    
+    for (int key : keys)
+    {
+      int[] keyLines = postings.getOrDefault(key, NO_LINES);
+      
+      lines = lines == null ? keyLines : intersect(lines, keyLines);
+      
+      if (lines.length == 0) { break; }
+    }
+    
+    return lines == null ? getAllLines() : lines;
+  }
+  
+  /**
+   * Reads one line straight from its recorded position in the todo file.
+   */
+  String readLine(FileChannel channel, int lineIndex) throws IOException
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(lineLengths[lineIndex]);
+    
+    long position = lineOffsets[lineIndex];
+    
+    while (buffer.hasRemaining())
+    {
+      if (channel.read(buffer, position + buffer.position()) < 0)
+      {
+        throw new IllegalStateException("Index is out of date: " + indexFile);
+      }
+    }
+    
+    return new String(buffer.array(), UTF_8);
+  }
+  
+  void update() throws IOException
+  {
+    Map<Long, Deque<Integer>> oldLinesByFingerprint = new HashMap<Long, Deque<Integer>>();
+    
+    for (int i = 0; i < lineFingerprints.length; i++)
+    {
+      oldLinesByFingerprint.computeIfAbsent(lineFingerprints[i], 
+                                            fingerprint -> new ArrayDeque<Integer>()).add(i);
+    }
+    
+    int[] newLineIndexes = new int[lineFingerprints.length];
+    
+    Arrays.fill(newLineIndexes, -1);
+    
+    LineList lines = new LineList();
+    Map<Integer, Set<Integer>> newPostings = new HashMap<Integer, Set<Integer>>();
+    
+    parsedLineCount = 0;
+    fileSize = size(todoTxtFile);
+    modifiedTime = getLastModifiedTime(todoTxtFile).toMillis();
+    
+    try (InputStream input = newInputStream(todoTxtFile))
+    {
+      ByteLineReader lineReader = new ByteLineReader(input);
+      
+      long offset = 0;
+      
+      while (lineReader.next())
+      {
+        long fingerprint = lineReader.getFingerprint();
+        int lineIndex = lines.add(offset, lineReader.getLength(), fingerprint);
+        
+        offset += lineReader.getByteCount();
+        
+        Deque<Integer> oldLines = oldLinesByFingerprint.get(fingerprint);
+        
+        if (oldLines != null && !oldLines.isEmpty() 
+            && lineLengths[oldLines.peek()] == lineReader.getLength())
+        {
+          newLineIndexes[oldLines.poll()] = lineIndex;
+        }
+        else if (!lineReader.isBlank())
+        {
+          addKeys(new Task(Task.addIdentifier("" + (lineIndex + 1), lineReader.getText())), 
+                  lineIndex, newPostings);
+          parsedLineCount++;
+        }
+      }
+    }
+    
+    postings = mergePostings(newLineIndexes, newPostings);
+    lineOffsets = lines.getOffsets();
+    lineLengths = lines.getLengths();
+    lineFingerprints = lines.getFingerprints();
+  }
+  
+  /**
+   * Writes a new index file next to the old one, then replaces it.
+   */
+  void save() throws IOException
+  {
+    Path newIndexFile
+      = createTempFile(indexFile.getParent(), "" + indexFile.getFileName(), ".new");
+    
+    try
+    {
+      try (DataOutputStream output
+             = new DataOutputStream(new BufferedOutputStream(newOutputStream(newIndexFile))))
+      {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(fileSize);
+        output.writeLong(modifiedTime);
+        output.writeInt(lineOffsets.length);
+        
+        for (int i = 0; i < lineOffsets.length; i++)
+        {
+          output.writeLong(lineOffsets[i]);
+          output.writeInt(lineLengths[i]);
+          output.writeLong(lineFingerprints[i]);
+        }
+        
+        output.writeInt(postings.size());
+        
+        for (Map.Entry<Integer, int[]> entry : postings.entrySet())
+        {
+          output.writeInt(entry.getKey());
+          output.writeInt(entry.getValue().length);
+          
+          int previousLine = 0;
+          
+          for (int line : entry.getValue())
+          {
+            writeVariableLength(output, line - previousLine);
+            previousLine = line;
+          }
+        }
+      }
+      
+      move(newIndexFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+    finally { deleteIfExists(newIndexFile); }
+  }
+  
+  /**
+   * An index file that can't be read, or whose counts and line indexes don't fit in it, is 
+   * ignored, and rebuilt by the next update.
+   */
+  private void load() throws IOException
+  {
+    long indexFileSize = size(indexFile);
+    
+    try (DataInputStream input
+           = new DataInputStream(new BufferedInputStream(newInputStream(indexFile))))
+    {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) { return; }
+      
+      long loadedFileSize = input.readLong();
+      long loadedModifiedTime = input.readLong();
+      int lineCount = readCount(input, indexFileSize / 20);
+      
+      long[] loadedLineOffsets = new long[lineCount];
+      int[] loadedLineLengths = new int[lineCount];
+      long[] loadedLineFingerprints = new long[lineCount];
+      
+      for (int i = 0; i < lineCount; i++)
+      {
+        loadedLineOffsets[i] = input.readLong();
+        loadedLineLengths[i] = input.readInt();
+        loadedLineFingerprints[i] = input.readLong();
+      }
+      
+      int keyCount = readCount(input, indexFileSize / 8);
+      
+      Map<Integer, int[]> loadedPostings = new HashMap<Integer, int[]>(keyCount * 2);
+      
+      for (int k = 0; k < keyCount; k++)
+      {
+        int key = input.readInt();
+        int[] lines = new int[readCount(input, lineCount)];
+        
+        int line = 0;
+        
+        for (int i = 0; i < lines.length; i++)
+        {
+          line += readVariableLength(input);
+          
+          if (line < 0 || line >= lineCount || (i > 0 && line <= lines[i - 1])) { return; }
+          
+          lines[i] = line;
+        }
+        
+        loadedPostings.put(key, lines);
+      }
+      
+      fileSize = loadedFileSize;
+      modifiedTime = loadedModifiedTime;
+      lineOffsets = loadedLineOffsets;
+      lineLengths = loadedLineLengths;
+      lineFingerprints = loadedLineFingerprints;
+      postings = loadedPostings;
+    }
+    catch (IOException exception) { return; }
+  }
+  
+  /**
+   * @throws IOException If the count is negative or over the maximum
+   */
+  private int readCount(DataInputStream input, long maximumCount) throws IOException
+  {
+    int count = input.readInt();
+    
+    if (count < 0 || count > maximumCount)
+    {
+      throw new IOException("Invalid count in " + indexFile + ": " + count);
+    }
+    
+    return count;
+  }
+  
+  private void addKeys(Task task, int lineIndex, Map<Integer, Set<Integer>> newPostings)
+  {
+    String message = task.getMessage().toLowerCase();
+    
+    for (int i = 0; i + 3 <= message.length(); i++)
+    {
+      addPosting(newPostings, getTrigramKey(message, i), lineIndex);
+    }
+    
+    task.getContexts().forEach(context -> addPosting(newPostings, getFieldKey("@", context),
+                                                     lineIndex));
+    task.getProjects().forEach(project -> addPosting(newPostings, getFieldKey("+", project),
+                                                     lineIndex));
+  }
+  
+  private void addPosting(Map<Integer, Set<Integer>> newPostings, int key, int lineIndex)
+  {
+    newPostings.computeIfAbsent(key, k -> new TreeSet<Integer>()).add(lineIndex);
+  }
+  
+  /**
+   * Renumbers the kept lines' postings, which are sorted again as lines may have moved, and adds 
+   * the newly parsed lines' postings to them.
+   */
+  private Map<Integer, int[]> mergePostings(int[] newLineIndexes,
+                                            Map<Integer, Set<Integer>> newPostings)
+  {
+    Map<Integer, int[]> mergedPostings = new HashMap<Integer, int[]>(postings.size() * 2);
+    
+    for (Map.Entry<Integer, int[]> entry : postings.entrySet())
+    {
+      int[] lines = Arrays.stream(entry.getValue()).map(line -> newLineIndexes[line])
+                          .filter(line -> line >= 0).sorted().toArray();
+      
+      if (lines.length > 0) { mergedPostings.put(entry.getKey(), lines); }
+    }
+    
+    for (Map.Entry<Integer, Set<Integer>> entry : newPostings.entrySet())
+    {
+      int[] keptLines = mergedPostings.getOrDefault(entry.getKey(), NO_LINES);
+      int[] addedLines = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+      int[] lines = Arrays.copyOf(keptLines, keptLines.length + addedLines.length);
+      
+      System.arraycopy(addedLines, 0, lines, keptLines.length, addedLines.length);
+      Arrays.sort(lines);
+      
+      mergedPostings.put(entry.getKey(), lines);
+    }
+    
+    return mergedPostings;
+  }
+  
+  private int[] getAllLines()
+  {
+    int[] lines = new int[lineOffsets.length];
+    
+    for (int i = 0; i < lines.length; i++) { lines[i] = i; }
+    
+    return lines;
+  }
+  
+  private int[] intersect(int[] left, int[] right)
+  {
+    int[] lines = new int[Math.min(left.length, right.length)];
+    
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    
+    while (i < left.length && j < right.length)
+    {
+      if (left[i] < right[j]) { i++; }
+      else if (left[i] > right[j]) { j++; }
+      else
+      {
+        lines[count++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    
+    return Arrays.copyOf(lines, count);
+  }
+  
+  private void writeVariableLength(DataOutputStream output, int value) throws IOException
+  {
+    while ((value & ~0x7F) != 0)
+    {
+      output.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    
+    output.writeByte(value);
+  }
+  
+  private int readVariableLength(DataInputStream input) throws IOException
+  {
+    int value = 0;
+    
+    for (int shift = 0; ; shift += 7)
+    {
+      int nextByte = input.readUnsignedByte();
+      
+      value |= (nextByte & 0x7F) << shift;
+      
+      if ((nextByte & 0x80) == 0) { return value; }
+    }
+  }
+  
+  /**
+   * Growable columns of line positions and fingerprints.
+   */
+  private static class LineList
+  {
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private long[] fingerprints = new long[1024];
+    private int size;
+    
+    int add(long offset, int length, long fingerprint)
+    {
+      if (size == offsets.length)
+      {
+        offsets = Arrays.copyOf(offsets, size * 2);
+        lengths = Arrays.copyOf(lengths, size * 2);
+        fingerprints = Arrays.copyOf(fingerprints, size * 2);
+      }
+      
+      offsets[size] = offset;
+      lengths[size] = length;
+      fingerprints[size] = fingerprint;
+      
+      return size++;
+    }
+    
+    long[] getOffsets() { return Arrays.copyOf(offsets, size); }
+    
+    int[] getLengths() { return Arrays.copyOf(lengths, size); }
+    
+    long[] getFingerprints() { return Arrays.copyOf(fingerprints, size); }
+  }
+}
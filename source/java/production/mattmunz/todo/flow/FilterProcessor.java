@@ -0,0 +1,20 @@
+package mattmunz.todo.flow;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Passes on only the items that match a predicate, e.g. a duplicate line filter or query.
+ */
+public class FilterProcessor<T> extends StageProcessor<T, T>
+{
+  private final Predicate<? super T> predicate;
+  
+  public FilterProcessor(Predicate<? super T> predicate) { this.predicate = predicate; }
+
+  @Override
+  protected Optional<T> process(T item) 
+  { 
+    return predicate.test(item) ? Optional.of(item) : Optional.empty(); 
+  }
+}
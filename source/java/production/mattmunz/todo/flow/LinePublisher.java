@@ -0,0 +1,157 @@
+package mattmunz.todo.flow;
+
+import java.io.BufferedReader;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes lines pulled from an iterator, e.g. over a reader, only as they are requested. Lines 
+ * are read and passed on by a task on the given executor, so a blocking read never holds up the 
+ * thread which requested them. One subscriber only.
+ */
+public class LinePublisher implements Publisher<String>
+{
+  private final Iterator<String> lines;
+  private final Executor executor;
+  private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+  public LinePublisher(Iterator<String> lines, Executor executor)
+  {
+    this.lines = lines;
+    this.executor = executor;
+  }
+
+  /**
+   * A read error ends the stream with an {@link java.io.UncheckedIOException}.
+   */
+  public LinePublisher(BufferedReader reader, Executor executor) 
+  { 
+    this(reader.lines().iterator(), executor); 
+  }
+
+  /**
+   * Later subscribers get a subscription which does nothing, and then an error, so they never 
+   * read from the lines.
+   */
+  @Override
+  public void subscribe(Subscriber<? super String> subscriber)
+  {
+    if (subscriptionCount.incrementAndGet() > 1)
+    {
+      subscriber.onSubscribe(new RejectedSubscription());
+      subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+      return;
+    }
+    
+    subscriber.onSubscribe(new LineSubscription(subscriber));
+  }
+
+  private static class RejectedSubscription implements Subscription
+  {
+    @Override
+    public void request(long count) {}
+
+    @Override
+    public void cancel() {}
+  }
+
+  /**
+   * Requests and cancellation may come from any thread. Each one schedules a drain unless one 
+   * is already scheduled or running; the running drain loops until it has seen every change.
+   */
+  private class LineSubscription implements Subscription
+  {
+    private final Subscriber<? super String> subscriber;
+    private final AtomicInteger pendingSignalCount = new AtomicInteger();
+    
+    private volatile long demand;
+    private volatile boolean isCancelled;
+    private volatile IllegalArgumentException invalidRequest;
+    private boolean isDone;
+
+    private LineSubscription(Subscriber<? super String> subscriber) 
+    { 
+      this.subscriber = subscriber; 
+    }
+
+    @Override
+    public void request(long count)
+    {
+      if (count <= 0) 
+      { 
+        invalidRequest 
+          = new IllegalArgumentException("Requested count must be positive: " + count); 
+      }
+      
+      synchronized (this)
+      {
+        demand = count > Long.MAX_VALUE - demand ? Long.MAX_VALUE : demand + Math.max(count, 0);
+      }
+      
+      signal();
+    }
+
+    @Override
+    public void cancel()
+    {
+      isCancelled = true;
+      
+      signal();
+    }
+
+    private void signal() 
+    { 
+      if (pendingSignalCount.getAndIncrement() == 0) { executor.execute(this::drain); }
+    }
+
+    private void drain()
+    {
+      int signalCount = 1;
+      
+      do
+      {
+        try { emit(); }
+        catch (RuntimeException exception) 
+        { 
+          isDone = true;
+          subscriber.onError(exception); 
+        }
+        
+        signalCount = pendingSignalCount.addAndGet(-signalCount);
+      }
+      while (signalCount != 0);
+    }
+
+    private void emit()
+    {
+      if (isDone) { return; }
+      
+      if (isCancelled) 
+      { 
+        isDone = true; 
+        return;
+      }
+      
+      if (invalidRequest != null) { throw invalidRequest; }
+      
+      while (demand > 0 && !isCancelled && lines.hasNext())
+      {
+        String line = lines.next();
+        
+        synchronized (this) { demand--; }
+        
+        subscriber.onNext(line);
+      }
+      
+      if (!isCancelled && !lines.hasNext())
+      {
+        isDone = true;
+        subscriber.onComplete();
+      }
+    }
+  }
+}
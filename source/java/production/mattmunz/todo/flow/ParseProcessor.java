@@ -0,0 +1,31 @@
+package mattmunz.todo.flow;
+
+import java.util.Optional;
+
+import mattmunz.todo.Task;
+
+/**
+ * Parses todo.txt lines into tasks. Blank lines are skipped. 
+ * 
+ * Lines from todo.sh already start with their line numbers. Lines read straight from a todo.txt 
+ * file don't, so with numberLines each line is numbered as it arrives, counting blank lines. 
+ * The number goes after any color code, as {@link Task#addIdentifier(String, String)} puts it. 
+ * A line which can't be parsed ends the stream with an {@link IllegalArgumentException}.
+ */
+public class ParseProcessor extends StageProcessor<String, Task>
+{
+  private final boolean numberLines;
+  private int lineNumber;
+  
+  public ParseProcessor(boolean numberLines) { this.numberLines = numberLines; }
+
+  @Override
+  protected Optional<Task> process(String line)
+  {
+    lineNumber++;
+    
+    if (line.trim().isEmpty()) { return Optional.empty(); }
+    
+    return Optional.of(new Task(numberLines ? Task.addIdentifier("" + lineNumber, line) : line));
+  }
+}
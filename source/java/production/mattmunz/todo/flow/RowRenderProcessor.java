@@ -0,0 +1,54 @@
+package mattmunz.todo.flow;
+
+import java.util.List;
+import java.util.Optional;
+
+import mattmunz.todo.Task;
+import mattmunz.todo.TaskTableRow;
+import mattmunz.todo.cli.ListDisplayFilter;
+
+/**
+ * Renders tasks as rows of the {@link ListDisplayFilter} table. Rows arrive one at a time, so 
+ * columns are padded to fixed widths rather than to the widest cell; a longer cell just makes 
+ * its row wider.
+ */
+public class RowRenderProcessor extends StageProcessor<Task, String>
+{
+  private static final String COLOR_RESET_TOKEN = "\u001B[0m";
+  
+  private final int[] columnWidths;
+  private final ListDisplayFilter displayFilter = new ListDisplayFilter();
+
+  /**
+   * @param columnWidths The widths of the #, P, D/T, Contexts, Projects and Message columns
+   */
+  public RowRenderProcessor(int... columnWidths) 
+  { 
+    if (columnWidths.length != 6) 
+    {
+      throw new IllegalArgumentException("Six column widths are needed: " + columnWidths.length);
+    }
+    
+    this.columnWidths = columnWidths.clone(); 
+  }
+
+  public RowRenderProcessor() { this(4, 1, 4, 16, 16, 0); }
+
+  @Override
+  protected Optional<String> process(Task task)
+  {
+    TaskTableRow row = new TaskTableRow(task);
+    List<String> cells = row.getCells();
+    
+    StringBuilder text = new StringBuilder(row.getColorCode().orElse(""));
+    
+    for (int i = 0; i < cells.size(); i++)
+    {
+      if (i > 0) { text.append(' '); }
+      
+      text.append(displayFilter.addPadding(cells.get(i), columnWidths[i]));
+    }
+    
+    return Optional.of(text.append(COLOR_RESET_TOKEN).toString());
+  }
+}
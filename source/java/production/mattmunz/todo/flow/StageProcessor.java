@@ -0,0 +1,172 @@
+package mattmunz.todo.flow;
+
+import java.util.Optional;
+import java.util.concurrent.Flow.Processor;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+/**
+ * A stage which turns each item into at most one result, holding no buffer of its own: demand
+ * from downstream is passed straight upstream, and an item which gives no result is replaced by
+ * requesting one more.
+ * 
+ * Demand that arrives before the stage is subscribed upstream, and completion or an error that
+ * arrives before it has a subscriber, are held until they can be passed on. One subscriber only.
+ */
+public abstract class StageProcessor<T, R> implements Processor<T, R>, Subscription
+{
+  private Subscription upstream;
+  private Subscriber<? super R> downstream;
+  private long pendingDemand;
+  private boolean isCancelled;
+  private boolean isComplete;
+  private Throwable error;
+  
+  /**
+   * @return The result for the item, if any
+   * @throws RuntimeException To cancel the stream, with the exception passed downstream
+   */
+  protected abstract Optional<R> process(T item);
+  
+  @Override
+  public void subscribe(Subscriber<? super R> subscriber)
+  {
+    boolean isFirst;
+    boolean wasComplete;
+    Throwable earlierError;
+    
+    synchronized (this)
+    {
+      isFirst = downstream == null;
+      
+      if (isFirst) { downstream = subscriber; }
+      
+      wasComplete = isComplete;
+      earlierError = error;
+    }
+    
+    if (!isFirst)
+    {
+      subscriber.onSubscribe(this);
+      subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+      return;
+    }
+    
+    subscriber.onSubscribe(this);
+    
+    if (earlierError != null) { subscriber.onError(earlierError); }
+    else if (wasComplete) { subscriber.onComplete(); }
+  }
+  
+  @Override
+  public void onSubscribe(Subscription subscription)
+  {
+    long demand;
+    boolean wasCancelled;
+    
+    synchronized (this)
+    {
+      if (upstream != null)
+      {
+        subscription.cancel();
+        return;
+      }
+      
+      upstream = subscription;
+      demand = pendingDemand;
+      pendingDemand = 0;
+      wasCancelled = isCancelled;
+    }
+    
+    if (wasCancelled) { subscription.cancel(); }
+    else if (demand > 0) { subscription.request(demand); }
+  }
+  
+  @Override
+  public void onNext(T item)
+  {
+    Optional<R> result;
+    
+    try { result = process(item); }
+    catch (RuntimeException exception)
+    {
+      cancel();
+      downstream.onError(exception);
+      return;
+    }
+    
+    if (result.isPresent()) { downstream.onNext(result.get()); }
+    else { upstream.request(1); }
+  }
+  
+  @Override
+  public void onError(Throwable throwable)
+  {
+    synchronized (this)
+    {
+      if (downstream == null)
+      {
+        error = throwable;
+        return;
+      }
+    }
+    
+    downstream.onError(throwable);
+  }
+  
+  @Override
+  public void onComplete()
+  {
+    synchronized (this)
+    {
+      if (downstream == null)
+      {
+        isComplete = true;
+        return;
+      }
+    }
+    
+    downstream.onComplete();
+  }
+  
+  @Override
+  public void request(long count)
+  {
+    if (count <= 0)
+    {
+      cancel();
+      onError(new IllegalArgumentException("Requested count must be positive: " + count));
+      return;
+    }
+    
+    Subscription subscription;
+    
+    synchronized (this)
+    {
+      if (upstream == null)
+      {
+        pendingDemand = count > Long.MAX_VALUE - pendingDemand ? Long.MAX_VALUE
+                                                               : pendingDemand + count;
+        return;
+      }
+      
+      subscription = upstream;
+    }
+    
+    subscription.request(count);
+  }
+  
+  @Override
+  public void cancel()
+  {
+    Subscription subscription;
+    
+    synchronized (this)
+    {
+      isCancelled = true;
+      subscription = upstream;
+    }
+    
+    if (subscription != null) { subscription.cancel(); }
+  }
+}
@@ -0,0 +1,202 @@
+package mattmunz.todo.flow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Flow.Processor;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+/**
+ * Passes on the first count items in an order, e.g. {@link mattmunz.todo.cli.Sorter}'s, once the
+ * upstream completes.
+ * 
+ * The whole upstream has to be read before the first item can be passed on, so upstream demand
+ * doesn't wait for downstream demand: items are requested in batches of batchSize, and the next
+ * batch is requested when the last has arrived. Only the best count items are kept, in a heap,
+ * so memory depends on count and batchSize, not on how many items arrive. Equal items keep
+ * their arrival order.
+ */
+public class TopKProcessor<T> implements Processor<T, T>, Subscription
+{
+  private final int count;
+  private final int batchSize;
+  private final Comparator<? super T> comparator;
+  private final PriorityQueue<Ranked<T>> heap;
+  
+  private Subscription upstream;
+  private Subscriber<? super T> downstream;
+  private long arrivalCount;
+  private int remainingInBatch;
+  private List<T> results;
+  private int nextResult;
+  private long demand;
+  private boolean isDraining;
+  private boolean isDone;
+  private Throwable error;
+  
+  public TopKProcessor(int count, Comparator<? super T> comparator, int batchSize)
+  {
+    if (count < 1) { throw new IllegalArgumentException("Count must be positive: " + count); }
+    
+    if (batchSize < 1)
+    {
+      throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+    }
+    
+    this.count = count;
+    this.batchSize = batchSize;
+    this.comparator = comparator;
+    
+    heap = new PriorityQueue<Ranked<T>>(count + 1, Collections.reverseOrder(this::compare));
+  }
+  
+  public TopKProcessor(int count, Comparator<? super T> comparator)
+  {
+    this(count, comparator, 256);
+  }
+  
+  @Override
+  public synchronized void subscribe(Subscriber<? super T> subscriber)
+  {
+    if (downstream != null)
+    {
+      subscriber.onSubscribe(this);
+      subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+      return;
+    }
+    
+    downstream = subscriber;
+    downstream.onSubscribe(this);
+    
+    if (error != null) { downstream.onError(error); }
+    else { drain(); }
+  }
+  
+  @Override
+  public void onSubscribe(Subscription subscription)
+  {
+    synchronized (this)
+    {
+      if (upstream != null || isDone)
+      {
+        subscription.cancel();
+        return;
+      }
+      
+      upstream = subscription;
+      remainingInBatch = batchSize;
+    }
+    
+    subscription.request(batchSize);
+  }
+  
+  @Override
+  public void onNext(T item)
+  {
+    heap.add(new Ranked<T>(item, arrivalCount++));
+    
+    if (heap.size() > count) { heap.poll(); }
+    
+    if (--remainingInBatch == 0)
+    {
+      remainingInBatch = batchSize;
+      upstream.request(batchSize);
+    }
+  }
+  
+  @Override
+  public synchronized void onError(Throwable throwable)
+  {
+    isDone = true;
+    error = throwable;
+    
+    if (downstream != null) { downstream.onError(throwable); }
+  }
+  
+  @Override
+  public synchronized void onComplete()
+  {
+    List<Ranked<T>> ranked = new ArrayList<Ranked<T>>(heap);
+    
+    ranked.sort(this::compare);
+    
+    results = new ArrayList<T>(ranked.size());
+    
+    for (Ranked<T> rankedItem : ranked) { results.add(rankedItem.item); }
+    
+    heap.clear();
+    
+    drain();
+  }
+  
+  @Override
+  public synchronized void request(long requestedCount)
+  {
+    if (requestedCount <= 0)
+    {
+      cancel();
+      onError(new IllegalArgumentException("Requested count must be positive: " 
+                                           + requestedCount));
+      return;
+    }
+    
+    demand = requestedCount > Long.MAX_VALUE - demand ? Long.MAX_VALUE : demand + requestedCount;
+    
+    drain();
+  }
+  
+  @Override
+  public synchronized void cancel()
+  {
+    isDone = true;
+    
+    if (upstream != null) { upstream.cancel(); }
+  }
+  
+  /**
+   * Passes on results while there is demand. A subscriber which requests more from within
+   * onNext just adds to the demand this loop is working through.
+   */
+  private void drain()
+  {
+    if (isDraining || results == null || downstream == null) { return; }
+    
+    isDraining = true;
+    
+    while (demand > 0 && nextResult < results.size() && !isDone)
+    {
+      demand--;
+      downstream.onNext(results.get(nextResult++));
+    }
+    
+    if (nextResult == results.size() && !isDone)
+    {
+      isDone = true;
+      downstream.onComplete();
+    }
+    
+    isDraining = false;
+  }
+  
+  private int compare(Ranked<T> left, Ranked<T> right)
+  {
+    int result = comparator.compare(left.item, right.item);
+    
+    return result != 0 ? result : Long.compare(left.arrival, right.arrival);
+  }
+  
+  private static class Ranked<T>
+  {
+    private final T item;
+    private final long arrival;
+    
+    private Ranked(T item, long arrival)
+    {
+      this.item = item;
+      this.arrival = arrival;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+/**
+ * A {@link java.util.concurrent.Flow} API for embedding the task pipeline: line sources, then 
+ * parse, filter, top-K and row rendering stages, each passing demand upstream so that tasks are 
+ * only read as fast as they are consumed.
+ * 
+ * E.g. lines -> {@link mattmunz.todo.flow.ParseProcessor} -> 
+ * {@link mattmunz.todo.flow.FilterProcessor} -> {@link mattmunz.todo.flow.TopKProcessor} -> 
+ * {@link mattmunz.todo.flow.RowRenderProcessor}. Lines can come from a 
+ * {@link mattmunz.todo.flow.LinePublisher}, or, for lines pushed from a socket or queue, a 
+ * {@link java.util.concurrent.SubmissionPublisher}, whose buffer is bounded.
+ */
+package mattmunz.todo.flow;
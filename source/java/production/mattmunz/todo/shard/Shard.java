@@ -0,0 +1,24 @@
+package mattmunz.todo.shard;
+
+import java.time.DayOfWeek;
+import java.util.Optional;
+
+import mattmunz.todo.Task;
+
+/**
+ * One file of a {@link ShardedTodoList}: the tasks for a day of the week, or those without a day.
+ * Shards are numbered, and listed in the manifest, in this order.
+ */
+public enum Shard
+{
+  MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY, SATURDAY, SUNDAY, UNSCHEDULED;
+  
+  public static Shard forDay(Optional<DayOfWeek> day) 
+  { 
+    return day.map(dayOfWeek -> values()[dayOfWeek.ordinal()]).orElse(UNSCHEDULED); 
+  }
+  
+  public static Shard forTask(Task task) { return forDay(task.getDay()); }
+  
+  String getFileName() { return name().toLowerCase() + ".txt"; }
+}
@@ -0,0 +1,358 @@
+package mattmunz.todo.shard;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newBufferedWriter;
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.write;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+import mattmunz.todo.Task;
+import mattmunz.todo.archive.SnapshotArchiver;
+
+/**
+ * A todo list kept as a directory of {@link Shard} files, one per day of the week and one for
+ * tasks without a day, plus a manifest recording how many lines each shard has:
+ * 
+ *   MONDAY 12
+ *   TUESDAY 0
+ *   ...
+ * 
+ * Line numbers run through the shards in manifest order, as if they were one file, so the line
+ * counts give any shard's first line number without reading the other shards. Recurring tasks
+ * have no day of their own, so they are in the unscheduled shard.
+ * 
+ * Shards and the manifest are each replaced atomically, but not together. If a move stops 
+ * between them, the manifest no longer matches the shards, and {@link #repair(Path)} recounts 
+ * the lines.
+ */
+public class ShardedTodoList
+{
+  private static final String MANIFEST_FILE_NAME = "manifest";
+  
+  /**
+   * @return true if the path is a directory with a shard manifest
+   */
+  public static boolean isSharded(Path path)
+  {
+    return isDirectory(path) && exists(path.resolve(MANIFEST_FILE_NAME));
+  }
+  
+  public static ShardedTodoList open(Path directory) throws IOException
+  {
+    if (!isSharded(directory))
+    {
+      throw new IllegalArgumentException("Not a sharded todo list: " + directory);
+    }
+    
+    ShardedTodoList list = new ShardedTodoList(directory);
+    
+    for (String line : readAllLines(directory.resolve(MANIFEST_FILE_NAME), UTF_8))
+    {
+      String[] columns = line.trim().split(" ");
+      
+      list.lineCounts.put(Shard.valueOf(columns[0]), Integer.parseInt(columns[1]));
+    }
+    
+    return list;
+  }
+  
+  /**
+   * Rewrites the manifest with the number of lines each shard file has.
+   */
+  public static ShardedTodoList repair(Path directory) throws IOException
+  {
+    if (!isSharded(directory))
+    {
+      throw new IllegalArgumentException("Not a sharded todo list: " + directory);
+    }
+    
+    ShardedTodoList list = new ShardedTodoList(directory);
+    
+    for (Shard shard : Shard.values())
+    {
+      Path shardFile = directory.resolve(shard.getFileName());
+      
+      list.lineCounts.put(shard, exists(shardFile) ? readAllLines(shardFile, UTF_8).size() : 0);
+    }
+    
+    list.writeManifest();
+    
+    return list;
+  }
+  
+  /**
+   * Splits a single todo.txt file into shards in a new directory. Blank lines are dropped.
+   * Within each shard, tasks keep their order from the file.
+   */
+  public static ShardedTodoList split(Path todoTxtFile, Path directory) throws IOException
+  {
+    if (exists(directory.resolve(MANIFEST_FILE_NAME)))
+    {
+      throw new IllegalArgumentException("Already sharded: " + directory);
+    }
+    
+    createDirectories(directory);
+    
+    Map<Shard, List<String>> shardLines = new EnumMap<Shard, List<String>>(Shard.class);
+    
+    for (Shard shard : Shard.values()) { shardLines.put(shard, new ArrayList<String>()); }
+    
+    int lineNumber = 0;
+    
+    for (String line : readAllLines(todoTxtFile, UTF_8))
+    {
+      lineNumber++;
+      
+      if (line.trim().isEmpty()) { continue; }
+      
+      Task task = new Task(Task.addIdentifier("" + lineNumber, line));
+      
+      shardLines.get(Shard.forTask(task)).add(line);
+    }
+    
+    ShardedTodoList list = new ShardedTodoList(directory);
+    
+    for (Shard shard : Shard.values()) { list.writeShard(shard, shardLines.get(shard)); }
+    
+    list.writeManifest();
+    
+    return list;
+  }
+  
+  private final Path directory;
+  private final Map<Shard, Integer> lineCounts = new EnumMap<Shard, Integer>(Shard.class);
+  
+  private ShardedTodoList(Path directory)
+  {
+    this.directory = directory;
+    
+    for (Shard shard : Shard.values()) { lineCounts.put(shard, 0); }
+  }
+  
+  /**
+   * Writes all of the shards, in order, into a single todo.txt file.
+   */
+  public void join(Path todoTxtFile) throws IOException
+  {
+    try (BufferedWriter writer = newBufferedWriter(todoTxtFile, UTF_8))
+    {
+      for (Shard shard : Shard.values())
+      {
+        for (String line : readLines(shard))
+        {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+    }
+  }
+  
+  public int getLineCount(Shard shard) { return lineCounts.get(shard); }
+  
+  /**
+   * @return The line number of the shard's first line
+   */
+  public int getFirstLineNumber(Shard shard)
+  {
+    int lineNumber = 1;
+    
+    for (Shard earlierShard : Shard.values())
+    {
+      if (earlierShard == shard) { return lineNumber; }
+      
+      lineNumber += lineCounts.get(earlierShard);
+    }
+    
+    throw new IllegalStateException("Unknown shard: " + shard);
+  }
+  
+  /**
+   * @return The shard holding the line, if there is one
+   */
+  public Shard getShard(int lineNumber)
+  {
+    if (lineNumber < 1) { throw new IllegalArgumentException("Invalid line: " + lineNumber); }
+    
+    int lastLineNumber = 0;
+    
+    for (Shard shard : Shard.values())
+    {
+      lastLineNumber += lineCounts.get(shard);
+      
+      if (lineNumber <= lastLineNumber) { return shard; }
+    }
+    
+    throw new IllegalArgumentException("No such line: " + lineNumber);
+  }
+  
+  /**
+   * @return The shards' lines, in shard order, each numbered as todo.sh passes them to filters:
+   *         the line number and a space, after any color code. Only the given shards are read.
+   */
+  public List<String> readNumberedLines(Collection<Shard> shards) throws IOException
+  {
+    List<String> numberedLines = new ArrayList<String>();
+    
+    for (Shard shard : new TreeSet<Shard>(shards))
+    {
+      int lineNumber = getFirstLineNumber(shard);
+      
+      for (String line : readLines(shard)) 
+      { 
+        numberedLines.add(Task.addIdentifier("" + lineNumber++, line)); 
+      }
+    }
+    
+    return numberedLines;
+  }
+  
+  /**
+   * Applies the mover to every task in the given shards. A task the mover changes keeps its 
+   * place if it stays in its shard; otherwise it is taken out of its shard and added to the end 
+   * of its new one. Each shard with changes is snapshotted, as is the manifest, and then 
+   * rewritten. Shards with no changes aren't written at all.
+   * 
+   * @param mover Returns the task itself to leave it as it is
+   * @param archiver Takes the snapshots, before the files are replaced
+   * @return The line numbers of the changed tasks, from before the move
+   */
+  public Set<Integer> moveTasks(Collection<Shard> shards, UnaryOperator<Task> mover, 
+                                SnapshotArchiver archiver)
+    throws IOException
+  {
+    Set<Integer> movedLineNumbers = new TreeSet<Integer>();
+    Map<Shard, List<String>> appendedLines = new EnumMap<Shard, List<String>>(Shard.class);
+    Map<Shard, List<String>> rewrittenShards = new EnumMap<Shard, List<String>>(Shard.class);
+    
+    for (Shard shard : new TreeSet<Shard>(shards))
+    {
+      List<String> keptLines = new ArrayList<String>();
+      int lineNumber = getFirstLineNumber(shard);
+      boolean isChanged = false;
+      
+      for (String line : readLines(shard))
+      {
+        Task task = new Task(Task.addIdentifier("" + lineNumber, line));
+        Task newTask = mover.apply(task);
+        
+        if (newTask != task)
+        {
+          movedLineNumbers.add(lineNumber);
+          isChanged = true;
+        }
+        
+        Shard newShard = Shard.forTask(newTask);
+        
+        if (newShard == shard) { keptLines.add(newTask.getLineTextWithoutIdentifier()); }
+        else
+        {
+          appendedLines.computeIfAbsent(newShard, key -> new ArrayList<String>())
+                       .add(newTask.getLineTextWithoutIdentifier());
+        }
+        
+        lineNumber++;
+      }
+      
+      if (isChanged) { rewrittenShards.put(shard, keptLines); }
+    }
+    
+    for (Map.Entry<Shard, List<String>> entry : appendedLines.entrySet())
+    {
+      Shard shard = entry.getKey();
+      
+      if (!rewrittenShards.containsKey(shard)) { rewrittenShards.put(shard, readLines(shard)); }
+      
+      rewrittenShards.get(shard).addAll(entry.getValue());
+    }
+    
+    if (rewrittenShards.isEmpty()) { return movedLineNumbers; }
+    
+    for (Shard shard : rewrittenShards.keySet()) { takeSnapshot(archiver, shard.getFileName()); }
+    
+    takeSnapshot(archiver, MANIFEST_FILE_NAME);
+    
+    for (Map.Entry<Shard, List<String>> entry : rewrittenShards.entrySet())
+    {
+      writeShard(entry.getKey(), entry.getValue());
+    }
+    
+    writeManifest();
+    
+    return movedLineNumbers;
+  }
+  
+  private List<String> readLines(Shard shard) throws IOException
+  {
+    Path shardFile = directory.resolve(shard.getFileName());
+    
+    if (!exists(shardFile)) { return new ArrayList<String>(); }
+    
+    List<String> lines = readAllLines(shardFile, UTF_8);
+    
+    if (lines.size() != lineCounts.get(shard))
+    {
+      throw new IllegalStateException("Shard " + shardFile + " has " + lines.size()
+                                      + " lines, but the manifest says " + lineCounts.get(shard)
+                                      + ". ShardTool repair recounts them.");
+    }
+    
+    return lines;
+  }
+  
+  private void takeSnapshot(SnapshotArchiver archiver, String fileName) throws IOException
+  {
+    Path file = directory.resolve(fileName);
+    
+    if (exists(file)) { archiver.takeSnapshot(file); }
+  }
+  
+  private void writeShard(Shard shard, List<String> lines) throws IOException
+  {
+    replace(directory.resolve(shard.getFileName()), lines);
+    
+    lineCounts.put(shard, lines.size());
+  }
+  
+  private void writeManifest() throws IOException
+  {
+    List<String> lines = new ArrayList<String>();
+    
+    for (Shard shard : Shard.values()) { lines.add(shard + " " + lineCounts.get(shard)); }
+    
+    replace(directory.resolve(MANIFEST_FILE_NAME), lines);
+  }
+  
+  /**
+   * Writes a new file next to the old one, then replaces it.
+   */
+  private void replace(Path file, List<String> lines) throws IOException
+  {
+    Path newFile = createTempFile(directory, "" + file.getFileName(), ".new");
+    
+    try
+    {
+      write(newFile, lines, UTF_8);
+      move(newFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+    finally { deleteIfExists(newFile); }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Todo lists split into one file per day, so that commands about a day read only that day.
+ */
+package mattmunz.todo.shard;
@@ -0,0 +1,409 @@
+package mattmunz.todo.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Recurrence;
+import mattmunz.todo.Task;
+import mattmunz.todo.TodoDate;
+
+/**
+ * Tasks stored column by column in direct (off-heap) buffers, so that a list of millions of 
+ * tasks costs a few bytes of heap rather than a dozen objects per task.
+ * 
+ * Fixed-width columns, one entry per row:
+ * 
+ *   - flags        byte: completed
+ *   - priority     byte: the priority, an ASCII character, or 0
+ *   - day          byte: {@link DayOfWeek#getValue()}, or 0
+ *   - timeOfDay    byte: {@link TimeOfDay#ordinal()} + 1, or 0
+ *   - created      int: the creation date's epoch day, or {@link TodoDate#NONE}
+ *   - completed    int: the completion date's epoch day, or {@link TodoDate#NONE}
+ *   - offsets      int: the start of the row's entry in the text area
+ *   
+ * The text area holds, for each row, the lengths and then the UTF-8 bytes of: the line text, 
+ * the color code, the message, the sorted contexts, the sorted projects, the recurrence and the 
+ * identifier, which is kept as text so that zero padding, e.g. "04", is displayed unchanged. 
+ * Contexts and projects are separated by a 0 byte, so that comparing the bytes compares the 
+ * sorted sets in the same way as {@link mattmunz.todo.cli.Sorter}.
+ * 
+ * Rows are read through a {@link TaskRowView}, a reusable flyweight. Date range queries scan 
+ * the date columns without reading any other part of the rows.
+ */
+public class ColumnarTaskStore
+{
+  static final int LINE_TEXT = 0;
+  static final int COLOR_CODE = 1;
+  static final int MESSAGE = 2;
+  static final int CONTEXTS = 3;
+  static final int PROJECTS = 4;
+  static final int RECURRENCE = 5;
+  static final int IDENTIFIER = 6;
+  
+  private static final int TEXT_FIELD_COUNT = 7;
+  private static final int TEXT_HEADER_SIZE = TEXT_FIELD_COUNT * Integer.BYTES;
+  private static final byte COMPLETED_FLAG = 1;
+  private static final byte SEPARATOR = 0;
+  
+  private int size;
+  private int capacity;
+  private ByteBuffer flags;
+  private ByteBuffer priorities;
+  private ByteBuffer days;
+  private ByteBuffer timesOfDay;
+  private ByteBuffer creationDays;
+  private ByteBuffer completionDays;
+  private ByteBuffer textOffsets;
+  private ByteBuffer text;
+
+  public ColumnarTaskStore(int initialCapacity)
+  {
+    capacity = Math.max(initialCapacity, 16);
+    
+    flags = ByteBuffer.allocateDirect(capacity);
+    priorities = ByteBuffer.allocateDirect(capacity);
+    days = ByteBuffer.allocateDirect(capacity);
+    timesOfDay = ByteBuffer.allocateDirect(capacity);
+    creationDays = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    completionDays = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    textOffsets = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    text = ByteBuffer.allocateDirect(capacity * 64);
+  }
+  
+  public ColumnarTaskStore() { this(1024); }
+
+  public int size() { return size; }
+
+  /**
+   * @return The new row's index
+   * @throws IllegalArgumentException If the task's priority isn't a single ASCII character
+   */
+  public int add(Task task)
+  {
+    char priority = task.getPriority().map(this::getPriority).orElse('\0');
+    
+    if (size == capacity) { growColumns(); }
+    
+    int row = size;
+    
+    flags.put(row, task.isCompleted() ? COMPLETED_FLAG : 0);
+    
+    int dayValue = task.getDay().map(DayOfWeek::getValue).orElse(0);
+    int timeOfDayValue = task.getTimeOfDay().map(timeOfDay -> timeOfDay.ordinal() + 1).orElse(0);
+    
+    priorities.put(row, (byte) priority);
+    days.put(row, (byte) dayValue);
+    timesOfDay.put(row, (byte) timeOfDayValue);
+    creationDays.putInt(row * Integer.BYTES, task.getCreationEpochDay());
+    completionDays.putInt(row * Integer.BYTES, task.getCompletionEpochDay());
+    textOffsets.putInt(row * Integer.BYTES, text.position());
+    
+    byte[][] textFields 
+      = { task.getLineText().getBytes(UTF_8), task.getColorCode().orElse("").getBytes(UTF_8), 
+          task.getMessage().getBytes(UTF_8), getSortedBytes(task.getContexts()), 
+          getSortedBytes(task.getProjects()), 
+          task.getRecurrence().map(Recurrence::getIdentifier).orElse("").getBytes(UTF_8), 
+          task.getIdentifier().getBytes(UTF_8) };
+    
+    int textSize = TEXT_HEADER_SIZE;
+    
+    for (byte[] textField : textFields) { textSize += textField.length; }
+    
+    ensureTextCapacity(textSize);
+    
+    for (byte[] textField : textFields) { text.putInt(textField.length); }
+    for (byte[] textField : textFields) { text.put(textField); }
+    
+    size++;
+    
+    return row;
+  }
+
+  public TaskRowView getView() { return new TaskRowView(this); }
+
+  /**
+   * @param dayNumber Maps a day's {@link DayOfWeek#getValue()} to its position in the sort order.
+   * @return The row indexes, sorted stably as {@link mattmunz.todo.cli.Sorter} sorts tasks, 
+   *         without creating an object per row.
+   */
+  public int[] getSortedRows(IntUnaryOperator dayNumber) { return getSortedRows(dayNumber, false); }
+
+  /**
+   * @param breakTiesByAge If true, rows which are otherwise equal are ordered by creation date
+   */
+  public int[] getSortedRows(IntUnaryOperator dayNumber, boolean breakTiesByAge)
+  {
+    int[] rows = new int[size];
+    
+    for (int row = 0; row < size; row++) { rows[row] = row; }
+    
+    RowSorter.sort(rows, (left, right) -> 
+    {
+      int comparison = compareRows(left, right, dayNumber);
+      
+      if (comparison != 0 || !breakTiesByAge) { return comparison; }
+      
+      return Integer.compare(getCreationEpochDay(left), getCreationEpochDay(right));
+    });
+    
+    return rows;
+  }
+
+  /**
+   * @return The rows, in order, whose tasks were created from one epoch day to another, inclusive
+   */
+  public int[] getRowsCreatedBetween(int fromDay, int toDay) 
+  { 
+    return getRowsBetween(creationDays, fromDay, toDay); 
+  }
+
+  /**
+   * @return The rows, in order, whose tasks were completed from one epoch day to another, 
+   *         inclusive
+   */
+  public int[] getRowsCompletedBetween(int fromDay, int toDay) 
+  { 
+    return getRowsBetween(completionDays, fromDay, toDay); 
+  }
+
+  boolean isCompleted(int row) { return (flags.get(row) & COMPLETED_FLAG) != 0; }
+
+  char getPriority(int row) { return (char) priorities.get(row); }
+
+  int getDayValue(int row) { return days.get(row); }
+
+  int getTimeOfDayValue(int row) { return timesOfDay.get(row); }
+
+  int getCreationEpochDay(int row) { return creationDays.getInt(row * Integer.BYTES); }
+
+  int getCompletionEpochDay(int row) { return completionDays.getInt(row * Integer.BYTES); }
+
+  Optional<DayOfWeek> getDay(int row) 
+  { 
+    int dayValue = getDayValue(row);
+    
+    return dayValue == 0 ? Optional.empty() : Optional.of(DayOfWeek.of(dayValue));
+  }
+  
+  Optional<TimeOfDay> getTimeOfDay(int row) 
+  { 
+    int timeOfDayValue = getTimeOfDayValue(row);
+    
+    return timeOfDayValue == 0 ? Optional.empty() 
+                               : Optional.of(TimeOfDay.values()[timeOfDayValue - 1]);
+  }
+
+  int getTextLength(int row, int field) 
+  { 
+    return text.getInt(textOffsets.getInt(row * Integer.BYTES) + field * Integer.BYTES); 
+  }
+
+  int getTextStart(int row, int field)
+  {
+    int start = textOffsets.getInt(row * Integer.BYTES) + TEXT_HEADER_SIZE;
+    
+    for (int i = 0; i < field; i++) { start += getTextLength(row, i); }
+    
+    return start;
+  }
+
+  byte getTextByte(int index) { return text.get(index); }
+
+  String getText(int row, int field)
+  {
+    byte[] bytes = new byte[getTextLength(row, field)];
+    
+    ByteBuffer view = text.duplicate();
+    view.position(getTextStart(row, field));
+    view.get(bytes);
+    
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Writes a text field, replacing each separator with the given bytes.
+   */
+  void writeText(int row, int field, byte[] separator, OutputStream output) throws IOException
+  {
+    int start = getTextStart(row, field);
+    int end = start + getTextLength(row, field);
+    
+    for (int i = start; i < end; i++)
+    {
+      byte textByte = text.get(i);
+      
+      if (textByte == SEPARATOR) { output.write(separator); }
+      else { output.write(textByte); }
+    }
+  }
+
+  /**
+   * @return The number of characters in a text field, counted as {@link String#length()} counts 
+   *         them, with each separator counted as the given number of characters. A character 
+   *         outside the Basic Multilingual Plane (four UTF-8 bytes) counts as two, so that cells 
+   *         are padded as {@link mattmunz.todo.cli.ListDisplayFilter} pads them.
+   */
+  int getTextWidth(int row, int field, int separatorWidth)
+  {
+    int start = getTextStart(row, field);
+    int end = start + getTextLength(row, field);
+    int width = 0;
+    
+    for (int i = start; i < end; i++)
+    {
+      byte textByte = text.get(i);
+      
+      if (textByte == SEPARATOR) { width += separatorWidth; }
+      else if ((textByte & 0xF8) == 0xF0) { width += 2; }
+      else if ((textByte & 0xC0) != 0x80) { width++; }
+    }
+    
+    return width;
+  }
+
+  private int compareRows(int left, int right, IntUnaryOperator dayNumber)
+  {
+    int comparison = Boolean.compare(isCompleted(left), isCompleted(right));
+    
+    if (comparison != 0) { return comparison; }
+    
+    comparison = compareOptional(getDayValue(left), getDayValue(right), dayNumber);
+    
+    if (comparison != 0) { return comparison; }
+    
+    comparison = Integer.compare(getTimeOfDayValue(left), getTimeOfDayValue(right));
+    
+    if (comparison != 0) { return comparison; }
+    
+    comparison = compareText(left, right, CONTEXTS);
+    
+    if (comparison != 0) { return comparison; }
+    
+    comparison = compareText(left, right, PROJECTS);
+    
+    if (comparison != 0) { return comparison; }
+    
+    return Integer.compare(getPriority(left), getPriority(right));
+  }
+
+  /**
+   * 0 is empty, which is given highest order.
+   */
+  private int compareOptional(int left, int right, IntUnaryOperator valueNumber)
+  {
+    if (left == 0 || right == 0) { return Integer.compare(left, right); }
+    
+    return Integer.compare(valueNumber.applyAsInt(left), valueNumber.applyAsInt(right));
+  }
+
+  private int compareText(int left, int right, int field)
+  {
+    int leftStart = getTextStart(left, field);
+    int leftLength = getTextLength(left, field);
+    int rightStart = getTextStart(right, field);
+    int rightLength = getTextLength(right, field);
+    
+    for (int i = 0; i < leftLength && i < rightLength; i++)
+    {
+      int comparison 
+        = Integer.compare(text.get(leftStart + i) & 0xFF, text.get(rightStart + i) & 0xFF);
+      
+      if (comparison != 0) { return comparison; }
+    }
+    
+    return Integer.compare(leftLength, rightLength);
+  }
+
+  /**
+   * Rows without the date never match, as {@link TodoDate#NONE} is below every real date.
+   */
+  private int[] getRowsBetween(ByteBuffer dayColumn, int fromDay, int toDay)
+  {
+    if (fromDay == TodoDate.NONE) { fromDay++; }
+    
+    int[] rows = new int[16];
+    int count = 0;
+    
+    for (int row = 0; row < size; row++)
+    {
+      int day = dayColumn.getInt(row * Integer.BYTES);
+      
+      if (day < fromDay || day > toDay) { continue; }
+      
+      if (count == rows.length) { rows = Arrays.copyOf(rows, count * 2); }
+      
+      rows[count++] = row;
+    }
+    
+    return Arrays.copyOf(rows, count);
+  }
+
+  private char getPriority(String priorityText)
+  {
+    if (priorityText.length() != 1 || priorityText.charAt(0) == 0 || priorityText.charAt(0) > 0x7F)
+    {
+      throw new IllegalArgumentException("Priority isn't one ASCII character: " + priorityText);
+    }
+    
+    return priorityText.charAt(0);
+  }
+
+  private byte[] getSortedBytes(Set<String> values)
+  {
+    List<String> sortedValues = new ArrayList<String>(values);
+    
+    Collections.sort(sortedValues);
+    
+    return String.join("" + (char) SEPARATOR, sortedValues).getBytes(UTF_8);
+  }
+
+  private void growColumns()
+  {
+    capacity *= 2;
+    
+    flags = grow(flags, capacity);
+    priorities = grow(priorities, capacity);
+    days = grow(days, capacity);
+    timesOfDay = grow(timesOfDay, capacity);
+    creationDays = grow(creationDays, capacity * Integer.BYTES);
+    completionDays = grow(completionDays, capacity * Integer.BYTES);
+    textOffsets = grow(textOffsets, capacity * Integer.BYTES);
+  }
+
+  private void ensureTextCapacity(int additionalSize)
+  {
+    if (text.remaining() >= additionalSize) { return; }
+    
+    int requiredCapacity = Math.addExact(text.position(), additionalSize);
+    long newCapacity = Math.max(text.capacity() * 2L, requiredCapacity);
+    
+    text = grow(text, (int) Math.min(newCapacity, Integer.MAX_VALUE));
+  }
+
+  /**
+   * @return A copy of the buffer with a new capacity, and the same position.
+   */
+  private ByteBuffer grow(ByteBuffer buffer, int newCapacity)
+  {
+    ByteBuffer newBuffer = ByteBuffer.allocateDirect(newCapacity);
+    
+    ByteBuffer source = buffer.duplicate();
+    source.clear();
+    newBuffer.put(source);
+    newBuffer.position(buffer.position());
+    
+    return newBuffer;
+  }
+}
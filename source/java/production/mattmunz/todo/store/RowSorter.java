@@ -0,0 +1,43 @@
+package mattmunz.todo.store;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A stable merge sort of row indexes, which doesn't box them.
+ */
+class RowSorter
+{
+  static void sort(int[] rows, IntBinaryOperator comparator)
+  {
+    int[] buffer = new int[rows.length];
+    
+    for (int width = 1; width < rows.length; width *= 2)
+    {
+      for (int start = 0; start < rows.length; start += 2 * width)
+      {
+        int middle = Math.min(start + width, rows.length);
+        int end = Math.min(start + 2 * width, rows.length);
+        
+        merge(rows, buffer, start, middle, end, comparator);
+      }
+      
+      System.arraycopy(buffer, 0, rows, 0, rows.length);
+    }
+  }
+
+  private static void merge(int[] rows, int[] buffer, int start, int middle, int end, 
+                            IntBinaryOperator comparator)
+  {
+    int left = start;
+    int right = middle;
+    
+    for (int i = start; i < end; i++)
+    {
+      if (right >= end || (left < middle && comparator.applyAsInt(rows[left], rows[right]) <= 0))
+      {
+        buffer[i] = rows[left++];
+      }
+      else { buffer[i] = rows[right++]; }
+    }
+  }
+}
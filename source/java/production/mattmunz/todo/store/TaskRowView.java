@@ -0,0 +1,153 @@
+package mattmunz.todo.store;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import mattmunz.todo.Recurrence;
+import mattmunz.todo.Task;
+
+/**
+ * A flyweight view of one row of a {@link ColumnarTaskStore}. Moving the view to another row 
+ * doesn't allocate; only the methods which return strings or a {@link Task} do.
+ */
+public class TaskRowView
+{
+  private static final byte[] NO_BYTES = {};
+  
+  private final ColumnarTaskStore store;
+  private int row;
+  
+  TaskRowView(ColumnarTaskStore store) { this.store = store; }
+
+  public TaskRowView moveTo(int row)
+  {
+    if (row < 0 || row >= store.size()) 
+    { 
+      throw new IndexOutOfBoundsException("No such row: " + row); 
+    }
+    
+    this.row = row;
+    
+    return this;
+  }
+
+  public int getRow() { return row; }
+
+  public String getIdentifier() { return store.getText(row, ColumnarTaskStore.IDENTIFIER); }
+
+  public boolean isCompleted() { return store.isCompleted(row); }
+
+  /**
+   * @return The priority character, or 0 if there is none.
+   */
+  public char getPriority() { return store.getPriority(row); }
+
+  /**
+   * @return The day's {@link java.time.DayOfWeek#getValue()}, or 0 if there is none.
+   */
+  public int getDayValue() { return store.getDayValue(row); }
+
+  /**
+   * @return The time of day's ordinal plus one, or 0 if there is none.
+   */
+  public int getTimeOfDayValue() { return store.getTimeOfDayValue(row); }
+
+  public int getCreationEpochDay() { return store.getCreationEpochDay(row); }
+
+  public int getCompletionEpochDay() { return store.getCompletionEpochDay(row); }
+
+  public String getLineText() { return store.getText(row, ColumnarTaskStore.LINE_TEXT); }
+
+  /**
+   * @return A new task with the row's values.
+   */
+  public Task toTask()
+  {
+    String priority = getPriority() == 0 ? null : "" + getPriority();
+    String colorCode = store.getText(row, ColumnarTaskStore.COLOR_CODE);
+    
+    return new Task(getLineText(), getIdentifier(), isCompleted(), 
+                    Optional.ofNullable(priority), 
+                    colorCode.isEmpty() ? Optional.empty() : Optional.of(colorCode), 
+                    store.getDay(row), store.getTimeOfDay(row), getRecurrence(), 
+                    getValues(ColumnarTaskStore.PROJECTS), getValues(ColumnarTaskStore.CONTEXTS), 
+                    store.getText(row, ColumnarTaskStore.MESSAGE), getCreationEpochDay(), 
+                    getCompletionEpochDay());
+  }
+
+  public void writeLineText(OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.LINE_TEXT, NO_BYTES, output);
+  }
+
+  public void writeIdentifier(OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.IDENTIFIER, NO_BYTES, output);
+  }
+
+  public void writeColorCode(OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.COLOR_CODE, NO_BYTES, output);
+  }
+
+  public void writeMessage(OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.MESSAGE, NO_BYTES, output);
+  }
+
+  /**
+   * Writes the contexts, sorted, with the separator between them.
+   */
+  public void writeContexts(byte[] separator, OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.CONTEXTS, separator, output);
+  }
+
+  public void writeProjects(byte[] separator, OutputStream output) throws IOException
+  {
+    store.writeText(row, ColumnarTaskStore.PROJECTS, separator, output);
+  }
+
+  public int getIdentifierWidth() 
+  { 
+    return store.getTextWidth(row, ColumnarTaskStore.IDENTIFIER, 0); 
+  }
+
+  /**
+   * @return The message's length in characters
+   */
+  public int getMessageWidth() { return store.getTextWidth(row, ColumnarTaskStore.MESSAGE, 0); }
+
+  public int getContextsWidth(int separatorWidth) 
+  { 
+    return store.getTextWidth(row, ColumnarTaskStore.CONTEXTS, separatorWidth); 
+  }
+
+  public int getProjectsWidth(int separatorWidth) 
+  { 
+    return store.getTextWidth(row, ColumnarTaskStore.PROJECTS, separatorWidth); 
+  }
+
+  private Optional<Recurrence> getRecurrence()
+  {
+    String identifier = store.getText(row, ColumnarTaskStore.RECURRENCE);
+    
+    if (identifier.isEmpty()) { return Optional.empty(); }
+    
+    return Optional.of(Recurrence.forIdentifier(identifier));
+  }
+
+  private Set<String> getValues(int field)
+  {
+    String text = store.getText(row, field);
+    
+    if (text.isEmpty()) { return Collections.emptySet(); }
+    
+    return new HashSet<String>(Arrays.asList(text.split("\0")));
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Off-heap storage for very large task lists.
+ */
+package mattmunz.todo.store;
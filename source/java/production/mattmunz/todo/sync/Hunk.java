@@ -0,0 +1,35 @@
+package mattmunz.todo.sync;
+
+import java.util.List;
+
+/**
+ * A change to a base version: the base lines from start, inclusive, to end, exclusive, are
+ * replaced with new lines. start == end inserts before that line; no new lines deletes.
+ */
+public class Hunk
+{
+  private final int baseStart;
+  private final int baseEnd;
+  private final List<String> lines;
+  
+  public Hunk(int baseStart, int baseEnd, List<String> lines)
+  {
+    if (baseStart < 0 || baseEnd < baseStart)
+    {
+      throw new IllegalArgumentException("Invalid range: " + baseStart + "-" + baseEnd);
+    }
+    
+    this.baseStart = baseStart;
+    this.baseEnd = baseEnd;
+    this.lines = lines;
+  }
+  
+  public int getBaseStart() { return baseStart; }
+  
+  public int getBaseEnd() { return baseEnd; }
+  
+  public List<String> getLines() { return lines; }
+  
+  @Override
+  public String toString() { return "" + baseStart + "-" + baseEnd + " " + lines; }
+}
@@ -0,0 +1,265 @@
+package mattmunz.todo.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Line-level differences between two versions of a file, found with Myers' O((N + M) D)
+ * algorithm, where D is the number of lines added and removed. Lines are compared by hash
+ * first. The common head and tail are skipped before the search, and only the part of each
+ * round's furthest reaching paths that can be used is kept, so memory is O(N + M + D^2).
+ * 
+ * Past {@link #MAXIMUM_CHANGES} the search stops, and everything between the common head and 
+ * tail is one change: correct, but not the smallest.
+ */
+public class LineDiff
+{
+  static final int MAXIMUM_CHANGES = 4096;
+  
+  /**
+   * @return The changes which turn the base into the revision, in order, none overlapping
+   */
+  public static List<Hunk> diff(List<String> base, List<String> revision)
+  {
+    int start = 0;
+    int baseEnd = base.size();
+    int revisionEnd = revision.size();
+    
+    while (start < baseEnd && start < revisionEnd && base.get(start).equals(revision.get(start)))
+    {
+      start++;
+    }
+    
+    while (baseEnd > start && revisionEnd > start
+           && base.get(baseEnd - 1).equals(revision.get(revisionEnd - 1)))
+    {
+      baseEnd--;
+      revisionEnd--;
+    }
+    
+    return new LineDiff(base, revision, start, baseEnd, revisionEnd).getHunks();
+  }
+  
+  /**
+   * @return The revision given by applying the changes to the base
+   */
+  public static List<String> apply(List<String> base, List<Hunk> hunks)
+  {
+    List<String> lines = new ArrayList<String>(base.size());
+    int next = 0;
+    
+    for (Hunk hunk : hunks)
+    {
+      if (hunk.getBaseStart() < next || hunk.getBaseEnd() > base.size())
+      {
+        throw new IllegalArgumentException("Hunk out of order or range: " + hunk);
+      }
+      
+      lines.addAll(base.subList(next, hunk.getBaseStart()));
+      lines.addAll(hunk.getLines());
+      
+      next = hunk.getBaseEnd();
+    }
+    
+    lines.addAll(base.subList(next, base.size()));
+    
+    return lines;
+  }
+  
+  /**
+   * @return A hash of the lines' hashes, for checking that two copies are the same
+   */
+  public static long getFingerprint(List<String> lines)
+  {
+    long fingerprint = lines.size();
+    
+    for (String line : lines) { fingerprint = fingerprint * 1_000_003L + line.hashCode(); }
+    
+    return fingerprint;
+  }
+  
+  private final List<String> base;
+  private final List<String> revision;
+  private final int offset;
+  private final int[] baseHashes;
+  private final int[] revisionHashes;
+  private final boolean[] isRemoved;
+  private final boolean[] isAdded;
+  
+  private LineDiff(List<String> base, List<String> revision, int offset, int baseEnd,
+                   int revisionEnd)
+  {
+    this.base = base;
+    this.revision = revision;
+    this.offset = offset;
+    
+    baseHashes = getHashes(base, offset, baseEnd);
+    revisionHashes = getHashes(revision, offset, revisionEnd);
+    isRemoved = new boolean[baseHashes.length];
+    isAdded = new boolean[revisionHashes.length];
+    
+    markChanges();
+  }
+  
+  private static int[] getHashes(List<String> lines, int start, int end)
+  {
+    int[] hashes = new int[end - start];
+    
+    for (int i = 0; i < hashes.length; i++) { hashes[i] = lines.get(start + i).hashCode(); }
+    
+    return hashes;
+  }
+  
+  private boolean isEqual(int baseIndex, int revisionIndex)
+  {
+    return baseHashes[baseIndex] == revisionHashes[revisionIndex]
+           && base.get(offset + baseIndex).equals(revision.get(offset + revisionIndex));
+  }
+  
+  /**
+   * Finds a shortest edit script, keeping each round's furthest x for diagonals -d to d, then
+   * walks it back from the end marking the removed and added lines. A diagonal whose paths have
+   * all left the grid has x -1.
+   */
+  private void markChanges()
+  {
+    int n = baseHashes.length;
+    int m = revisionHashes.length;
+    int max = n + m;
+    
+    if (max == 0) { return; }
+    
+    int[] furthest = new int[2 * max + 1];
+    List<int[]> rounds = new ArrayList<int[]>();
+    
+    for (int d = 0; d <= max; d++)
+    {
+      if (d > MAXIMUM_CHANGES)
+      {
+        Arrays.fill(isRemoved, true);
+        Arrays.fill(isAdded, true);
+        return;
+      }
+      
+      boolean isDone = false;
+      
+      for (int k = -d; k <= d; k += 2)
+      {
+        int x = d == 0 ? 0 : isDown(furthest, max, d, k) ? getDownX(furthest, max, d, k) 
+                                                         : getAcrossX(furthest, max, d, k);
+        
+        if (x >= 0)
+        {
+          int y = x - k;
+          
+          while (x < n && y < m && isEqual(x, y))
+          {
+            x++;
+            y++;
+          }
+          
+          isDone = isDone || (x == n && y == m);
+        }
+        
+        furthest[max + k] = x;
+      }
+      
+      rounds.add(Arrays.copyOfRange(furthest, max - d, max + d + 1));
+      
+      if (isDone) { break; }
+    }
+    
+    markChanges(rounds, n, m);
+  }
+  
+  private void markChanges(List<int[]> rounds, int n, int m)
+  {
+    int x = n;
+    int y = m;
+    
+    for (int d = rounds.size() - 1; d > 0; d--)
+    {
+      int[] previous = rounds.get(d - 1);
+      int k = x - y;
+      boolean isDown = isDown(previous, d - 1, d, k);
+      int previousK = isDown ? k + 1 : k - 1;
+      int previousX = previous[d - 1 + previousK];
+      int previousY = previousX - previousK;
+      
+      if (isDown) { isAdded[previousY] = true; }
+      else { isRemoved[previousX] = true; }
+      
+      x = previousX;
+      y = previousY;
+    }
+  }
+  
+  /**
+   * @param center The index of diagonal 0 in the last round's furthest x values
+   * @return true if the furthest path to diagonal k in round d comes down from diagonal k + 1, 
+   *         adding a line, rather than across from k - 1, removing one
+   */
+  private boolean isDown(int[] furthest, int center, int d, int k)
+  {
+    int downX = getDownX(furthest, center, d, k);
+    
+    return downX >= 0 && downX >= getAcrossX(furthest, center, d, k);
+  }
+  
+  /**
+   * @return x after adding a line to the furthest path on diagonal k + 1, or -1 if off the grid
+   */
+  private int getDownX(int[] furthest, int center, int d, int k)
+  {
+    if (k == d) { return -1; }
+    
+    int x = furthest[center + k + 1];
+    
+    return x >= 0 && x - k <= revisionHashes.length ? x : -1;
+  }
+  
+  /**
+   * @return x after removing a line from the furthest path on diagonal k - 1, or -1 if off the 
+   *         grid
+   */
+  private int getAcrossX(int[] furthest, int center, int d, int k)
+  {
+    if (k == -d) { return -1; }
+    
+    int x = furthest[center + k - 1];
+    
+    return x >= 0 && x < baseHashes.length ? x + 1 : -1;
+  }
+  
+  private List<Hunk> getHunks()
+  {
+    List<Hunk> hunks = new ArrayList<Hunk>();
+    int x = 0;
+    int y = 0;
+    
+    while (x < isRemoved.length || y < isAdded.length)
+    {
+      boolean isChanged 
+        = (x < isRemoved.length && isRemoved[x]) || (y < isAdded.length && isAdded[y]);
+      
+      if (!isChanged)
+      {
+        x++;
+        y++;
+        continue;
+      }
+      
+      int hunkX = x;
+      int hunkY = y;
+      
+      while (x < isRemoved.length && isRemoved[x]) { x++; }
+      while (y < isAdded.length && isAdded[y]) { y++; }
+      
+      hunks.add(new Hunk(offset + hunkX, offset + x,
+                         new ArrayList<String>(revision.subList(offset + hunkY, offset + y))));
+    }
+    
+    return hunks;
+  }
+}
@@ -0,0 +1,174 @@
+package mattmunz.todo.sync;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newBufferedReader;
+import static java.nio.file.Files.newBufferedWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one copy sends the other: its changes since their common base version, with fingerprints
+ * of the base and of the result so the receiver can check it has the same base and rebuilt the
+ * same file. Only the changed lines are sent. As text:
+ * 
+ *   todo-sync 1
+ *   sender SENDER kind KIND
+ *   base FINGERPRINT LINE_COUNT
+ *   result FINGERPRINT LINE_COUNT
+ *   hunk BASE_START BASE_END LINE_COUNT
+ *   LINE...
+ */
+public class SyncPacket
+{
+  private static final String HEADER = "todo-sync 1";
+  
+  /**
+   * A request carries the sender's changes to be merged; a reply carries the merged result.
+   */
+  public enum Kind { REQUEST, REPLY }
+  
+  public static SyncPacket read(Path file) throws IOException
+  {
+    try (BufferedReader reader = newBufferedReader(file, UTF_8))
+    {
+      if (!HEADER.equals(reader.readLine()))
+      {
+        throw new IllegalArgumentException("Not a sync packet: " + file);
+      }
+      
+      String[] sender = readFields(reader, "sender", 4);
+      String[] base = readFields(reader, "base", 3);
+      String[] result = readFields(reader, "result", 3);
+      List<Hunk> hunks = new ArrayList<Hunk>();
+      
+      for (String line = reader.readLine(); line != null; line = reader.readLine())
+      {
+        String[] fields = getFields(line, "hunk", 4);
+        int lineCount = Integer.parseInt(fields[3]);
+        List<String> lines = new ArrayList<String>(lineCount);
+        
+        for (int i = 0; i < lineCount; i++)
+        {
+          String hunkLine = reader.readLine();
+          
+          if (hunkLine == null) { throw new IllegalArgumentException("Truncated packet: " + file); }
+          
+          lines.add(hunkLine);
+        }
+        
+        hunks.add(new Hunk(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), lines));
+      }
+      
+      return new SyncPacket(sender[1], Kind.valueOf(sender[3]), Long.parseUnsignedLong(base[1], 16),
+                            Integer.parseInt(base[2]), Long.parseUnsignedLong(result[1], 16),
+                            Integer.parseInt(result[2]), hunks);
+    }
+  }
+  
+  private static String[] readFields(BufferedReader reader, String label, int count)
+    throws IOException
+  {
+    String line = reader.readLine();
+    
+    if (line == null) { throw new IllegalArgumentException("Missing " + label + " line"); }
+    
+    return getFields(line, label, count);
+  }
+  
+  private static String[] getFields(String line, String label, int count)
+  {
+    String[] fields = line.split(" ");
+    
+    if (fields.length != count || !fields[0].equals(label))
+    {
+      throw new IllegalArgumentException("Expected a " + label + " line: [" + line + "]");
+    }
+    
+    return fields;
+  }
+  
+  private final String senderId;
+  private final Kind kind;
+  private final long baseFingerprint;
+  private final int baseLineCount;
+  private final long resultFingerprint;
+  private final int resultLineCount;
+  private final List<Hunk> hunks;
+  
+  public SyncPacket(String senderId, Kind kind, List<String> base, List<String> result)
+  {
+    this(senderId, kind, LineDiff.getFingerprint(base), base.size(),
+         LineDiff.getFingerprint(result), result.size(), LineDiff.diff(base, result));
+  }
+  
+  private SyncPacket(String senderId, Kind kind, long baseFingerprint, int baseLineCount,
+                     long resultFingerprint, int resultLineCount, List<Hunk> hunks)
+  {
+    this.senderId = senderId;
+    this.kind = kind;
+    this.baseFingerprint = baseFingerprint;
+    this.baseLineCount = baseLineCount;
+    this.resultFingerprint = resultFingerprint;
+    this.resultLineCount = resultLineCount;
+    this.hunks = hunks;
+  }
+  
+  public void write(Path file) throws IOException
+  {
+    try (BufferedWriter writer = newBufferedWriter(file, UTF_8))
+    {
+      writer.write(HEADER + "\n");
+      writer.write("sender " + senderId + " kind " + kind + "\n");
+      writer.write("base " + Long.toHexString(baseFingerprint) + " " + baseLineCount + "\n");
+      writer.write("result " + Long.toHexString(resultFingerprint) + " " + resultLineCount + "\n");
+      
+      for (Hunk hunk : hunks)
+      {
+        writer.write("hunk " + hunk.getBaseStart() + " " + hunk.getBaseEnd() + " "
+                     + hunk.getLines().size() + "\n");
+        
+        for (String line : hunk.getLines()) { writer.write(line + "\n"); }
+      }
+    }
+  }
+  
+  public String getSenderId() { return senderId; }
+  
+  public Kind getKind() { return kind; }
+  
+  public List<Hunk> getHunks() { return hunks; }
+  
+  /**
+   * @return true if the sender's changes were made to this base
+   */
+  public boolean isBasedOn(List<String> base)
+  {
+    return base.size() == baseLineCount && LineDiff.getFingerprint(base) == baseFingerprint;
+  }
+  
+  /**
+   * @return The sender's result, rebuilt from our copy of the base
+   * @throws IllegalStateException If our base isn't the sender's, or the result doesn't match
+   */
+  public List<String> getResult(List<String> base)
+  {
+    if (!isBasedOn(base))
+    {
+      throw new IllegalStateException("The sender's last synced version isn't ours");
+    }
+    
+    List<String> result = LineDiff.apply(base, hunks);
+    
+    if (result.size() != resultLineCount || LineDiff.getFingerprint(result) != resultFingerprint)
+    {
+      throw new IllegalStateException("The sender's changes didn't apply cleanly");
+    }
+    
+    return result;
+  }
+}
@@ -0,0 +1,153 @@
+package mattmunz.todo.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges two revisions of a base version line by line. Changes made on only one side are
+ * applied. Where both sides changed the same base lines, or inserted at the same place, the
+ * change is applied if both made the same one; otherwise it is a conflict, and our side's lines
+ * are kept.
+ */
+public class ThreeWayMerge
+{
+  private final List<String> lines = new ArrayList<String>();
+  private final List<Conflict> conflicts = new ArrayList<Conflict>();
+  
+  public ThreeWayMerge(List<String> base, List<String> ours, List<String> theirs)
+  {
+    List<Hunk> ourHunks = LineDiff.diff(base, ours);
+    List<Hunk> theirHunks = LineDiff.diff(base, theirs);
+    int next = 0;
+    int ourIndex = 0;
+    int theirIndex = 0;
+    
+    while (ourIndex < ourHunks.size() || theirIndex < theirHunks.size())
+    {
+      boolean isOurs = theirIndex == theirHunks.size()
+                       || (ourIndex < ourHunks.size()
+                           && ourHunks.get(ourIndex).getBaseStart()
+                              <= theirHunks.get(theirIndex).getBaseStart());
+      Hunk first = isOurs ? ourHunks.get(ourIndex) : theirHunks.get(theirIndex);
+      int start = first.getBaseStart();
+      int end = first.getBaseEnd();
+      int ourEnd = ourIndex;
+      int theirEnd = theirIndex;
+      
+      if (isOurs) { ourEnd++; }
+      else { theirEnd++; }
+      
+      boolean isGrowing = true;
+      
+      while (isGrowing)
+      {
+        isGrowing = false;
+        
+        if (ourEnd < ourHunks.size() && overlaps(ourHunks.get(ourEnd), start, end))
+        {
+          end = Math.max(end, ourHunks.get(ourEnd++).getBaseEnd());
+          isGrowing = true;
+        }
+        
+        if (theirEnd < theirHunks.size() && overlaps(theirHunks.get(theirEnd), start, end))
+        {
+          end = Math.max(end, theirHunks.get(theirEnd++).getBaseEnd());
+          isGrowing = true;
+        }
+      }
+      
+      lines.addAll(base.subList(next, start));
+      
+      List<String> ourLines = apply(base, start, end, ourHunks.subList(ourIndex, ourEnd));
+      List<String> theirLines = apply(base, start, end, theirHunks.subList(theirIndex, theirEnd));
+      
+      if (ourIndex == ourEnd) { lines.addAll(theirLines); }
+      else if (theirIndex == theirEnd || ourLines.equals(theirLines)) { lines.addAll(ourLines); }
+      else
+      {
+        conflicts.add(new Conflict(start, end, lines.size(), ourLines, theirLines));
+        lines.addAll(ourLines);
+      }
+      
+      next = end;
+      ourIndex = ourEnd;
+      theirIndex = theirEnd;
+    }
+    
+    lines.addAll(base.subList(next, base.size()));
+  }
+  
+  /**
+   * A hunk, which starts no earlier than start, overlaps the base lines start to end if it 
+   * changes any of them, inserts among them, or inserts at start.
+   */
+  private static boolean overlaps(Hunk hunk, int start, int end)
+  {
+    return hunk.getBaseStart() == start || hunk.getBaseStart() < end;
+  }
+  
+  /**
+   * @return The base lines start to end with the hunks, which are all within them, applied
+   */
+  private static List<String> apply(List<String> base, int start, int end, List<Hunk> hunks)
+  {
+    List<Hunk> shiftedHunks = new ArrayList<Hunk>(hunks.size());
+    
+    for (Hunk hunk : hunks)
+    {
+      shiftedHunks.add(new Hunk(hunk.getBaseStart() - start, hunk.getBaseEnd() - start,
+                                hunk.getLines()));
+    }
+    
+    return LineDiff.apply(base.subList(start, end), shiftedHunks);
+  }
+  
+  public List<String> getLines() { return lines; }
+  
+  public List<Conflict> getConflicts() { return conflicts; }
+  
+  /**
+   * Base lines both sides changed differently.
+   */
+  public static class Conflict
+  {
+    private final int baseStart;
+    private final int baseEnd;
+    private final int mergedStart;
+    private final List<String> ourLines;
+    private final List<String> theirLines;
+    
+    private Conflict(int baseStart, int baseEnd, int mergedStart, List<String> ourLines,
+                     List<String> theirLines)
+    {
+      this.baseStart = baseStart;
+      this.baseEnd = baseEnd;
+      this.mergedStart = mergedStart;
+      this.ourLines = ourLines;
+      this.theirLines = theirLines;
+    }
+    
+    public int getBaseStart() { return baseStart; }
+    
+    public int getBaseEnd() { return baseEnd; }
+    
+    /**
+     * @return The index in the merged lines where our lines were kept
+     */
+    public int getMergedStart() { return mergedStart; }
+    
+    public List<String> getOurLines() { return ourLines; }
+    
+    public List<String> getTheirLines() { return theirLines; }
+    
+    /**
+     * Line numbers are 1-based, as in the todo file.
+     */
+    @Override
+    public String toString()
+    {
+      return "Lines " + (mergedStart + 1) + "-" + (mergedStart + ourLines.size()) + ": kept "
+             + ourLines + ", not " + theirLines;
+    }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Keeping two copies of a todo.txt file in step by exchanging only their changed lines.
+ */
+package mattmunz.todo.sync;
@@ -0,0 +1,117 @@
+package mattmunz.todo;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.DayOfWeek.THURSDAY;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import mattmunz.todo.cli.Sorter;
+import mattmunz.todo.store.ColumnarTaskStore;
+import mattmunz.todo.store.TaskRowView;
+
+import org.junit.Test;
+
+public class ColumnarTaskStoreTest
+{
+  private static final List<String> TASK_LINES 
+    = asList("04 x 2016-03-11 2016-03-10 Buy cat litter",
+             "03 (A) Merge in all todos into this file @Mab +Productivity d:Th",
+             "02 (B) 2016-03-05 Get lily photos on phone @Mab +Productivity",
+             "09 (A) Test 4 on:M +Health @Home day:W tod:A",
+             "13 (A) Test 8 on:A +Health @Mab day:M",
+             "11 (A) Test 6 on:M +Productivity @Mab +Fun",
+             "06 (B) Test 1 on:Mon +Productivity @Mab rec:weekdays",
+             "07 (B) Test 2 on:Tu +Productivity @Mab @Home",
+             "10 (B) Test 5 on:M +Productivity @Home day:Sa",
+             "12 (B) Test 7 on:A +Productivity @Mab",
+             "08 (C) Test 3 on:Tu +Productivity @Prospero day:W tod:M",
+             "05 (C) 2016-03-11 Get more text news readers for phone",
+             "01 (D) 2016-03-05 Test");
+  
+  @Test
+  public void sortMatchesSorter()
+  {
+    assertSortMatchesSorter(MONDAY);
+    assertSortMatchesSorter(THURSDAY);
+  }
+
+  @Test
+  public void sortByAgeMatchesSorter() { assertSortMatchesSorter(new Sorter(MONDAY, true)); }
+
+  @Test
+  public void dateRanges()
+  {
+    ColumnarTaskStore store = createStore(1);
+    int march5 = TodoDate.parse("2016-03-05", 0);
+    int march11 = TodoDate.parse("2016-03-11", 0);
+    
+    assertEquals("[0, 2, 11, 12]", 
+                 Arrays.toString(store.getRowsCreatedBetween(march5, march11)));
+    assertEquals("[0]", Arrays.toString(store.getRowsCompletedBetween(march11, march11)));
+    assertEquals("[]", Arrays.toString(store.getRowsCompletedBetween(TodoDate.NONE, march5)));
+  }
+
+  @Test
+  public void toTask()
+  {
+    ColumnarTaskStore store = createStore(10);
+    TaskRowView view = store.getView();
+    
+    for (int row = 0; row < TASK_LINES.size(); row++)
+    {
+      Task task = new Task(TASK_LINES.get(row));
+      Task rowTask = view.moveTo(row).toTask();
+      
+      assertEquals(task, rowTask);
+      assertEquals(task.getIdentifier(), rowTask.getIdentifier());
+      assertEquals(task.getCreationEpochDay(), rowTask.getCreationEpochDay());
+      assertEquals(task.getCompletionEpochDay(), rowTask.getCompletionEpochDay());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonAsciiPriority()
+  {
+    Task task = new Task("Call Mom", "1", false, Optional.of("\u00C9"), Optional.empty(), 
+                         Optional.empty(), Optional.empty(), Optional.empty(), emptySet(), 
+                         emptySet(), "Call Mom");
+    
+    new ColumnarTaskStore().add(task);
+  }
+
+  private void assertSortMatchesSorter(DayOfWeek sortDay) 
+  { 
+    assertSortMatchesSorter(new Sorter(sortDay)); 
+  }
+
+  private void assertSortMatchesSorter(Sorter sorter)
+  {
+    List<String> expectedLines 
+      = sorter.sort(TASK_LINES.stream().map(Task::new)).map(Task::getLineText).collect(toList());
+    
+    ColumnarTaskStore store = createStore(1);
+    TaskRowView view = store.getView();
+    List<String> actualLines = new ArrayList<String>();
+    
+    for (int row : sorter.sort(store)) { actualLines.add(view.moveTo(row).getLineText()); }
+    
+    assertEquals(expectedLines, actualLines);
+  }
+
+  private ColumnarTaskStore createStore(int initialCapacity)
+  {
+    ColumnarTaskStore store = new ColumnarTaskStore(initialCapacity);
+    
+    TASK_LINES.stream().map(Task::new).forEach(store::add);
+    
+    return store;
+  }
+}
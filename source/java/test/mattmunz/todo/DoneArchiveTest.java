@@ -0,0 +1,58 @@
+package mattmunz.todo;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import mattmunz.todo.archive.DoneArchive;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DoneArchiveTest
+{
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void getCompletionDate()
+  {
+    assertEquals(LocalDate.of(2016, 3, 11), 
+                 DoneArchive.getCompletionDate("x 2016-03-11 2016-03-10 Buy cat litter").get());
+    assertFalse(DoneArchive.getCompletionDate("x Buy cat litter").isPresent());
+    assertFalse(DoneArchive.getCompletionDate("(A) 2016-03-11 Buy cat litter").isPresent());
+  }
+  
+  @Test
+  public void queryByCompletionDate() throws IOException
+  {
+    Path directory = directories.create("done");
+    
+    DoneArchive archive = new DoneArchive(directory);
+    
+    archive.append("x 2016-03-11 2016-03-10 Buy cat litter");
+    archive.append("x 2016-04-02 Pay rent");
+    archive.append("x 2016-03-11 Get lily photos");
+    archive.append("x Undated");
+    archive.append("x 2016-03-12 Test");
+    archive.flush();
+    
+    archive.append("x 2016-03-11 Later");
+    archive.flush();
+
+    assertEquals(asList("x 2016-03-11 2016-03-10 Buy cat litter", "x 2016-03-11 Get lily photos", 
+                        "x 2016-03-11 Later"), 
+                 archive.getTasksCompletedBetween(LocalDate.of(2016, 3, 11), 
+                                                  LocalDate.of(2016, 3, 11)));
+    assertEquals(asList("x 2016-03-12 Test", "x 2016-04-02 Pay rent"), 
+                 archive.getTasksCompletedBetween(LocalDate.of(2016, 3, 12), 
+                                                  LocalDate.of(2016, 4, 30)));
+  }
+}
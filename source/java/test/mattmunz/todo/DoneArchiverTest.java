@@ -0,0 +1,86 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mattmunz.todo.archive.DoneArchive;
+import mattmunz.todo.cli.DoneArchiver;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DoneArchiverTest
+{
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void archiveCompletedTasks() throws IOException
+  {
+    Path directory = directories.create("done");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    String coloredLine = "\u001B[1;33mx 2016-03-11 Call Mom\u001B[0m";
+    
+    Files.write(todoTxtFile, asList("(A) Pay rent day:F", "x 2016-03-10 Buy cat litter", "", 
+                                    coloredLine, "\u001B[1;33m(B) Water the plants\u001B[0m", 
+                                    "xylophone lesson"), 
+                UTF_8);
+    
+    DoneArchiver.main(new String[] { "archive", todoTxtFile.toString() });
+    
+    assertEquals(asList("(A) Pay rent day:F", "", "\u001B[1;33m(B) Water the plants\u001B[0m", 
+                        "xylophone lesson"), 
+                 Files.readAllLines(todoTxtFile, UTF_8));
+    assertEquals(asList("x 2016-03-10 Buy cat litter", coloredLine), 
+                 new DoneArchive(directory.resolve("done"))
+                   .getTasksCompletedBetween(LocalDate.of(2016, 3, 1), LocalDate.of(2016, 3, 31)));
+  }
+  
+  /**
+   * A line which can't be parsed stops the run before anything is archived, however often it's 
+   * run.
+   */
+  @Test
+  public void invalidLineArchivesNothing() throws IOException
+  {
+    Path directory = directories.create("done");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    List<String> lines 
+      = asList("x 2016-03-10 Buy cat litter", "(A) Pay rent", "x 2016-03-11 Bad day:Blarg");
+    
+    Files.write(todoTxtFile, lines, UTF_8);
+    
+    for (int i = 0; i < 2; i++)
+    {
+      try 
+      { 
+        DoneArchiver.main(new String[] { "archive", todoTxtFile.toString() }); 
+        fail("The invalid line was archived");
+      }
+      catch (IllegalArgumentException exception) { }
+    }
+    
+    assertEquals(lines, Files.readAllLines(todoTxtFile, UTF_8));
+    assertEquals(asList(), 
+                 new DoneArchive(directory.resolve("done"))
+                   .getTasksCompletedBetween(LocalDate.of(2016, 3, 1), LocalDate.of(2016, 3, 31)));
+    
+    try (Stream<Path> files = Files.list(directory))
+    {
+      assertEquals(asList("todo.txt"), 
+                   files.map(file -> "" + file.getFileName()).collect(toList()));
+    }
+  }
+}
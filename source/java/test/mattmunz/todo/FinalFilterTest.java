@@ -1,6 +1,15 @@
 package mattmunz.todo;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+
 import mattmunz.todo.cli.ListDisplayFilter;
 
 import org.junit.Test;
@@ -16,4 +25,35 @@ public class FinalFilterTest
     assertEquals("foo  ", filter.addPadding("foo", 5));
     assertEquals("foo    ", filter.addPadding("foo", 7));
   }
+  
+  @Test
+  public void queryTerms() throws Exception
+  {
+    String lines = "1 @Home Clean the kitchen day:M\n2 @Home Water the plants day:F\n"
+                   + "3 @Work Clean the desk day:M\n4 Clean the car\n";
+    
+    InputStream originalInput = System.in;
+    PrintStream originalOutput = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    try
+    {
+      System.setIn(new ByteArrayInputStream(lines.getBytes(UTF_8)));
+      System.setOut(new PrintStream(output, true, "UTF-8"));
+      
+      ListDisplayFilter.main(new String[] { "day:M", "Clean" });
+    }
+    finally
+    {
+      System.setIn(originalInput);
+      System.setOut(originalOutput);
+    }
+    
+    String table = output.toString("UTF-8");
+    
+    assertTrue(table.contains("Clean the kitchen"));
+    assertTrue(table.contains("Clean the desk"));
+    assertFalse(table.contains("Water the plants"));
+    assertFalse(table.contains("Clean the car"));
+  }
 }
@@ -0,0 +1,159 @@
+package mattmunz.todo;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+import org.junit.Test;
+
+import mattmunz.todo.cli.Sorter;
+import mattmunz.todo.flow.FilterProcessor;
+import mattmunz.todo.flow.LinePublisher;
+import mattmunz.todo.flow.ParseProcessor;
+import mattmunz.todo.flow.RowRenderProcessor;
+import mattmunz.todo.flow.TopKProcessor;
+
+public class FlowPipelineTest
+{
+  private static final List<String> LINES 
+    = asList("(B) Walk dog @Home day:Tu", "", "x Buy milk @Errands day:M", 
+             "(A) Call mom @Phone day:M", "Read book @Home");
+
+  @Test
+  public void sortAndRenderOpenTasks()
+  {
+    LinePublisher lines = new LinePublisher(LINES.iterator(), Runnable::run);
+    ParseProcessor parser = new ParseProcessor(true);
+    FilterProcessor<Task> filter = new FilterProcessor<Task>(task -> !task.isCompleted());
+    TopKProcessor<Task> topK 
+      = new TopKProcessor<Task>(2, new Sorter(DayOfWeek.MONDAY).getOrdering(), 2);
+    RowRenderProcessor renderer = new RowRenderProcessor(2, 1, 1, 6, 1, 0);
+    
+    CollectingSubscriber rows = new CollectingSubscriber(1);
+    
+    renderer.subscribe(rows);
+    topK.subscribe(renderer);
+    filter.subscribe(topK);
+    parser.subscribe(filter);
+    lines.subscribe(parser);
+    
+    assertEquals(asList("5      Home     Read book\u001B[0m", "4  A M Phone    Call mom\u001B[0m"), 
+                 rows.items);
+    assertEquals(true, rows.isComplete);
+  }
+
+  @Test
+  public void readOnlyRequestedLines()
+  {
+    int[] readCount = { 0 };
+    Iterator<String> source = LINES.iterator();
+    Iterator<String> countingSource = new Iterator<String>()
+    {
+      @Override
+      public boolean hasNext() { return source.hasNext(); }
+
+      @Override
+      public String next() 
+      { 
+        readCount[0]++;
+        return source.next(); 
+      }
+    };
+    
+    ParseProcessor parser = new ParseProcessor(true);
+    CollectingSubscriber tasks = new CollectingSubscriber(0);
+    
+    parser.subscribe(tasks);
+    new LinePublisher(countingSource, Runnable::run).subscribe(parser);
+    
+    assertEquals(0, readCount[0]);
+    
+    tasks.subscription.request(2);
+    
+    assertEquals(2, tasks.items.size());
+    assertEquals("3", ((Task) tasks.items.get(1)).getIdentifier());
+    assertEquals(3, readCount[0]);
+  }
+
+  @Test
+  public void numberColoredLines()
+  {
+    ParseProcessor parser = new ParseProcessor(true);
+    CollectingSubscriber tasks = new CollectingSubscriber(1);
+    
+    parser.subscribe(tasks);
+    new LinePublisher(asList("Read book @Home", "\u001B[1;33m(A) Call mom @Phone").iterator(), 
+                      Runnable::run).subscribe(parser);
+    
+    Task task = (Task) tasks.items.get(1);
+    
+    assertEquals("2", task.getIdentifier());
+    assertEquals("A", task.getPriority().get());
+    assertEquals("Call mom", task.getMessage());
+  }
+
+  @Test
+  public void secondSubscriberIsRejected()
+  {
+    LinePublisher lines = new LinePublisher(LINES.iterator(), Runnable::run);
+    CollectingSubscriber first = new CollectingSubscriber(0);
+    List<Throwable> errors = new ArrayList<Throwable>();
+    CollectingSubscriber second = new CollectingSubscriber(1)
+    {
+      @Override
+      public void onError(Throwable throwable) { errors.add(throwable); }
+    };
+    
+    lines.subscribe(first);
+    lines.subscribe(second);
+    
+    assertEquals(0, second.items.size());
+    assertEquals(IllegalStateException.class, errors.get(0).getClass());
+    
+    first.subscription.request(LINES.size());
+    
+    assertEquals(LINES, first.items);
+    assertEquals(true, first.isComplete);
+  }
+
+  /**
+   * Requests the given number of items at first, then one more after each item, if any.
+   */
+  private static class CollectingSubscriber implements Subscriber<Object>
+  {
+    private final int requestCount;
+    private final List<Object> items = new ArrayList<Object>();
+    private Subscription subscription;
+    private boolean isComplete;
+
+    private CollectingSubscriber(int requestCount) { this.requestCount = requestCount; }
+
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+      this.subscription = subscription;
+      
+      if (requestCount > 0) { subscription.request(requestCount); }
+    }
+
+    @Override
+    public void onNext(Object item)
+    {
+      items.add(item);
+      
+      if (requestCount > 0) { subscription.request(1); }
+    }
+
+    @Override
+    public void onError(Throwable throwable) { throw new AssertionError(throwable); }
+
+    @Override
+    public void onComplete() { isComplete = true; }
+  }
+}
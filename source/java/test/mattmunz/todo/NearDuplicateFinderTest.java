@@ -0,0 +1,54 @@
+package mattmunz.todo;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import mattmunz.todo.cli.NearDuplicateFinder;
+
+public class NearDuplicateFinderTest
+{
+  private static final String[] LINES 
+    = { "1 (A) Buy cat litter at the pet store @Errands", 
+        "2 Call mom about the birthday party @Phone", 
+        "3 (C) Buy cat liter at the pet store @Home +Cats", 
+        "4 Review pull request for the parser +Todo", 
+        "5 Buy cat litter at the pet store day:Sa", 
+        "6 call Mom about the birthday party!" };
+
+  @Test
+  public void clusters()
+  {
+    assertClusters(new NearDuplicateFinder(0.7, false), "[[1, 3, 5], [2, 6]]");
+  }
+
+  @Test
+  public void clustersByExactSimilarity()
+  {
+    assertClusters(new NearDuplicateFinder(0.7, true), "[[1, 3, 5], [2, 6]]");
+  }
+
+  @Test
+  public void clustersAtHighThreshold()
+  {
+    assertClusters(new NearDuplicateFinder(1, true), "[[1, 5], [2, 6]]");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void invalidThreshold() { new NearDuplicateFinder(1.5, false); }
+
+  private void assertClusters(NearDuplicateFinder finder, String expectedClusters)
+  {
+    for (String line : LINES) { finder.add(new Task(line)); }
+    
+    List<List<String>> clusters 
+      = finder.getClusters().stream()
+              .map(cluster -> cluster.stream().map(Task::getIdentifier).collect(toList()))
+              .collect(toList());
+    
+    assertEquals(expectedClusters, "" + clusters);
+  }
+}
@@ -0,0 +1,184 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.readAllLines;
+import static java.nio.file.Files.write;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import mattmunz.time.DayHelper;
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.cli.ListDisplayFilter;
+import mattmunz.todo.cli.Sorter;
+import mattmunz.todo.cli.TaskMover;
+
+/**
+ * Runs the CLIs end to end over generated lists of 10k, 100k and 1M lines, and fails when 
+ * throughput falls below, or peak RSS rises above, the budgets in performance-budget.properties.
+ * 
+ * Slow, so only runs with -Dnexttodo.performance=true. Peak RSS is the process's high-water mark 
+ * (VmHWM), which never goes down, so it's only checked on Linux and sizes are run smallest first.
+ */
+public class PerformanceRegressionTest
+{
+  private static final String ENABLED_PROPERTY = "nexttodo.performance";
+  private static final int[] LINE_COUNTS = { 10000, 100000, 1000000 };
+  private static final long SEED = 20160101;
+  
+  private final Properties budget = new Properties();
+  
+  public PerformanceRegressionTest() throws IOException
+  {
+    try (InputStream input = getClass().getResourceAsStream("performance-budget.properties"))
+    {
+      if (input != null) { budget.load(input); }
+    }
+  }
+
+  /**
+   * One test, so that every tool runs at each size before any tool runs at the next.
+   */
+  @Test
+  public void budgets() throws IOException
+  {
+    assumeTrue(Boolean.getBoolean(ENABLED_PROPERTY));
+    
+    String day = new DayHelper().getIdentifier(DayOfWeek.WEDNESDAY);
+    String timeOfDay = TimeOfDay.values()[0].getIdentifier();
+    String context = TodoCorpusGenerator.getName("Context", 1);
+    
+    for (int lineCount : LINE_COUNTS)
+    {
+      Path directory = createTempDirectory("todo");
+      
+      try
+      {
+        Path numberedList = writeNumberedList(directory, lineCount);
+        
+        checkBudget("Sorter", lineCount, 
+                    () -> runWithInput(numberedList, () -> Sorter.main(new String[0])));
+        
+        checkBudget("ListDisplayFilter", lineCount, 
+                    () -> runWithInput(numberedList, () -> ListDisplayFilter.main(new String[0])));
+        
+        Path todoTxtFile = directory.resolve("todo.txt");
+        
+        new TodoCorpusGenerator(SEED).write(todoTxtFile, lineCount);
+        
+        String[] arguments = { todoTxtFile.toString(), day, timeOfDay, "@" + context };
+        
+        checkBudget("TaskMover", lineCount, 
+                    () -> runWithInput(todoTxtFile, () -> TaskMover.main(arguments)));
+      }
+      finally { TemporaryDirectories.delete(directory); }
+    }
+  }
+
+  private Path writeNumberedList(Path directory, int lineCount) throws IOException
+  {
+    Path file = directory.resolve("numbered.txt");
+    
+    write(file, new TodoCorpusGenerator(SEED).generateNumberedLines(lineCount).collect(toList()), 
+          UTF_8);
+    
+    return file;
+  }
+
+  /**
+   * The first run of each size warms up the JIT, and isn't timed.
+   */
+  private void checkBudget(String tool, int lineCount, Run run) throws IOException
+  {
+    run.run();
+    
+    long start = System.nanoTime();
+    
+    run.run();
+    
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long linesPerSecond = Math.round(lineCount / seconds);
+    long minimumLinesPerSecond = getBudget(tool + ".minimumLinesPerSecond." + lineCount);
+    long peakRssMegabytes = getPeakRssMegabytes();
+    
+    System.err.println(tool + " " + lineCount + " lines: " + linesPerSecond + " lines/s, peak RSS " 
+                       + peakRssMegabytes + " MB");
+    
+    assertTrue(tool + " " + lineCount + " lines: " + linesPerSecond + " lines/s, budget " 
+               + minimumLinesPerSecond, linesPerSecond >= minimumLinesPerSecond);
+    
+    if (peakRssMegabytes < 0) { return; }
+    
+    long maximumPeakRssMegabytes = getBudget("maximumPeakRssMegabytes." + lineCount);
+    
+    assertTrue(tool + " " + lineCount + " lines: peak RSS " + peakRssMegabytes + " MB, budget " 
+               + maximumPeakRssMegabytes, peakRssMegabytes <= maximumPeakRssMegabytes);
+  }
+
+  private long getBudget(String key)
+  {
+    String value = budget.getProperty(key);
+    
+    if (value == null) { throw new IllegalStateException("No performance budget for " + key); }
+    
+    return Long.parseLong(value.trim());
+  }
+
+  /**
+   * @return The process's peak resident set size, or -1 where /proc isn't available
+   */
+  private long getPeakRssMegabytes() throws IOException
+  {
+    Path status = Paths.get("/proc/self/status");
+    
+    if (!status.toFile().exists()) { return -1; }
+    
+    for (String line : readAllLines(status))
+    {
+      if (line.startsWith("VmHWM:")) 
+      { 
+        return Long.parseLong(line.replaceAll("\\D", "")) / 1024; 
+      }
+    }
+    
+    return -1;
+  }
+
+  /**
+   * The CLIs read standard input and write to standard output, so both are swapped out for the 
+   * run. Output is discarded.
+   */
+  private void runWithInput(Path input, Run run) throws IOException
+  {
+    InputStream systemIn = System.in;
+    PrintStream systemOut = System.out;
+    
+    try (InputStream fileInput = newInputStream(input))
+    {
+      System.setIn(fileInput);
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      
+      run.run();
+    }
+    finally
+    {
+      System.setIn(systemIn);
+      System.setOut(systemOut);
+    }
+  }
+  
+  private interface Run { void run() throws IOException; }
+}
@@ -0,0 +1,105 @@
+package mattmunz.todo;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.DayOfWeek.THURSDAY;
+import static mattmunz.time.TimeOfDay.AFTERNOON;
+import static mattmunz.time.TimeOfDay.EVENING;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Optional;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.cli.ScheduleIndex;
+import mattmunz.todo.cli.Sorter;
+
+import org.junit.Test;
+
+public class ScheduleIndexTest
+{
+  private static final List<String> TASK_LINES 
+    = asList("01 (C) Baz day:M tod:A", "02 (B) Bar day:W", "03 (B) Foo day:Sa", 
+             "04 (A) Qux @Home day:M tod:A", "05 x (A) Done day:M", "06 (A) Someday", 
+             "07 (B) Early day:M", "08 (B) Someday later tod:E");
+  
+  @Test
+  public void nextTasksFromStartOfDay()
+  {
+    assertEquals(asList("06", "08", "07", "01", "04", "02", "03"), 
+                 getNextIdentifiers(createIndex(), 10, MONDAY, Optional.empty()));
+  }
+
+  @Test
+  public void nextTasksMatchSorter()
+  {
+    for (DayOfWeek day : DayOfWeek.values())
+    {
+      List<String> sortedIdentifiers 
+        = new Sorter(day).sort(TASK_LINES.stream().map(Task::new))
+                         .filter(task -> !task.isCompleted()).map(Task::getIdentifier)
+                         .collect(toList());
+      
+      assertEquals(sortedIdentifiers, getNextIdentifiers(createIndex(), 10, day, Optional.empty()));
+    }
+  }
+
+  @Test
+  public void nextTasksWrapAroundTheWeek()
+  {
+    ScheduleIndex index = createIndex();
+    
+    assertEquals(asList("06", "08", "03", "07"), 
+                 getNextIdentifiers(index, 4, THURSDAY, Optional.empty()));
+  }
+
+  @Test
+  public void earlierTimesOfDayAreSkipped()
+  {
+    ScheduleIndex index = createIndex();
+    
+    assertEquals(asList("06", "08", "07", "01", "04", "02", "03"), 
+                 getNextIdentifiers(index, 10, MONDAY, Optional.of(AFTERNOON)));
+    assertEquals(asList("06", "08", "07", "02", "03"), 
+                 getNextIdentifiers(index, 10, MONDAY, Optional.of(EVENING)));
+  }
+
+  @Test
+  public void moveTask()
+  {
+    ScheduleIndex index = createIndex();
+    
+    index.move(new Task("01 (C) Baz day:M tod:A"), new Task("01 (C) Baz day:Sa"));
+    
+    assertEquals(asList("06", "08", "07", "04", "02", "03", "01"), 
+                 getNextIdentifiers(index, 10, MONDAY, Optional.empty()));
+  }
+
+  @Test
+  public void completedTasksAreNotIndexed()
+  {
+    ScheduleIndex index = createIndex();
+    
+    assertEquals(7, index.size());
+    assertFalse(index.remove(new Task("05 x (A) Done day:M")));
+  }
+
+  private ScheduleIndex createIndex()
+  {
+    ScheduleIndex index = new ScheduleIndex();
+    
+    TASK_LINES.stream().map(Task::new).forEach(index::add);
+    
+    return index;
+  }
+
+  private List<String> getNextIdentifiers(ScheduleIndex index, int count, DayOfWeek day, 
+                                          Optional<TimeOfDay> timeOfDay)
+  {
+    return index.getNextTasks(count, day, timeOfDay).stream().map(Task::getIdentifier)
+                .collect(toList());
+  }
+}
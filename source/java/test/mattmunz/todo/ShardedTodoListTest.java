@@ -0,0 +1,175 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.archive.SnapshotArchiver;
+import mattmunz.todo.cli.ShardTool;
+import mattmunz.todo.shard.Shard;
+import mattmunz.todo.shard.ShardedTodoList;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ShardedTodoListTest
+{
+  private static final List<String> LINES
+    = asList("Pay rent day:F", "@Home Clean the kitchen day:M", "Buy cat litter",
+             "@Home Water the plants day:M");
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void splitAndJoin() throws IOException
+  {
+    Path directory = directories.create("shards");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    
+    Files.write(todoTxtFile, LINES, UTF_8);
+    
+    ShardedTodoList list = ShardedTodoList.split(todoTxtFile, directory.resolve("todo"));
+    
+    assertEquals(asList("1 @Home Clean the kitchen day:M", "2 @Home Water the plants day:M"),
+                 list.readNumberedLines(EnumSet.of(Shard.MONDAY)));
+    assertEquals(asList("3 Pay rent day:F", "4 Buy cat litter"),
+                 list.readNumberedLines(EnumSet.of(Shard.FRIDAY, Shard.UNSCHEDULED)));
+    
+    Path joinedFile = directory.resolve("joined.txt");
+    
+    ShardedTodoList.open(directory.resolve("todo")).join(joinedFile);
+    
+    assertEquals(asList("@Home Clean the kitchen day:M", "@Home Water the plants day:M",
+                        "Pay rent day:F", "Buy cat litter"),
+                 Files.readAllLines(joinedFile, UTF_8));
+  }
+  
+  @Test
+  public void moveTasks() throws Exception
+  {
+    Path directory = directories.create("shards");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    Path archiveDirectory = directory.resolve("archive");
+    
+    Files.write(todoTxtFile, LINES, UTF_8);
+    
+    ShardedTodoList list = ShardedTodoList.split(todoTxtFile, directory.resolve("todo"));
+    TimeOfDay timeOfDay = TimeOfDay.values()[0];
+    SnapshotArchiver archiver = SnapshotArchiver.create(archiveDirectory);
+    
+    assertEquals(asList(2),
+                 asList(list.moveTasks(EnumSet.of(Shard.MONDAY),
+                                       task -> task.getIdentifier().equals("2")
+                                                 ? task.moveTo(DayOfWeek.FRIDAY, timeOfDay)
+                                                 : task, 
+                                       archiver).toArray()));
+    
+    archiver.awaitTermination(10, TimeUnit.SECONDS);
+    
+    assertEquals(asList("friday.txt", "manifest", "monday.txt"), 
+                 getSnapshottedFileNames(archiveDirectory));
+    
+    list = ShardedTodoList.open(directory.resolve("todo"));
+    
+    assertEquals(1, list.getLineCount(Shard.MONDAY));
+    assertEquals(2, list.getLineCount(Shard.FRIDAY));
+    assertEquals(Shard.FRIDAY, list.getShard(3));
+    assertEquals(asList("1 @Home Clean the kitchen day:M", "2 Pay rent day:F"),
+                 list.readNumberedLines(EnumSet.of(Shard.MONDAY, Shard.FRIDAY)).subList(0, 2));
+    assertEquals(DayOfWeek.FRIDAY,
+                 new Task(list.readNumberedLines(EnumSet.of(Shard.FRIDAY)).get(1)).getDay().get());
+  }
+  
+  @Test
+  public void moveTasksIntoAChangedShard() throws Exception
+  {
+    Path directory = directories.create("shards");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen day:M", "@Home Pay rent day:Tu tod:M"),
+                UTF_8);
+    
+    ShardedTodoList list = ShardedTodoList.split(todoTxtFile, directory.resolve("todo"));
+    TimeOfDay timeOfDay = TimeOfDay.values()[TimeOfDay.values().length - 1];
+    SnapshotArchiver archiver = SnapshotArchiver.create(directory.resolve("archive"));
+    
+    assertEquals(asList(1, 2),
+                 asList(list.moveTasks(EnumSet.of(Shard.MONDAY, Shard.TUESDAY),
+                                       task -> task.moveTo(DayOfWeek.TUESDAY, timeOfDay), 
+                                       archiver)
+                            .toArray()));
+    
+    archiver.awaitTermination(10, TimeUnit.SECONDS);
+    
+    list = ShardedTodoList.open(directory.resolve("todo"));
+    
+    assertEquals(0, list.getLineCount(Shard.MONDAY));
+    assertEquals(2, list.getLineCount(Shard.TUESDAY));
+    
+    List<String> lines = list.readNumberedLines(EnumSet.of(Shard.TUESDAY));
+    
+    assertEquals(DayOfWeek.TUESDAY, new Task(lines.get(0)).getDay().get());
+    assertEquals(timeOfDay, new Task(lines.get(0)).getTimeOfDay().get());
+    assertEquals("2 @Home Clean the kitchen day:Tu", lines.get(1).replaceFirst(" tod:.*", ""));
+    assertEquals(DayOfWeek.TUESDAY, new Task(lines.get(1)).getDay().get());
+  }
+  
+  /**
+   * A move stopped between writing a shard and the manifest leaves them disagreeing.
+   */
+  @Test
+  public void repair() throws IOException
+  {
+    Path directory = directories.create("shards");
+    Path todoTxtFile = directory.resolve("todo.txt");
+    Path shardDirectory = directory.resolve("todo");
+    
+    Files.write(todoTxtFile, LINES, UTF_8);
+    ShardedTodoList.split(todoTxtFile, shardDirectory);
+    Files.write(shardDirectory.resolve("friday.txt"), asList("Call Mom day:F"), UTF_8, 
+                StandardOpenOption.APPEND);
+    
+    try
+    {
+      ShardedTodoList.open(shardDirectory).readNumberedLines(EnumSet.of(Shard.FRIDAY));
+      fail("The miscounted shard was read");
+    }
+    catch (IllegalStateException exception) { }
+    
+    ShardTool.main(new String[] { "repair", "" + shardDirectory });
+    
+    ShardedTodoList list = ShardedTodoList.open(shardDirectory);
+    
+    assertEquals(2, list.getLineCount(Shard.FRIDAY));
+    assertEquals(asList("3 Pay rent day:F", "4 Call Mom day:F", "5 Buy cat litter"),
+                 list.readNumberedLines(EnumSet.of(Shard.FRIDAY, Shard.UNSCHEDULED)));
+  }
+  
+  /**
+   * @return The names of the files with snapshots in the archive directory, in order
+   */
+  private List<String> getSnapshottedFileNames(Path archiveDirectory) throws IOException
+  {
+    try (Stream<Path> snapshots = Files.list(archiveDirectory))
+    {
+      return snapshots.map(snapshot -> "" + snapshot.getFileName())
+                      .map(name -> name.replaceFirst("\\.\\d+\\..*", "")).sorted()
+                      .collect(toList());
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import mattmunz.todo.archive.ArchiveFormat;
+import mattmunz.todo.archive.RetentionPolicy;
+import mattmunz.todo.archive.SnapshotArchiver;
+import mattmunz.todo.cli.ArchiveRestorer;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SnapshotArchiverTest
+{
+  private static final RetentionPolicy KEEP_ALL = new RetentionPolicy(1000, Duration.ofDays(365));
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void snapshotsInTheSameMillisecond() throws Exception
+  {
+    Path directory = directories.create("archive");
+    Path file = directory.resolve("todo.txt");
+    SnapshotArchiver archiver = createArchiver(directory, ArchiveFormat.GZIP, KEEP_ALL);
+    
+    for (int i = 0; i < 20; i++)
+    {
+      replace(file, "Version " + i);
+      archiver.takeSnapshot(file);
+    }
+    
+    archiver.awaitTermination(10, TimeUnit.SECONDS);
+    
+    List<Path> snapshots = listSnapshots(directory);
+    
+    assertEquals(20, snapshots.size());
+    
+    for (int i = 0; i < 20; i++)
+    {
+      assertEquals("Version " + i + "\n", restore(snapshots.get(i)));
+    }
+  }
+  
+  @Test
+  public void retention() throws Exception
+  {
+    Path directory = directories.create("archive");
+    Path file = directory.resolve("todo.txt");
+    
+    createSnapshot(directory.resolve("archive").resolve("todo.txt.1000.gz"), "Old");
+    
+    SnapshotArchiver archiver
+      = createArchiver(directory, ArchiveFormat.GZIP, new RetentionPolicy(2, Duration.ofDays(1)));
+    
+    for (int i = 0; i < 4; i++)
+    {
+      replace(file, "Version " + i);
+      archiver.takeSnapshot(file);
+    }
+    
+    archiver.awaitTermination(10, TimeUnit.SECONDS);
+    
+    List<Path> snapshots = listSnapshots(directory);
+    
+    assertEquals(2, snapshots.size());
+    assertEquals("Version 2\n", restore(snapshots.get(0)));
+    assertEquals("Version 3\n", restore(snapshots.get(1)));
+  }
+  
+  @Test
+  public void formats() throws Exception
+  {
+    for (ArchiveFormat format : ArchiveFormat.values())
+    {
+      Path directory = directories.create("archive");
+      Path file = directory.resolve("todo.txt");
+      
+      Files.write(file, asList("Pay rent day:F", "Buy cat litter"), UTF_8);
+      
+      SnapshotArchiver archiver = createArchiver(directory, format, KEEP_ALL);
+      
+      archiver.takeSnapshot(file);
+      archiver.awaitTermination(10, TimeUnit.SECONDS);
+      
+      Path snapshot = listSnapshots(directory).get(0);
+      
+      assertEquals(format, ArchiveFormat.forPath(snapshot));
+      assertEquals("Pay rent day:F\nBuy cat litter\n", restore(snapshot));
+      
+      Path restoredFile = directory.resolve("restored.txt");
+      
+      ArchiveRestorer.main(new String[] { snapshot.toString(), restoredFile.toString() });
+      
+      assertEquals(asList("Pay rent day:F", "Buy cat litter"),
+                   Files.readAllLines(restoredFile, UTF_8));
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownFormat() 
+  { 
+    ArchiveFormat.forPath(FileSystems.getDefault().getPath("todo.txt.1000.zip")); 
+  }
+  
+  @Test
+  public void leftoversFromAStoppedArchiver() throws Exception
+  {
+    Path directory = directories.create("archive");
+    Path archiveDirectory = Files.createDirectory(directory.resolve("archive"));
+    long leftoverTime = System.currentTimeMillis() - Duration.ofMinutes(5).toMillis();
+    long inProgressTime = System.currentTimeMillis();
+    Path staged = archiveDirectory.resolve("todo.txt." + leftoverTime + ".staging");
+    Path partial = archiveDirectory.resolve("todo.txt." + (leftoverTime + 1) + ".partial");
+    Path inProgress = archiveDirectory.resolve("todo.txt." + inProgressTime + ".partial");
+    
+    Files.write(staged, asList("Staged"), UTF_8);
+    Files.write(partial, asList("Partial"), UTF_8);
+    Files.write(inProgress, asList("In progress"), UTF_8);
+    
+    SnapshotArchiver archiver = createArchiver(directory, ArchiveFormat.GZIP, KEEP_ALL);
+    
+    archiver.awaitTermination(10, TimeUnit.SECONDS);
+    
+    assertFalse(Files.exists(staged));
+    assertFalse(Files.exists(partial));
+    assertEquals(true, Files.exists(inProgress));
+    assertEquals("Staged\n",
+                 restore(archiveDirectory.resolve("todo.txt." + leftoverTime + ".gz")));
+  }
+  
+  /**
+   * Snapshots are hard links, so the file is replaced rather than written in place.
+   */
+  private void replace(Path file, String text) throws IOException
+  {
+    Path newFile = Files.createTempFile(file.getParent(), "todo", ".new");
+    
+    Files.write(newFile, asList(text), UTF_8);
+    Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+  
+  private SnapshotArchiver createArchiver(Path directory, ArchiveFormat format,
+                                          RetentionPolicy retentionPolicy) throws IOException
+  {
+    return new SnapshotArchiver(directory.resolve("archive"), format,
+                                Deflater.DEFAULT_COMPRESSION, retentionPolicy, 4);
+  }
+  
+  private void createSnapshot(Path snapshot, String text) throws IOException
+  {
+    Files.createDirectories(snapshot.getParent());
+    
+    try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(snapshot)))
+    {
+      output.write((text + "\n").getBytes(UTF_8));
+    }
+  }
+  
+  /**
+   * @return The snapshots, oldest first
+   */
+  private List<Path> listSnapshots(Path directory) throws IOException
+  {
+    try (Stream<Path> files = Files.list(directory.resolve("archive")))
+    {
+      return files.filter(this::isSnapshot)
+                  .sorted((left, right) -> Long.compare(getTime(left), getTime(right)))
+                  .collect(toList());
+    }
+  }
+  
+  private boolean isSnapshot(Path file)
+  {
+    return Stream.of(ArchiveFormat.values())
+                 .anyMatch(format -> file.toString().endsWith(format.getExtension()));
+  }
+  
+  private long getTime(Path snapshot)
+  {
+    String[] parts = snapshot.getFileName().toString().split("\\.");
+    
+    return Long.parseLong(parts[parts.length - 2]);
+  }
+  
+  private String restore(Path snapshot) throws IOException
+  {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    SnapshotArchiver.restore(snapshot, output);
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
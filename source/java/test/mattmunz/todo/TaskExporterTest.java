@@ -0,0 +1,67 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import mattmunz.todo.cli.TaskExporter;
+
+import org.junit.Test;
+
+public class TaskExporterTest
+{
+  private static final String LINES
+    = "12 (A) @Home Say \"hi\" to Zo\u00EB\\ day:M\n\n13 x Pay rent, then relax\n";
+  
+  @Test
+  public void json() throws IOException
+  {
+    assertEquals("{\"identifier\":\"12\",\"completed\":false,\"priority\":\"A\",\"day\":\"MONDAY\","
+                 + "\"timeOfDay\":null,\"contexts\":[\"Home\"],\"projects\":[],"
+                 + "\"message\":\"Say \\\"hi\\\" to Zo\u00EB\\\\\",\"colorCode\":null}\n"
+                 + "{\"identifier\":\"13\",\"completed\":true,\"priority\":null,\"day\":null,"
+                 + "\"timeOfDay\":null,\"contexts\":[],\"projects\":[],"
+                 + "\"message\":\"Pay rent, then relax\",\"colorCode\":null}\n",
+                 export(false));
+  }
+  
+  @Test
+  public void csv() throws IOException
+  {
+    assertEquals("identifier,completed,priority,day,timeOfDay,contexts,projects,message,colorCode\n"
+                 + "12,false,A,MONDAY,,Home,,\"Say \"\"hi\"\" to Zo\u00EB\\\",\n"
+                 + "13,true,,,,,,\"Pay rent, then relax\",\n",
+                 export(true));
+  }
+  
+  @Test
+  public void nonAsciiLine() throws IOException
+  {
+    assertEquals("identifier,completed,priority,day,timeOfDay,contexts,projects,message,colorCode\n"
+                 + "1,false,,,,,,\u00E9\u00E9,\n",
+                 export("\u00E9\u00E9\n", true, true));
+  }
+  
+  @Test
+  public void coloredLine() throws IOException
+  {
+    assertEquals("identifier,completed,priority,day,timeOfDay,contexts,projects,message,colorCode\n"
+                 + "1,true,B,,,Home,,Water the plants,\u001B[1;33m\n",
+                 export("\u001B[1;33mx (B) Water the plants @Home\n", true, true));
+  }
+  
+  private String export(boolean isCsv) throws IOException { return export(LINES, isCsv, false); }
+  
+  private String export(String lines, boolean isCsv, boolean isNumbering) throws IOException
+  {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    new TaskExporter(isCsv, output).export(new ByteArrayInputStream(lines.getBytes(UTF_8)),
+                                           isNumbering);
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
@@ -1,7 +1,9 @@
 package mattmunz.todo;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.junit.Test;
@@ -41,4 +43,17 @@ public class TaskLineParserTest
     
     assertEquals(4, values1.size());
   }
+
+  /**
+   * Field values may hold any letters, not only ASCII ones.
+   */
+  @Test
+  public void nonAsciiFieldValues()
+  {
+    Task task = new Task("01 (B) Read a chapter @\u00C9cole @Caf\u00E9 +Fran\u00E7ais day:M");
+    
+    assertEquals(new HashSet<String>(asList("\u00C9cole", "Caf\u00E9")), task.getContexts());
+    assertEquals(new HashSet<String>(asList("Fran\u00E7ais")), task.getProjects());
+    assertEquals("Read a chapter", task.getMessage().trim());
+  }
 }
@@ -0,0 +1,155 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mattmunz.todo.cli.ListDisplayFilter;
+import mattmunz.todo.cli.Sorter;
+import mattmunz.todo.cli.TaskMerger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TaskMergerTest
+{
+  private final TaskMerger merger
+    = new TaskMerger(new Sorter(DayOfWeek.MONDAY).getOrdering());
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void merge() throws IOException
+  {
+    Path directory = directories.create("merge");
+    Path personal = directory.resolve("personal.txt");
+    Path team = directory.resolve("team.txt");
+    
+    Files.write(personal, asList("Pay rent day:M", "", "Call mom day:W"), UTF_8);
+    Files.write(team, asList("Buy cat litter", "Review plan day:W", "Ship release day:F"), UTF_8);
+    
+    StringWriter output = new StringWriter();
+    
+    merger.merge(asList(personal, team), output);
+    
+    assertEquals(team + ":1 Buy cat litter\n"
+                 + personal + ":1 Pay rent day:M\n"
+                 + personal + ":3 Call mom day:W\n"
+                 + team + ":2 Review plan day:W\n"
+                 + team + ":3 Ship release day:F\n",
+                 output.toString());
+  }
+  
+  /**
+   * The merged lines go on to be displayed, or sorted again, with their tags as identifiers.
+   */
+  @Test
+  public void mergeIntoTheDisplay() throws IOException
+  {
+    Path directory = directories.create("merge");
+    Path personal = directory.resolve("personal.txt");
+    Path team = directory.resolve("team.txt");
+    
+    Files.write(personal, asList("\u001B[1;33m(A) Pay rent day:M", "Call mom day:W"), UTF_8);
+    Files.write(team, asList("Review plan day:W"), UTF_8);
+    
+    StringWriter output = new StringWriter();
+    
+    merger.merge(asList(personal, team), output);
+    
+    List<Task> tasks 
+      = Stream.of(output.toString().split("\n")).map(Task::new).collect(toList());
+    
+    assertEquals(asList(personal + ":1", personal + ":2", team + ":1"), 
+                 tasks.stream().map(Task::getIdentifier).collect(toList()));
+    assertEquals("A", tasks.get(0).getPriority().get());
+    assertEquals(tasks, new Sorter(DayOfWeek.MONDAY).sort(tasks.stream()).collect(toList()));
+    
+    List<String> rows = asList(display(output.toString()).split("\n"));
+    
+    assertEquals(4, rows.size());
+    assertTrue(rows.get(1), rows.get(1).startsWith("\u001B[1;33m" + personal + ":1 A "));
+    assertTrue(rows.get(1), rows.get(1).contains(" Pay rent"));
+    assertTrue(rows.get(3), rows.get(3).startsWith(team + ":1 "));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void pathWithWhitespace() throws IOException
+  {
+    Path file = directories.create("merge").resolve("my todo.txt");
+    
+    Files.write(file, asList("Call mom day:W"), UTF_8);
+    
+    merger.merge(asList(file), new StringWriter());
+  }
+  
+  /**
+   * Sorted on a Wednesday, Monday comes after Friday.
+   */
+  @Test
+  public void mergeFilesSortedOnAnotherDay() throws IOException
+  {
+    Path file = directories.create("merge").resolve("todo.txt");
+    
+    Files.write(file, asList("Call mom day:W", "Ship release day:F", "Pay rent day:M"), UTF_8);
+    
+    StringWriter output = new StringWriter();
+    
+    new TaskMerger(new Sorter(DayOfWeek.WEDNESDAY).getOrdering()).merge(asList(file), output);
+    
+    assertEquals(file + ":1 Call mom day:W\n" + file + ":2 Ship release day:F\n" 
+                 + file + ":3 Pay rent day:M\n", 
+                 output.toString());
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void unsortedInput() throws IOException
+  {
+    Path file = directories.create("merge").resolve("todo.txt");
+    
+    Files.write(file, asList("Call mom day:W", "Pay rent day:M"), UTF_8);
+    
+    merger.merge(asList(file), new StringWriter());
+  }
+  
+  /**
+   * @return What {@link ListDisplayFilter} printed for the lines
+   */
+  private String display(String lines) throws IOException
+  {
+    InputStream systemIn = System.in;
+    PrintStream systemOut = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    try
+    {
+      System.setIn(new ByteArrayInputStream(lines.getBytes(UTF_8)));
+      System.setOut(new PrintStream(output, true, "UTF-8"));
+      
+      ListDisplayFilter.main(new String[0]);
+    }
+    finally
+    {
+      System.setIn(systemIn);
+      System.setOut(systemOut);
+    }
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
@@ -0,0 +1,103 @@
+package mattmunz.todo;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TaskParserTest
+{
+  private static final int THREAD_COUNT = 8;
+  
+  @Test
+  public void concurrentParsingMatchesSingleThreaded() throws Exception
+  {
+    List<String> lines = new TodoCorpusGenerator(48).generateNumberedLines(5000).collect(toList());
+    List<Task> expectedTasks = lines.stream().map(this::parseWithNewScratch).collect(toList());
+    TaskParser parser = new TaskParser();
+    ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    
+    try
+    {
+      List<Future<List<Task>>> results = new ArrayList<Future<List<Task>>>();
+      
+      for (int i = 0; i < THREAD_COUNT; i++)
+      {
+        List<Integer> order = createShuffledIndexes(lines.size(), new Random(i));
+        
+        results.add(executor.submit(() -> parse(parser, lines, order)));
+      }
+      
+      for (Future<List<Task>> result : results)
+      {
+        List<Task> tasks = result.get();
+        
+        for (int i = 0; i < lines.size(); i++)
+        {
+          assertSameTask(expectedTasks.get(i), tasks.get(i));
+        }
+      }
+    }
+    finally { executor.shutdownNow(); }
+  }
+  
+  @Test
+  public void sharedInstance()
+  {
+    String lineText = "7 (A) 2014-03-02 Call Mom @phone +family day:M";
+    
+    assertSameTask(parseWithNewScratch(lineText), TaskParser.getInstance().parse(lineText));
+  }
+  
+  /**
+   * The reference parse, which shares no state with {@link TaskParser}'s per-thread scratch.
+   */
+  private Task parseWithNewScratch(String lineText) 
+  { 
+    return new Task(new TaskLineParser(lineText)); 
+  }
+  
+  /**
+   * @return The tasks in line order, parsed in the given order
+   */
+  private List<Task> parse(TaskParser parser, List<String> lines, List<Integer> order)
+  {
+    Task[] tasks = new Task[lines.size()];
+    
+    for (int index : order) { tasks[index] = parser.parse(lines.get(index)); }
+    
+    List<Task> taskList = new ArrayList<Task>(tasks.length);
+    
+    Collections.addAll(taskList, tasks);
+    
+    return taskList;
+  }
+  
+  private List<Integer> createShuffledIndexes(int count, Random random)
+  {
+    List<Integer> indexes = new ArrayList<Integer>(count);
+    
+    for (int i = 0; i < count; i++) { indexes.add(i); }
+    
+    Collections.shuffle(indexes, random);
+    
+    return indexes;
+  }
+  
+  private void assertSameTask(Task expected, Task actual)
+  {
+    assertEquals(expected, actual);
+    assertEquals(expected.toString(), actual.toString());
+    assertEquals(expected.getMessage(), actual.getMessage());
+    assertEquals(expected.getCreationEpochDay(), actual.getCreationEpochDay());
+    assertEquals(expected.getCompletionEpochDay(), actual.getCompletionEpochDay());
+  }
+}
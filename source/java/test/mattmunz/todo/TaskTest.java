@@ -4,6 +4,8 @@ import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.DayOfWeek.TUESDAY;
 import static java.time.DayOfWeek.WEDNESDAY;
 import static java.time.DayOfWeek.FRIDAY;
 import static mattmunz.time.TimeOfDay.AFTERNOON;
@@ -87,6 +89,98 @@ public class TaskTest
   	  new Task("01 (A) +Health +AH Passeggiata after every meal -- 15m * day:F tod:A\n");
   }
 
+  @Test
+  public void equality()
+  {
+    Task task1 = new Task("01 (A) Baz @Prospero day:M");
+    Task task2 = new Task("01 (A) Baz @Prospero day:M");
+    Task task3 = new Task("02 (A) Baz @Prospero day:M");
+    
+    assertEquals(task1, task2);
+    assertEquals(task1.hashCode(), task2.hashCode());
+    assertFalse(task1.equals(task3));
+  }
+  
+  @Test
+  public void sameContent()
+  {
+    Task task1 = new Task("01 (A) Baz @Prospero day:M");
+    Task task2 = new Task("102 (A) Baz @Prospero day:M");
+    Task task3 = new Task("01 (B) Baz @Prospero day:M");
+    
+    assertTrue(task1.hasSameContent(task2));
+    assertEquals(task1.getContentHashCode(), task2.getContentHashCode());
+    assertFalse(task1.hasSameContent(task3));
+  }
+
+  @Test
+  public void parseRecurrence()
+  {
+    Task task = new Task("01 (A) Stretch rec:MoWeFr tod:M");
+    Recurrence recurrence = task.getRecurrence().get();
+    
+    assertTrue(recurrence.occursOn(MONDAY));
+    assertTrue(recurrence.occursOn(FRIDAY));
+    assertFalse(recurrence.occursOn(TUESDAY));
+    assertFalse(task.getDay().isPresent());
+    
+    assertTrue(new Task("01 (A) Stretch rec:weekdays").getRecurrence().get().occursOn(WEDNESDAY));
+  }
+
+  @Test
+  public void getOccurrence()
+  {
+    Task occurrence = new Task("01 (A) Stretch rec:MoWeFr tod:M").getOccurrence(WEDNESDAY);
+    
+    assertEquals("01 (A) Stretch rec:MoWeFr tod:M day:W", occurrence.getLineText());
+    assertEquals(WEDNESDAY, occurrence.getDay().get());
+    assertEquals(new Task(occurrence.getLineText()), occurrence);
+  }
+
+  @Test
+  public void moveTo()
+  {
+    assertMovedLineText("01 (A) Foo day:F tod:A @Home", "01 (A) Foo day:M tod:E @Home");
+    assertMovedLineText("01 (A) tod:A Foo day:F", "01 (A) tod:M Foo day:Tu");
+    assertMovedLineText("01 (A) Foo @Home day:F tod:A", "01 (A) Foo @Home");
+    assertMovedLineText("01 (A) Foo day:F tod:A\n", "01 (A) Foo\n");
+    assertMovedLineText("\u001B[1;33m01 (A) Foo day:F tod:A\u001B[0m", 
+                        "\u001B[1;33m01 (A) Foo\u001B[0m");
+  }
+
+  @Test
+  public void tagIdentifier()
+  {
+    Task task = new Task("\u001B[1;33mwork/team.txt:12 (B) Pay rent day:F");
+    
+    assertEquals("work/team.txt:12", task.getIdentifier());
+    assertEquals("B", task.getPriority().get());
+    assertEquals("\u001B[1;33m(B) Pay rent day:F", task.getLineTextWithoutIdentifier());
+  }
+
+  @Test
+  public void addIdentifier()
+  {
+    String coloredLine = "\u001B[1;33mx (B) Water the plants @Home\u001B[0m";
+    Task coloredTask = new Task(Task.addIdentifier("7", coloredLine));
+    
+    assertEquals("7", coloredTask.getIdentifier());
+    assertTrue(coloredTask.isCompleted());
+    assertEquals("B", coloredTask.getPriority().get());
+    assertEquals(coloredLine, coloredTask.getLineTextWithoutIdentifier());
+    
+    Task task = new Task(Task.addIdentifier("12", "(A) Pay rent day:F"));
+    
+    assertEquals("12 (A) Pay rent day:F", task.getLineText());
+    assertEquals("(A) Pay rent day:F", task.getLineTextWithoutIdentifier());
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void parsingInvalidRecurrenceLines1() { new Task("12 (A) foo rec:MoXy"); }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void parsingInvalidRecurrenceLines2() { new Task("12 (A) foo rec:Fr rec:Sa"); }
+
   @Test(expected=IllegalArgumentException.class)
   public void parsingEmptyLines1() { new Task(""); }
 
@@ -105,6 +199,28 @@ public class TaskTest
   @Test(expected=IllegalArgumentException.class)
   public void parsingInvalidLines3() { new Task("12 X (A) foo"); }
   
+  @Test
+  public void parsingDates()
+  {
+    Task completedTask = new Task("04 x 2016-03-11 2016-03-10 Buy cat litter @Errands");
+    
+    assertEquals("2016-03-11", TodoDate.toText(completedTask.getCompletionEpochDay()));
+    assertEquals("2016-03-10", TodoDate.toText(completedTask.getCreationEpochDay()));
+    assertEquals("Buy cat litter", completedTask.getMessage());
+    
+    Task task = new Task("02 (B) 2016-02-29 Get lily photos");
+    
+    assertEquals(16860, task.getCreationEpochDay());
+    assertEquals(TodoDate.NONE, task.getCompletionEpochDay());
+    assertEquals("Get lily photos", task.getMessage());
+    
+    assertEquals(TodoDate.NONE, new Task("05 2015-02-29 Not a date").getCreationEpochDay());
+    assertEquals(TodoDate.NONE, new Task("06 2016-03-05").getCreationEpochDay());
+    assertEquals(TodoDate.NONE, new Task("07 Due 2016-03-05 soon").getCreationEpochDay());
+    assertEquals("2015-02-29 Not a date", new Task("05 2015-02-29 Not a date").getMessage());
+    assertEquals("1969-12-31", TodoDate.toText(-1));
+  }
+  
   @Test(expected=IllegalArgumentException.class)
   public void parsingInvalidDayLines1() { new Task("12 (A) day:Blarg foo"); }
   
@@ -117,6 +233,14 @@ public class TaskTest
   @Test(expected=IllegalArgumentException.class)
   public void parsingInvalidTimeOfDayLines2() { new Task("12 (A) tod:A foo tod:M"); }
   
+  private void assertMovedLineText(String expectedLineText, String lineText)
+  {
+    Task movedTask = new Task(lineText).moveTo(FRIDAY, AFTERNOON);
+    
+    assertEquals(expectedLineText, movedTask.getLineText());
+    assertEquals(new Task(expectedLineText), movedTask);
+  }
+  
   private void assertSetEquals(HashSet<String> left, Set<String> right)
   {
     assertTrue("Sets not equal: " + left + " != " + right, left.size() == right.size() && left.containsAll(right));
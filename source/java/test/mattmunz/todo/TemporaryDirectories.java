@@ -0,0 +1,87 @@
+package mattmunz.todo;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.walk;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Temporary directories for tests, which are deleted with everything in them once the test is 
+ * done, e.g. from an {@link org.junit.After} method.
+ */
+public class TemporaryDirectories
+{
+  private final List<Path> directories = new ArrayList<Path>();
+  
+  public Path create(String prefix) throws IOException
+  {
+    Path directory = createTempDirectory(prefix);
+    
+    directories.add(directory);
+    
+    return directory;
+  }
+  
+  public void deleteAll() throws IOException
+  {
+    for (Path directory : directories) { delete(directory); }
+    
+    directories.clear();
+  }
+  
+  /**
+   * Deletes the directory and everything in it. TaskMover and TodoSync write their snapshots in 
+   * the background, so snapshots still being written are waited for first, and if a snapshot 
+   * appears while the directory is being deleted anyway, it's tried again.
+   */
+  public static void delete(Path directory) throws IOException
+  {
+    for (int attempt = 1; attempt <= 50 && isWritingSnapshots(directory); attempt++)
+    {
+      try { Thread.sleep(100); }
+      catch (InterruptedException exception) { break; }
+    }
+    
+    for (int attempt = 1; ; attempt++)
+    {
+      try (Stream<Path> files = walk(directory))
+      {
+        for (Path file : files.sorted(Comparator.reverseOrder()).collect(toList())) 
+        { 
+          deleteIfExists(file); 
+        }
+        
+        return;
+      }
+      catch (DirectoryNotEmptyException exception)
+      {
+        if (attempt == 10) { throw exception; }
+        
+        try { Thread.sleep(500); }
+        catch (InterruptedException interruptedException) { throw exception; }
+      }
+    }
+  }
+  
+  /**
+   * @return true if there are staged or partly written snapshots in the directory
+   */
+  private static boolean isWritingSnapshots(Path directory) throws IOException
+  {
+    try (Stream<Path> files = walk(directory))
+    {
+      return files.map(file -> "" + file.getFileName())
+                  .anyMatch(name -> name.endsWith(".staging") || name.endsWith(".partial"));
+    }
+    catch (UncheckedIOException exception) { return true; }
+  }
+}
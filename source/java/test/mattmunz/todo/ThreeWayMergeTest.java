@@ -0,0 +1,129 @@
+package mattmunz.todo;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mattmunz.todo.sync.Hunk;
+import mattmunz.todo.sync.LineDiff;
+import mattmunz.todo.sync.SyncPacket;
+import mattmunz.todo.sync.ThreeWayMerge;
+import mattmunz.todo.sync.ThreeWayMerge.Conflict;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ThreeWayMergeTest
+{
+  private static final List<String> BASE = asList("a", "b", "c", "d", "e");
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void diffAndApply()
+  {
+    Random random = new Random(47);
+    
+    for (int i = 0; i < 500; i++)
+    {
+      List<String> base = createLines(random);
+      List<String> revision = edit(base, random);
+      List<Hunk> hunks = LineDiff.diff(base, revision);
+      
+      assertEquals(revision, LineDiff.apply(base, hunks));
+      assertTrue(countChangedLines(hunks) <= 5);
+    }
+    
+    assertEquals("[1-2 [B]]",
+                 LineDiff.diff(BASE, asList("a", "B", "c", "d", "e")).toString());
+  }
+  
+  @Test
+  public void merge()
+  {
+    ThreeWayMerge merge = new ThreeWayMerge(BASE, asList("a", "B", "c", "d", "e", "f"),
+                                            asList("a", "b", "c", "D", "e"));
+    
+    assertEquals(asList("a", "B", "c", "D", "e", "f"), merge.getLines());
+    assertTrue(merge.getConflicts().isEmpty());
+  }
+  
+  @Test
+  public void conflict()
+  {
+    ThreeWayMerge merge = new ThreeWayMerge(BASE, asList("a", "b", "C", "d", "e"),
+                                            asList("b", "c2", "d", "e"));
+    
+    assertEquals(asList("b", "C", "d", "e"), merge.getLines());
+    assertEquals(1, merge.getConflicts().size());
+    
+    Conflict conflict = merge.getConflicts().get(0);
+    
+    assertEquals(asList("C"), conflict.getOurLines());
+    assertEquals(asList("c2"), conflict.getTheirLines());
+    assertEquals(1, conflict.getMergedStart());
+  }
+  
+  @Test
+  public void packet() throws IOException
+  {
+    List<String> result = asList("a", "b", "c \"quoted\"", "d", "e", "f");
+    Path file = directories.create("sync").resolve("1f.request");
+    
+    new SyncPacket("1f", SyncPacket.Kind.REQUEST, BASE, result).write(file);
+    
+    SyncPacket packet = SyncPacket.read(file);
+    
+    assertEquals("1f", packet.getSenderId());
+    assertEquals(SyncPacket.Kind.REQUEST, packet.getKind());
+    assertEquals(result, packet.getResult(BASE));
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void packetWithAnotherBase() throws IOException
+  {
+    Path file = directories.create("sync").resolve("1f.request");
+    
+    new SyncPacket("1f", SyncPacket.Kind.REQUEST, BASE, asList("a")).write(file);
+    
+    SyncPacket.read(file).getResult(asList("a", "b"));
+  }
+  
+  private List<String> createLines(Random random)
+  {
+    List<String> lines = new ArrayList<String>();
+    
+    for (int i = random.nextInt(30); i > 0; i--) { lines.add("line " + random.nextInt(10)); }
+    
+    return lines;
+  }
+  
+  private List<String> edit(List<String> lines, Random random)
+  {
+    List<String> editedLines = new ArrayList<String>(lines);
+    
+    for (int i = random.nextInt(6); i > 0; i--)
+    {
+      int index = editedLines.isEmpty() ? 0 : random.nextInt(editedLines.size());
+      
+      if (random.nextBoolean() || editedLines.isEmpty()) { editedLines.add(index, "new " + i); }
+      else { editedLines.remove(index); }
+    }
+    
+    return editedLines;
+  }
+  
+  private int countChangedLines(List<Hunk> hunks)
+  {
+    return hunks.stream().mapToInt(hunk -> hunk.getLines().size()).sum();
+  }
+}
@@ -0,0 +1,199 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import mattmunz.time.DayHelper;
+import mattmunz.time.TimeOfDay;
+
+/**
+ * Generates synthetic todo.txt files for performance testing. The same seed and settings always 
+ * generate the same lines.
+ * 
+ * Usage: TodoCorpusGenerator OUTPUT_FILE LINE_COUNT [SEED]
+ */
+public class TodoCorpusGenerator
+{
+  private static final String[] WORDS 
+    = { "Buy", "cat", "litter", "Merge", "todos", "Get", "photos", "phone", "Call", "mom", 
+        "Review", "pull", "request", "Pay", "rent", "Walk", "after", "every", "meal", "Read", 
+        "chapter", "Fix", "bike", "Plan", "trip", "Email", "team", "about", "the", "report" };
+  
+  private static final String[] COLOR_CODES = { "\u001B[1;33m", "\u001B[0;32m", "\u001B[1;37m" };
+  
+  public static void main(String[] arguments) throws IOException
+  {
+    long seed = arguments.length > 2 ? Long.parseLong(arguments[2]) : 1;
+    
+    new TodoCorpusGenerator(seed).write(Paths.get(arguments[0]), Integer.parseInt(arguments[1]));
+  }
+
+  private final long seed;
+  private final double priorityRatio;
+  private final double colorRatio;
+  private final double completedRatio;
+  private final int contextCount;
+  private final int projectCount;
+  private final double dayRatio;
+  private final double timeOfDayRatio;
+  private final DayHelper dayHelper = new DayHelper();
+
+  /**
+   * @param priorityRatio The fraction of lines with a priority
+   * @param colorRatio The fraction of lines with an ANSI color code
+   * @param completedRatio The fraction of lines which are completed tasks
+   * @param contextCount The number of distinct contexts
+   * @param projectCount The number of distinct projects
+   * @param dayRatio The fraction of lines with a day: field
+   * @param timeOfDayRatio The fraction of lines with a day: field which also have a tod: field
+   */
+  public TodoCorpusGenerator(long seed, double priorityRatio, double colorRatio, 
+                             double completedRatio, int contextCount, int projectCount, 
+                             double dayRatio, double timeOfDayRatio)
+  {
+    this.seed = seed;
+    this.priorityRatio = priorityRatio;
+    this.colorRatio = colorRatio;
+    this.completedRatio = completedRatio;
+    this.contextCount = contextCount;
+    this.projectCount = projectCount;
+    this.dayRatio = dayRatio;
+    this.timeOfDayRatio = timeOfDayRatio;
+  }
+  
+  /**
+   * A mix resembling a typical personal list.
+   */
+  public TodoCorpusGenerator(long seed) { this(seed, 0.7, 0.1, 0.2, 12, 30, 0.6, 0.7); }
+
+  /**
+   * @return Lines without line numbers, as in a todo.txt file
+   */
+  public Stream<String> generateLines(int count) { return generateLines(count, false); }
+
+  /**
+   * @return Lines with line numbers, and some with color codes, as todo.sh passes them to filters
+   */
+  public Stream<String> generateNumberedLines(int count) { return generateLines(count, true); }
+
+  public void write(Path file, int count) throws IOException
+  {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8))
+    {
+      for (String line : (Iterable<String>) generateLines(count)::iterator)
+      {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Both kinds of line use the same random draws, so line n of the numbered corpus is line n of 
+   * the file corpus with its number, and maybe a color code, added.
+   */
+  private Stream<String> generateLines(int count, boolean isNumbered)
+  {
+    Random random = new Random(seed);
+    
+    return IntStream.rangeClosed(1, count)
+                    .mapToObj(lineNumber -> generateLine(random, isNumbered, lineNumber));
+  }
+
+  /**
+   * Color codes come before the line number, so they're only added to numbered lines.
+   */
+  private String generateLine(Random random, boolean isNumbered, int lineNumber)
+  {
+    StringBuilder line = new StringBuilder(96);
+    
+    if (random.nextDouble() < completedRatio) 
+    { 
+      line.append("x ").append(generateDate(random)).append(' '); 
+    }
+    else if (random.nextDouble() < priorityRatio) 
+    { 
+      line.append('(').append((char) ('A' + random.nextInt(4))).append(") "); 
+    }
+    
+    appendWords(line, random, 1 + random.nextInt(3));
+    
+    if (random.nextInt(3) > 0) 
+    { 
+      line.append(" @").append(getName("Context", random.nextInt(contextCount))); 
+    }
+    
+    if (random.nextInt(2) > 0) 
+    { 
+      line.append(" +").append(getName("Project", random.nextInt(projectCount))); 
+    }
+    
+    appendWords(line, random, random.nextInt(5));
+    
+    if (random.nextDouble() < dayRatio)
+    {
+      DayOfWeek day = DayOfWeek.of(1 + random.nextInt(7));
+      
+      line.append(" day:").append(dayHelper.getIdentifier(day));
+      
+      if (random.nextDouble() < timeOfDayRatio)
+      {
+        TimeOfDay[] timesOfDay = TimeOfDay.values();
+        
+        line.append(" tod:").append(timesOfDay[random.nextInt(timesOfDay.length)].getIdentifier());
+      }
+    }
+    
+    boolean isColored = random.nextDouble() < colorRatio;
+    String colorCode = COLOR_CODES[random.nextInt(COLOR_CODES.length)];
+    
+    if (!isNumbered) { return line.toString(); }
+    
+    line.insert(0, "" + lineNumber + " ");
+    
+    if (isColored) { line.insert(0, colorCode).append("\u001B[0m"); }
+    
+    return line.toString();
+  }
+
+  private void appendWords(StringBuilder line, Random random, int count)
+  {
+    for (int i = 0; i < count; i++) 
+    { 
+      if (line.length() > 0 && line.charAt(line.length() - 1) != ' ') { line.append(' '); }
+      
+      line.append(WORDS[random.nextInt(WORDS.length)]); 
+    }
+  }
+
+  /**
+   * Field values can't contain digits, so names are numbered in letters: A, B, ... Z, BA, BB...
+   */
+  static String getName(String prefix, int number)
+  {
+    StringBuilder name = new StringBuilder();
+    
+    do
+    {
+      name.insert(0, (char) ('A' + number % 26));
+      number /= 26;
+    }
+    while (number > 0);
+    
+    return prefix + name;
+  }
+
+  private String generateDate(Random random)
+  {
+    return String.format("2016-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28));
+  }
+}
@@ -0,0 +1,151 @@
+package mattmunz.todo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mattmunz.todo.cli.TodoSync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TodoSyncTest
+{
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  private Path laptopFile;
+  private Path serverFile;
+  private Path dropDirectory;
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Before
+  public void createCopies() throws IOException
+  {
+    Path directory = directories.create("sync");
+    
+    laptopFile = Files.createDirectory(directory.resolve("laptop")).resolve("todo.txt");
+    serverFile = Files.createDirectory(directory.resolve("server")).resolve("todo.txt");
+    dropDirectory = Files.createDirectory(directory.resolve("drop"));
+    
+    List<String> lines = asList("Pay rent day:F", "Buy cat litter", "Call Mom");
+    
+    Files.write(laptopFile, lines, UTF_8);
+    Files.write(serverFile, lines, UTF_8);
+    writeId(laptopFile, "a1");
+    writeId(serverFile, "b2");
+    
+    sync(laptopFile, serverFile);
+  }
+  
+  @Test
+  public void roundTrip() throws IOException
+  {
+    Files.write(laptopFile, asList("Pay rent day:M", "Buy cat litter", "Call Mom"), UTF_8);
+    Files.write(serverFile, asList("Pay rent day:F", "Buy cat litter", "Call Mom", "Read book"),
+                UTF_8);
+    
+    sync(laptopFile, serverFile);
+    
+    List<String> expectedLines
+      = asList("Pay rent day:M", "Buy cat litter", "Call Mom", "Read book");
+    
+    assertEquals(expectedLines, Files.readAllLines(laptopFile, UTF_8));
+    assertEquals(expectedLines, Files.readAllLines(serverFile, UTF_8));
+    assertEquals(0, listPackets().size());
+  }
+  
+  /**
+   * The laptop has the lower id, so it answers the server's request.
+   */
+  @Test
+  public void crossedRequests() throws IOException
+  {
+    sendCrossedRequests();
+    
+    run("receive", laptopFile);
+    run("receive", serverFile);
+    run("receive", laptopFile);
+    
+    assertCrossedRequestsSynced();
+  }
+  
+  @Test
+  public void crossedRequestsReceivedByHigherIdFirst() throws IOException
+  {
+    sendCrossedRequests();
+    
+    run("receive", serverFile);
+    run("receive", laptopFile);
+    run("receive", serverFile);
+    
+    assertCrossedRequestsSynced();
+  }
+  
+  @Test
+  public void packetsBeingWrittenAreSkipped() throws IOException
+  {
+    Files.write(dropDirectory.resolve(".1f23.new"), asList("todo-sync 1"), UTF_8);
+    Files.write(dropDirectory.resolve("1f23.new"), asList("todo-sync 1"), UTF_8);
+    
+    run("receive", serverFile);
+  }
+  
+  private void sendCrossedRequests() throws IOException
+  {
+    Files.write(laptopFile, asList("Pay rent day:M", "Buy cat litter", "Call Mom"), UTF_8);
+    Files.write(serverFile, asList("Pay rent day:F", "Buy cat litter", "Call Dad"), UTF_8);
+    
+    run("send", laptopFile);
+    run("send", serverFile);
+  }
+  
+  private void assertCrossedRequestsSynced() throws IOException
+  {
+    List<String> expectedLines = asList("Pay rent day:M", "Buy cat litter", "Call Dad");
+    
+    assertEquals(expectedLines, Files.readAllLines(laptopFile, UTF_8));
+    assertEquals(expectedLines, Files.readAllLines(serverFile, UTF_8));
+    assertEquals(0, listPackets().size());
+  }
+  
+  private void writeId(Path todoTxtFile, String id) throws IOException
+  {
+    Path stateDirectory 
+      = Files.createDirectory(todoTxtFile.resolveSibling(todoTxtFile.getFileName() + ".sync"));
+    
+    Files.write(stateDirectory.resolve("id"), asList(id), UTF_8);
+  }
+  
+  /**
+   * The sender sends, the receiver merges and replies, and the sender takes the reply.
+   */
+  private void sync(Path senderFile, Path receiverFile) throws IOException
+  {
+    run("send", senderFile);
+    run("receive", receiverFile);
+    run("receive", senderFile);
+  }
+  
+  private void run(String command, Path todoTxtFile) throws IOException
+  {
+    TodoSync.main(new String[] { command, todoTxtFile.toString(), dropDirectory.toString() });
+  }
+  
+  private List<Path> listPackets() throws IOException
+  {
+    try (Stream<Path> files = Files.list(dropDirectory))
+    {
+      return files.filter(file -> !file.getFileName().toString().endsWith(".new"))
+                  .collect(toList());
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import mattmunz.todo.Task;
+
+import org.junit.Test;
+
+public class ListDisplayFilterTest
+{
+  private static final String LINES 
+    = "1 @Home Clean the KITCHEN day:M\n2 @Work Clean the desk\n" 
+      + "3 @Home Water the Plants on the caf\u00E9 TERRACE\n4 @Home Read about the \u00C9cole\n";
+  
+  /**
+   * Words ignore case, as in {@link TaskSearcher}, whether or not the line or word is ASCII.
+   */
+  @Test
+  public void wordsIgnoreCase()
+  {
+    assertEquals(asList("1"), filter(emptyList(), asList("kitchen")));
+    assertEquals(asList("1", "2"), filter(emptyList(), asList("CLEAN")));
+    assertEquals(asList("1"), filter(asList("@Home"), asList("Clean")));
+    assertEquals(asList("3"), filter(emptyList(), asList("plants", "Terrace")));
+    assertEquals(asList("3"), filter(emptyList(), asList("CAF\u00C9")));
+    assertEquals(asList("4"), filter(emptyList(), asList("\u00E9cole")));
+    assertEquals(asList(), filter(emptyList(), asList("kitchen", "desk")));
+  }
+  
+  /**
+   * The -c table is written from a {@link mattmunz.todo.store.ColumnarTaskStore}, but reads the 
+   * same, including cells padded after non-ASCII and astral characters. Each line has "the" in 
+   * it, so that the lines are read as UTF-8 bytes whatever the default charset.
+   */
+  @Test
+  public void columnarTable() throws IOException
+  {
+    String lines 
+      = "1 (A) @Home Clean the kitchen day:M tod:M\n2 x @Work +Launch Write the plan\n"
+        + "\u001B[1;33m3 (B) @Caf\u00E9 +Fran\u00E7ais Order the croissant day:F\n"
+        + "12 @Home +Garden Plant the \uD83C\uDF31 seedlings\n";
+    
+    String table = display(lines, "the");
+    
+    assertEquals(5, table.split("\n").length);
+    assertEquals(table, display(lines, "the", "-c"));
+  }
+  
+  private List<String> filter(List<String> terms, List<String> words)
+  {
+    List<Task> tasks = new ListDisplayFilter(new TaskSelector(terms), words)
+                         .readMatchingTasks(new ByteArrayInputStream(LINES.getBytes(UTF_8)));
+    
+    return tasks.stream().map(Task::getIdentifier).collect(toList());
+  }
+  
+  /**
+   * @return What ListDisplayFilter printed for the lines
+   */
+  private String display(String lines, String... arguments) throws IOException
+  {
+    InputStream systemIn = System.in;
+    PrintStream systemOut = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    try
+    {
+      System.setIn(new ByteArrayInputStream(lines.getBytes(UTF_8)));
+      System.setOut(new PrintStream(output, true, "UTF-8"));
+      
+      ListDisplayFilter.main(arguments);
+    }
+    finally
+    {
+      System.setIn(systemIn);
+      System.setOut(systemOut);
+    }
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
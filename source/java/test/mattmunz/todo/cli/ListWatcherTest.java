@@ -0,0 +1,108 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import mattmunz.todo.TemporaryDirectories;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ListWatcherTest
+{
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void onlyChangedRowsAreRedrawn() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile();
+    ListWatcher watcher = new ListWatcher(todoTxtFile, new PrintStream(output, true, "UTF-8"));
+    
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen", "@Home Water the plants"), UTF_8);
+    
+    String display = refresh(watcher);
+    
+    assertTrue(display.startsWith("\u001B[2J"));
+    assertTrue(display.contains("Clean the kitchen"));
+    assertTrue(display.contains("Water the plants"));
+    
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen", "@Home Water the cactus"), UTF_8);
+    
+    display = refresh(watcher);
+    
+    assertFalse(display.contains("\u001B[1;1H\u001B[2K"));
+    assertFalse(display.contains("\u001B[2;1H\u001B[2K"));
+    assertTrue(display.contains("\u001B[3;1H\u001B[2K"));
+    assertTrue(display.contains("Water the cactus"));
+    assertFalse(display.contains("Clean the kitchen"));
+  }
+  
+  @Test
+  public void errorsAreShownAndWatchingGoesOn() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile();
+    ListWatcher watcher = new ListWatcher(todoTxtFile, new PrintStream(output, true, "UTF-8"));
+    
+    String display = refresh(watcher);
+    
+    assertTrue(display.contains("Couldn't refresh"));
+    
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen"), UTF_8);
+    refresh(watcher);
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen", "(a Water the plants"), UTF_8);
+    
+    display = refresh(watcher);
+    
+    assertTrue(display.contains("\u001B[3;1H\u001B[2KCouldn't refresh"));
+    
+    Files.write(todoTxtFile, asList("@Home Clean the kitchen", "@Home Water the plants"), UTF_8);
+    
+    display = refresh(watcher);
+    
+    assertTrue(display.contains("Water the plants"));
+    assertFalse(display.contains("Couldn't refresh"));
+  }
+  
+  @Test
+  public void coloredLinesAreParsed() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile();
+    ListWatcher watcher = new ListWatcher(todoTxtFile, new PrintStream(output, true, "UTF-8"));
+    
+    Files.write(todoTxtFile, asList("\u001B[1;33m(A) Water the plants @Home"), UTF_8);
+    
+    String display = refresh(watcher);
+    
+    assertTrue(display.contains("Water the plants"));
+    assertFalse(display.contains("(A) Water the plants"));
+    assertFalse(display.contains("Couldn't refresh"));
+  }
+  
+  private Path createTodoTxtFile() throws IOException
+  {
+    return directories.create("watcher").resolve("todo.txt");
+  }
+  
+  /**
+   * @return What the refresh printed
+   */
+  private String refresh(ListWatcher watcher)
+  {
+    output.reset();
+    watcher.refresh();
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
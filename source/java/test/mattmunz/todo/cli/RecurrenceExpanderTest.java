@@ -0,0 +1,85 @@
+package mattmunz.todo.cli;
+
+import static java.time.DayOfWeek.FRIDAY;
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.DayOfWeek.SATURDAY;
+import static java.time.DayOfWeek.SUNDAY;
+import static java.time.DayOfWeek.THURSDAY;
+import static java.time.DayOfWeek.TUESDAY;
+import static java.time.DayOfWeek.WEDNESDAY;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import mattmunz.todo.Task;
+
+import org.junit.Test;
+
+public class RecurrenceExpanderTest
+{
+  @Test
+  public void weekWindow()
+  {
+    RecurrenceExpander expander = new RecurrenceExpander(WEDNESDAY);
+    
+    assertEquals(asList(WEDNESDAY, THURSDAY, FRIDAY, SATURDAY, SUNDAY, MONDAY, TUESDAY), 
+                 getDays(expander, "1 Stretch rec:daily"));
+    assertEquals(asList(WEDNESDAY, THURSDAY, FRIDAY, MONDAY, TUESDAY), 
+                 getDays(expander, "1 Stretch rec:weekdays"));
+    assertEquals(asList(SATURDAY, SUNDAY), getDays(expander, "1 Stretch rec:weekends"));
+    assertEquals(asList(WEDNESDAY, FRIDAY, MONDAY), getDays(expander, "1 Stretch rec:MoWeFr"));
+  }
+  
+  @Test
+  public void shorterWindow()
+  {
+    RecurrenceExpander expander = new RecurrenceExpander(SATURDAY, 3);
+    
+    assertEquals(asList(SATURDAY, SUNDAY, MONDAY), getDays(expander, "1 Stretch rec:daily"));
+    assertEquals(asList(MONDAY), getDays(expander, "1 Stretch rec:MoWeFr"));
+    assertEquals(asList(), getDays(expander, "1 Stretch rec:TuTh"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void windowLongerThanAWeek() { new RecurrenceExpander(MONDAY, 8); }
+  
+  @Test
+  public void tasksKeptAsTheyAre()
+  {
+    RecurrenceExpander expander = new RecurrenceExpander(MONDAY);
+    
+    for (String line : asList("1 Pay rent day:F", "1 Stretch rec:MoWeFr day:W", 
+                              "1 x Stretch rec:MoWeFr"))
+    {
+      Task task = new Task(line);
+      
+      assertEquals(asList(task), expander.getOccurrences(task).collect(toList()));
+    }
+  }
+  
+  @Test
+  public void expansionIsLazy()
+  {
+    AtomicInteger parsedLineCount = new AtomicInteger();
+    Stream<Task> tasks 
+      = Stream.of("1 Stretch rec:daily", "2 Read rec:daily")
+              .peek(line -> parsedLineCount.incrementAndGet()).map(Task::new);
+    
+    Stream<Task> occurrences = new RecurrenceExpander(MONDAY).expand(tasks);
+    
+    assertEquals(0, parsedLineCount.get());
+    assertEquals(MONDAY, occurrences.findFirst().get().getDay().get());
+    assertEquals(1, parsedLineCount.get());
+  }
+  
+  private List<DayOfWeek> getDays(RecurrenceExpander expander, String line)
+  {
+    return expander.getOccurrences(new Task(line)).map(task -> task.getDay().get())
+                   .collect(toList());
+  }
+}
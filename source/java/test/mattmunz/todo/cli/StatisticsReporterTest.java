@@ -0,0 +1,56 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import mattmunz.todo.TemporaryDirectories;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StatisticsReporterTest
+{
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void csvReport() throws IOException
+  {
+    Path todoTxtFile = directories.create("statistics").resolve("todo.txt");
+    
+    Files.write(todoTxtFile, asList("(B) @Work Write the plan day:M", "", 
+                                    "x @\u00C9cole +Fran\u00E7ais Read a chapter", 
+                                    "\u001B[1;33m@Work Call Sam day:M\u001B[0m"), 
+                UTF_8);
+    
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    new StatisticsReporter(true, new PrintStream(output, true, "UTF-8"))
+      .report(StatisticsReporter.getStatistics(todoTxtFile));
+    
+    List<String> rows = asList(new String(output.toByteArray(), UTF_8).split("\n"));
+    
+    assertEquals(asList("category,name,tasks,completed,completion", 
+                        "total,all,3,1,0.333", 
+                        "context,Work,2,0,0.000", 
+                        "context,\u00C9cole,1,1,1.000", 
+                        "project,Fran\u00E7ais,1,1,1.000", 
+                        "day,MONDAY,2,0,0.000", 
+                        "day,unscheduled,1,1,1.000", 
+                        "slot,MONDAY any,2,0,0.000", 
+                        "slot,unscheduled any,1,1,1.000", 
+                        "priority,B,1,0,0.000", 
+                        "priority,none,2,1,0.500"), 
+                 rows);
+  }
+}
@@ -0,0 +1,184 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mattmunz.time.DayHelper;
+import mattmunz.todo.TemporaryDirectories;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TaskMoverTest
+{
+  private static final String EVENING = "E";
+  
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  /**
+   * The moved task goes to the sort day, today, so the order doesn't depend on when the test is 
+   * run.
+   */
+  @Test
+  public void keepSorted() throws IOException
+  {
+    String today = new DayHelper().getIdentifier(DayHelper.today());
+    Path todoTxtFile 
+      = createTodoTxtFile("@Home Clean the kitchen", "@Work Write the plan", 
+                          "Pay rent day:" + today + " tod:M", "x Call Mom");
+    
+    String output = move(todoTxtFile, "-s", today, EVENING, "1");
+    
+    assertEquals(asList("@Work Write the plan", "Pay rent day:" + today + " tod:M", 
+                        "@Home Clean the kitchen day:" + today + " tod:" + EVENING, "x Call Mom"), 
+                 Files.readAllLines(todoTxtFile, UTF_8));
+    assertTrue(output, output.contains("3 line(s) changed position."));
+  }
+  
+  @Test
+  public void moveByQuery() throws IOException
+  {
+    Path todoTxtFile 
+      = createTodoTxtFile("@Home Clean the kitchen", "@Work Write the plan day:M", 
+                          "@Home Water the plants day:M");
+    
+    String output = move(todoTxtFile, "F", EVENING, "@Home", "day:M");
+    
+    assertEquals(asList("@Home Clean the kitchen", "@Work Write the plan day:M", 
+                        "@Home Water the plants day:F tod:" + EVENING), 
+                 Files.readAllLines(todoTxtFile, UTF_8));
+    assertTrue(output, output.contains("1 task(s) match"));
+    assertTrue(output, output.contains(": [3]."));
+  }
+  
+  @Test
+  public void dryRun() throws IOException
+  {
+    Path todoTxtFile 
+      = createTodoTxtFile("@Home Clean the kitchen", "@Work Write the plan", 
+                          "@Home Water the plants");
+    byte[] bytes = Files.readAllBytes(todoTxtFile);
+    
+    String output = move(todoTxtFile, "-n", "F", EVENING, "@Home");
+    
+    assertArrayEquals(bytes, Files.readAllBytes(todoTxtFile));
+    assertTrue(output, output.contains("2 task(s) match"));
+    assertFalse(output, output.contains("moved"));
+    assertFalse(Files.exists(todoTxtFile.resolveSibling("archive")));
+  }
+  
+  /**
+   * A {@link TaskMerger} tag names the file as the merger was given it, often without a 
+   * directory.
+   */
+  @Test
+  public void fileInTheWorkingDirectoryByTag() throws IOException
+  {
+    Path todoTxtFile = Files.createTempFile(Paths.get(""), "mover", ".txt");
+    
+    try
+    {
+      Files.write(todoTxtFile, asList("Pay rent", "@Home Water the plants"), UTF_8);
+      
+      String output = move(Paths.get(todoTxtFile.getFileName() + ":2"), "-n", "F", EVENING);
+      
+      assertTrue(output, output.contains("1 task(s) match."));
+    }
+    finally { Files.delete(todoTxtFile); }
+  }
+  
+  /**
+   * Lines which aren't moved are copied byte for byte, and moved lines keep their line endings.
+   */
+  @Test
+  public void rawBytesKept() throws IOException
+  {
+    Path todoTxtFile = directories.create("mover").resolve("todo.txt");
+    String coloredLine = "\u001B[1;33m(A) Water the plants @Home";
+    
+    Files.write(todoTxtFile, 
+                ("Pay rent\r\n@Home Caf\u00E9 au lait\r\n\u00C9cole \u00E0 9h\n" + coloredLine 
+                 + "\r\n").getBytes(UTF_8));
+    
+    move(todoTxtFile, "F", EVENING, "2", "4");
+    
+    assertEquals("Pay rent\r\n@Home Caf\u00E9 au lait day:F tod:" + EVENING 
+                 + "\r\n\u00C9cole \u00E0 9h\n" + coloredLine + " day:F tod:" + EVENING + "\r\n", 
+                 new String(Files.readAllBytes(todoTxtFile), UTF_8));
+  }
+  
+  @Test
+  public void blankLinesRejected() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile("Pay rent", " ", "@Home Water the plants");
+    byte[] bytes = Files.readAllBytes(todoTxtFile);
+    
+    try
+    {
+      move(todoTxtFile, "F", EVENING, "@Home");
+      fail("The blank line was accepted");
+    }
+    catch (IllegalStateException exception) 
+    { 
+      assertEquals("Line 2 is empty!", exception.getMessage()); 
+    }
+    
+    assertArrayEquals(bytes, Files.readAllBytes(todoTxtFile));
+    
+    try (Stream<Path> files = Files.list(todoTxtFile.getParent()))
+    {
+      assertEquals(asList("todo.txt"), 
+                   files.map(file -> "" + file.getFileName()).collect(toList()));
+    }
+  }
+  
+  private Path createTodoTxtFile(String... lines) throws IOException
+  {
+    Path todoTxtFile = directories.create("mover").resolve("todo.txt");
+    
+    Files.write(todoTxtFile, asList(lines), UTF_8);
+    
+    return todoTxtFile;
+  }
+  
+  /**
+   * @return What TaskMover printed
+   */
+  private String move(Path todoTxtFile, String... arguments) throws IOException
+  {
+    List<String> argumentList = new ArrayList<String>(asList(arguments));
+    PrintStream systemOut = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    argumentList.add(0, "" + todoTxtFile);
+    
+    try
+    {
+      System.setOut(new PrintStream(output, true, "UTF-8"));
+      
+      TaskMover.main(argumentList.toArray(new String[0]));
+    }
+    finally { System.setOut(systemOut); }
+    
+    return new String(output.toByteArray(), UTF_8);
+  }
+}
@@ -0,0 +1,52 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import mattmunz.todo.Task;
+import mattmunz.todo.TemporaryDirectories;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TaskSearcherTest
+{
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void search() throws IOException
+  {
+    Path todoTxtFile = directories.create("search").resolve("todo.txt");
+    
+    Files.write(todoTxtFile, asList("@Home Clean the KITCHEN day:M", "",
+                                    "@Work Clean the desk day:M", 
+                                    "\u001B[1;33m@Home Water the plants\u001B[0m"),
+                UTF_8);
+    
+    assertEquals(asList("1"), search(todoTxtFile, asList("kitchen"), emptyList()));
+    assertEquals(asList("1", "3"), search(todoTxtFile, asList("Clean"), emptyList()));
+    assertEquals(asList("1"), search(todoTxtFile, asList("clean"), asList("@Home")));
+    assertEquals(asList("1"), search(todoTxtFile, asList("the"), asList("@Home", "day:M")));
+    assertEquals(asList("4"), search(todoTxtFile, asList("PLANTS"), asList("@Home")));
+    assertEquals(asList(), search(todoTxtFile, asList("clean", "plants"), emptyList()));
+  }
+  
+  private List<String> search(Path todoTxtFile, List<String> words, List<String> terms)
+    throws IOException
+  {
+    List<Task> tasks = new TaskSearcher(todoTxtFile, words, new TaskSelector(terms)).search();
+    
+    return tasks.stream().map(Task::getIdentifier).sorted().collect(toList());
+  }
+}
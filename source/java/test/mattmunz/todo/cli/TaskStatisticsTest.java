@@ -0,0 +1,115 @@
+package mattmunz.todo.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.DayOfWeek;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import mattmunz.time.TimeOfDay;
+import mattmunz.todo.Task;
+import mattmunz.todo.cli.TaskStatistics.Counts;
+
+import org.junit.Test;
+
+public class TaskStatisticsTest
+{
+  @Test
+  public void counts()
+  {
+    TaskStatistics statistics 
+      = collect("(A) @Home Clean the kitchen day:M tod:M", "x (A) @Home Call Mom day:M", 
+                "@Work +Launch Write the plan", "x @Caf\u00E9 +Launch Meet Sam day:F");
+    
+    assertCounts(4, 2, statistics.getTotals(), 0);
+    assertCounts(2, 1, statistics.getContexts(), getContextId(statistics, "Home"));
+    assertCounts(1, 0, statistics.getContexts(), getContextId(statistics, "Work"));
+    assertCounts(1, 1, statistics.getContexts(), getContextId(statistics, "Caf\u00E9"));
+    assertEquals(3, statistics.getContextNames().size());
+    assertCounts(2, 1, statistics.getProjects(), statistics.getProjectNames().getId("Launch"));
+    assertCounts(2, 1, statistics.getDays(), DayOfWeek.MONDAY.ordinal());
+    assertCounts(1, 1, statistics.getDays(), DayOfWeek.FRIDAY.ordinal());
+    assertCounts(1, 0, statistics.getDays(), TaskStatistics.DAY_COUNT - 1);
+    assertCounts(1, 0, statistics.getSlots(), 
+                 DayOfWeek.MONDAY.ordinal() * TaskStatistics.SLOTS_PER_DAY 
+                 + TimeOfDay.forIdentifier("M").ordinal());
+    assertCounts(2, 1, statistics.getPriorities(), 0);
+    assertCounts(2, 1, statistics.getPriorities(), TaskStatistics.PRIORITY_COUNT - 1);
+  }
+  
+  @Test
+  public void merge()
+  {
+    NameInterner contextNames = new NameInterner();
+    NameInterner projectNames = new NameInterner();
+    TaskStatistics first = new TaskStatistics(contextNames, projectNames);
+    TaskStatistics second = new TaskStatistics(contextNames, projectNames);
+    
+    first.add(new Task("1 @Home Clean the kitchen"));
+    second.add(new Task("2 x @Work Write the plan"));
+    second.add(new Task("3 @Home Water the plants"));
+    
+    TaskStatistics statistics = first.merge(second);
+    
+    assertCounts(3, 1, statistics.getTotals(), 0);
+    assertCounts(2, 0, statistics.getContexts(), contextNames.getId("Home"));
+    assertCounts(1, 1, statistics.getContexts(), contextNames.getId("Work"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void mergeWithOtherInterners()
+  {
+    NameInterner projectNames = new NameInterner();
+    
+    new TaskStatistics(new NameInterner(), projectNames)
+      .merge(new TaskStatistics(new NameInterner(), projectNames));
+  }
+  
+  @Test
+  public void interning() throws InterruptedException
+  {
+    NameInterner names = new NameInterner();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    
+    for (int i = 0; i < 8; i++)
+    {
+      executor.execute(() -> 
+      {
+        for (int j = 0; j < 1000; j++) { names.getId("Name" + j % 100); }
+      });
+    }
+    
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    
+    assertEquals(100, names.size());
+    
+    for (int id = 0; id < names.size(); id++) 
+    { 
+      assertEquals(id, names.getId(names.getName(id))); 
+    }
+  }
+  
+  private TaskStatistics collect(String... lines)
+  {
+    NameInterner contextNames = new NameInterner();
+    NameInterner projectNames = new NameInterner();
+    
+    return Stream.of(lines).parallel().map(line -> new Task("1 " + line))
+                 .collect(() -> new TaskStatistics(contextNames, projectNames), 
+                          TaskStatistics::add, TaskStatistics::merge);
+  }
+  
+  private int getContextId(TaskStatistics statistics, String context)
+  {
+    return statistics.getContextNames().getId(context);
+  }
+  
+  private void assertCounts(int taskCount, int completedCount, Counts counts, int index)
+  {
+    assertEquals(taskCount, counts.getTaskCount(index));
+    assertEquals(completedCount, counts.getCompletedCount(index));
+  }
+}
@@ -0,0 +1,152 @@
+package mattmunz.todo.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import mattmunz.todo.TemporaryDirectories;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TrigramIndexTest
+{
+  private static final List<String> LINES
+    = asList("@Home Clean the kitchen day:M", "", "Call AaAa about the party +Birthday",
+             "@Home Water the plants day:M");
+  private final TemporaryDirectories directories = new TemporaryDirectories();
+  
+  @After
+  public void deleteDirectories() throws IOException { directories.deleteAll(); }
+  
+  @Test
+  public void build() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile(LINES);
+    TrigramIndex index = TrigramIndex.open(todoTxtFile);
+    
+    assertEquals(4, index.getLineCount());
+    assertEquals(3, index.getParsedLineCount());
+    assertArrayEquals(new int[] { 0 }, index.getLines(TrigramIndex.getWordKeys("Kitchen")));
+    assertArrayEquals(new int[] { 0, 3 },
+                      index.getLines(new int[] { TrigramIndex.getFieldKey("@", "Home") }));
+    assertArrayEquals(new int[] { 2 },
+                      index.getLines(new int[] { TrigramIndex.getFieldKey("+", "Birthday") }));
+    assertArrayEquals(new int[] { 0, 1, 2, 3 }, index.getLines(new int[0]));
+    assertEquals(LINES.get(3), readLine(todoTxtFile, index, 3));
+  }
+  
+  /**
+   * "AaAa" and "BBBB" have the same String hash code, and the same length.
+   */
+  @Test
+  public void incrementalUpdate() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile(LINES);
+    
+    TrigramIndex.open(todoTxtFile);
+    
+    write(todoTxtFile, asList("Pay rent day:F", "@Home Water the plants day:M", "",
+                              "Call BBBB about the party +Birthday",
+                              "@Home Clean the kitchen day:M"));
+    
+    TrigramIndex index = TrigramIndex.open(todoTxtFile);
+    
+    assertEquals(5, index.getLineCount());
+    assertEquals(2, index.getParsedLineCount());
+    assertArrayEquals(new int[] { 4 }, index.getLines(TrigramIndex.getWordKeys("kitchen")));
+    assertArrayEquals(new int[] { 1 }, index.getLines(TrigramIndex.getWordKeys("plants")));
+    assertArrayEquals(new int[] { 3 }, index.getLines(TrigramIndex.getWordKeys("bbbb")));
+    assertArrayEquals(new int[0], index.getLines(TrigramIndex.getWordKeys("aaaa")));
+    assertArrayEquals(new int[] { 0 }, index.getLines(TrigramIndex.getWordKeys("rent")));
+    assertArrayEquals(new int[] { 1, 4 },
+                      index.getLines(new int[] { TrigramIndex.getFieldKey("@", "Home") }));
+    assertEquals("@Home Clean the kitchen day:M", readLine(todoTxtFile, index, 4));
+  }
+  
+  @Test
+  public void loadSavedIndex() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile(LINES);
+    TrigramIndex builtIndex = TrigramIndex.open(todoTxtFile);
+    TrigramIndex loadedIndex = TrigramIndex.open(todoTxtFile);
+    
+    assertEquals(0, loadedIndex.getParsedLineCount());
+    assertEquals(builtIndex.getLineCount(), loadedIndex.getLineCount());
+    
+    for (String word : asList("kitchen", "the", "party", "plants"))
+    {
+      int[] keys = TrigramIndex.getWordKeys(word);
+      
+      assertArrayEquals(builtIndex.getLines(keys), loadedIndex.getLines(keys));
+    }
+    
+    assertEquals(LINES.get(2), readLine(todoTxtFile, loadedIndex, 2));
+  }
+  
+  @Test
+  public void corruptIndexIsRebuilt() throws IOException
+  {
+    Path todoTxtFile = createTodoTxtFile(LINES);
+    Path indexFile = TrigramIndex.getIndexFile(todoTxtFile);
+    
+    TrigramIndex.open(todoTxtFile);
+    
+    byte[] indexBytes = Files.readAllBytes(indexFile);
+    
+    Files.write(indexFile, Arrays.copyOf(indexBytes, indexBytes.length / 2));
+    
+    assertRebuilt(todoTxtFile);
+    
+    indexBytes[24] = (byte) 0x7F;
+    Files.write(indexFile, indexBytes);
+    
+    assertRebuilt(todoTxtFile);
+  }
+  
+  private void assertRebuilt(Path todoTxtFile) throws IOException
+  {
+    TrigramIndex index = TrigramIndex.open(todoTxtFile);
+    
+    assertEquals(3, index.getParsedLineCount());
+    assertArrayEquals(new int[] { 0 }, index.getLines(TrigramIndex.getWordKeys("kitchen")));
+  }
+  
+  private Path createTodoTxtFile(List<String> lines) throws IOException
+  {
+    Path todoTxtFile = directories.create("trigrams").resolve("todo.txt");
+    
+    Files.write(todoTxtFile, lines, UTF_8);
+    
+    return todoTxtFile;
+  }
+  
+  /**
+   * Moves the modification time on, in case the file is rewritten within its resolution.
+   */
+  private void write(Path todoTxtFile, List<String> lines) throws IOException
+  {
+    FileTime modifiedTime = Files.getLastModifiedTime(todoTxtFile);
+    
+    Files.write(todoTxtFile, lines, UTF_8);
+    Files.setLastModifiedTime(todoTxtFile, FileTime.fromMillis(modifiedTime.toMillis() + 1000));
+  }
+  
+  private String readLine(Path todoTxtFile, TrigramIndex index, int lineIndex) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(todoTxtFile, StandardOpenOption.READ))
+    {
+      return index.readLine(channel, lineIndex);
+    }
+  }
+}